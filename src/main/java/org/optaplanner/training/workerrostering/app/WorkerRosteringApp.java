@@ -24,30 +24,71 @@ import java.time.format.DateTimeFormatter;
 import java.util.Collection;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.optaplanner.core.api.solver.Solver;
 import org.optaplanner.core.api.solver.SolverFactory;
 import org.optaplanner.core.impl.score.director.ScoreDirector;
 import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.persistence.AssignmentSnapshot;
 import org.optaplanner.training.workerrostering.persistence.WorkerRosteringGenerator;
 import org.optaplanner.training.workerrostering.persistence.WorkerRosteringSolutionFileDaysIO;
 import org.optaplanner.training.workerrostering.persistence.WorkerRosteringSolutionFileIO;
 import org.optaplanner.training.workerrostering.persistence.WorkerRosteringSolutionFileWeeksIO;
+import org.optaplanner.training.workerrostering.solver.RosterCheckpointer;
+import org.optaplanner.training.workerrostering.solver.SolverFactoryHolder;
 
 public class WorkerRosteringApp {
 
+	// A warm started solve only repairs what changed, so it stops as soon as it stops improving
+	private static final long WARM_START_UNIMPROVED_SECONDS = 2L;
+	private static final String RESUME_ARG = "--resume";
+	private static final String CHECKPOINT_INTERVAL_SECONDS_PROPERTY = "workerrostering.checkpointIntervalSeconds";
+
+	/**
+	 * @param args optionally a previously solved workbook (.xlsx) or an assignment snapshot to warm start from,
+	 * or {@value #RESUME_ARG} to continue the last solve of this input from its newest checkpoint
+	 */
 	public static void main(String[] args) {
 		String filename = "roster_anna_10";
 		WorkerRosteringSolutionFileDaysIO solutionFileIO = new WorkerRosteringSolutionFileDaysIO();
 		Roster roster = solutionFileIO.read(new File("data/workerrostering/import/" + filename + ".xlsx"));
+		File checkpointDir = new File("local/checkpoints/" + filename);
+		boolean resume = args.length > 0 && args[0].equals(RESUME_ARG);
+		File warmStartFile = null;
+		if (resume) {
+			File checkpointFile = RosterCheckpointer.findNewestCheckpoint(checkpointDir);
+			if (checkpointFile == null) {
+				throw new IllegalArgumentException("There is no checkpoint to resume from in checkpointDir ("
+						+ checkpointDir + ").");
+			}
+			int seededCount = AssignmentSnapshot.read(checkpointFile).applyTo(roster);
+			System.out.println("Resume from " + checkpointFile + ": " + seededCount + " of "
+					+ roster.getShiftAssignmentList().size() + " shift assignments seeded.");
+		} else if (args.length > 0) {
+			warmStartFile = new File(args[0]);
+			int seededCount = AssignmentSnapshot.readAny(warmStartFile).applyTo(roster);
+			System.out.println("Warm start from " + warmStartFile + ": " + seededCount + " of "
+					+ roster.getShiftAssignmentList().size() + " shift assignments seeded.");
+		}
 		// WorkerRosteringGenerator generator = new WorkerRosteringGenerator();
 		// Roster roster = generator.generateRoster(100, 28, false);
 
 		// LAB-SOLUTION-START
-		SolverFactory<Roster> solverFactory = SolverFactory.createFromXmlResource(
-				"org/optaplanner/training/workerrostering/solver/workerRosteringSolverConfig.xml");
+		// A clone, because the warm start tweaks the termination of the shared factory
+		SolverFactory<Roster> solverFactory = SolverFactoryHolder.getSolverFactory().cloneSolverFactory();
+		// A resumed solve keeps the full termination: it continues the local search of the crashed one
+		if (warmStartFile != null) {
+			solverFactory.getSolverConfig().getTerminationConfig()
+					.setUnimprovedSecondsSpentLimit(WARM_START_UNIMPROVED_SECONDS);
+		}
 		Solver<Roster> solver = solverFactory.buildSolver();
-		roster = solver.solve(roster);
+		long checkpointIntervalSeconds = Long.getLong(CHECKPOINT_INTERVAL_SECONDS_PROPERTY, 60L);
+		try (RosterCheckpointer checkpointer = new RosterCheckpointer(checkpointDir,
+				TimeUnit.SECONDS.toMillis(checkpointIntervalSeconds))) {
+			solver.addEventListener(checkpointer);
+			roster = solver.solve(roster);
+		}
 		// LAB-SOLUTION-END
 
 		File outputSolutionFile = new File("data/workerrostering/export/" + filename + "-solved"
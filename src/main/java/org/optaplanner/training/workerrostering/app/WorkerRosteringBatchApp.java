@@ -0,0 +1,255 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.app;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.core.impl.score.director.ScoreDirectorFactory;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.persistence.AssignmentSnapshot;
+import org.optaplanner.training.workerrostering.persistence.SolveResultCache;
+import org.optaplanner.training.workerrostering.persistence.WorkerRosteringSolutionFileDaysIO;
+import org.optaplanner.training.workerrostering.solver.SolverFactoryHolder;
+
+/**
+ * Headless: solves every input workbook of a directory (or glob) concurrently and writes a summary CSV.
+ * All solvers share 1 compiled rule base, see {@link SolverFactoryHolder}.
+ * <p>
+ * Solved rosters go in a {@link SolveResultCache}, so re-running an unchanged workbook only writes it again.
+ * The cache is {@code local/resultcache}, or the system property {@value #RESULT_CACHE_DIR_PROPERTY},
+ * limited to {@value #RESULT_CACHE_DEFAULT_MAX_MEGABYTES} MB, or the system property
+ * {@value #RESULT_CACHE_MAX_MEGABYTES_PROPERTY}.
+ * <p>
+ * Usage: {@code WorkerRosteringBatchApp <inputDir|glob> <outputDir> [threadCount]},
+ * for example {@code WorkerRosteringBatchApp "data/workerrostering/import/roster_*.xlsx" data/workerrostering/export}.
+ */
+public class WorkerRosteringBatchApp {
+
+	public static final String SUMMARY_FILE_NAME = "batch-summary.csv";
+	public static final String RESULT_CACHE_DIR_PROPERTY = "workerrostering.resultCacheDir";
+	public static final String RESULT_CACHE_MAX_MEGABYTES_PROPERTY = "workerrostering.resultCacheMaxMegabytes";
+	public static final long RESULT_CACHE_DEFAULT_MAX_MEGABYTES = 256L;
+
+	public static void main(String[] args) {
+		if (args.length < 2 || args.length > 3) {
+			System.err.println("Usage: WorkerRosteringBatchApp <inputDir|glob> <outputDir> [threadCount]");
+			System.exit(1);
+		}
+		List<File> inputFileList = findInputFiles(args[0]);
+		File outputDir = new File(args[1]);
+		int threadCount = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("The threadCount (" + threadCount + ") must be at least 1.");
+		}
+		List<BatchResult> resultList = solveAll(inputFileList, outputDir, threadCount);
+		writeSummary(resultList, new File(outputDir, SUMMARY_FILE_NAME));
+		long failedCount = resultList.stream().filter(result -> result.error != null).count();
+		System.out.println("Solved " + (resultList.size() - failedCount) + " of " + resultList.size()
+				+ " rosters, summary in " + new File(outputDir, SUMMARY_FILE_NAME) + ".");
+		if (failedCount > 0) {
+			System.exit(2);
+		}
+	}
+
+	/**
+	 * @param input a directory (every .xlsx file in it) or a glob such as {@code dir/roster_*.xlsx},
+	 * the wildcards only in the file name
+	 * @return never null, never empty, sorted
+	 */
+	public static List<File> findInputFiles(String input) {
+		Path inputPath;
+		String glob;
+		if (input.contains("*") || input.contains("?")) {
+			Path globPath = Paths.get(input);
+			inputPath = globPath.getParent() == null ? Paths.get(".") : globPath.getParent();
+			glob = globPath.getFileName().toString();
+		} else {
+			inputPath = Paths.get(input);
+			glob = "*.xlsx";
+			if (!Files.isDirectory(inputPath)) {
+				throw new IllegalArgumentException("The input (" + input + ") is not a directory or a glob.");
+			}
+		}
+		List<File> inputFileList = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(inputPath, glob)) {
+			for (Path path : stream) {
+				if (Files.isRegularFile(path)) {
+					inputFileList.add(path.toFile());
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Could not list the input (" + input + ").", e);
+		}
+		if (inputFileList.isEmpty()) {
+			throw new IllegalArgumentException("The input (" + input + ") matches no files.");
+		}
+		inputFileList.sort(null);
+		return inputFileList;
+	}
+
+	public static List<BatchResult> solveAll(List<File> inputFileList, File outputDir, int threadCount) {
+		outputDir.mkdirs();
+		// Compile the rules once, before the threads race for it
+		String configHash = SolveResultCache.hashConfig(SolverFactoryHolder.getSolverFactory());
+		SolveResultCache resultCache = new SolveResultCache(
+				new File(System.getProperty(RESULT_CACHE_DIR_PROPERTY, "local/resultcache")),
+				Long.getLong(RESULT_CACHE_MAX_MEGABYTES_PROPERTY, RESULT_CACHE_DEFAULT_MAX_MEGABYTES) * 1024L * 1024L);
+		ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1,
+				Math.min(threadCount, inputFileList.size())));
+		try {
+			List<Future<BatchResult>> futureList = new ArrayList<>(inputFileList.size());
+			for (File inputFile : inputFileList) {
+				futureList.add(executorService.submit(() -> solve(inputFile, outputDir, resultCache, configHash)));
+			}
+			List<BatchResult> resultList = new ArrayList<>(futureList.size());
+			for (Future<BatchResult> future : futureList) {
+				resultList.add(future.get());
+			}
+			return resultList;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while solving the batch.", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Solving the batch failed.", e.getCause());
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private static BatchResult solve(File inputFile, File outputDir, SolveResultCache resultCache,
+			String configHash) {
+		long startMillis = System.currentTimeMillis();
+		try {
+			WorkerRosteringSolutionFileDaysIO solutionFileIO = new WorkerRosteringSolutionFileDaysIO();
+			Roster roster = solutionFileIO.read(inputFile);
+			long readMillis = System.currentTimeMillis() - startMillis;
+			String problemHash = SolveResultCache.hashProblem(roster);
+			Solver<Roster> solver = SolverFactoryHolder.buildSolver();
+			// Scores the written roster for the score sheets, whether it was solved or not
+			ScoreDirectorFactory<Roster> scoreDirectorFactory = solver.getScoreDirectorFactory();
+			String cacheStatus;
+			AssignmentSnapshot cachedSnapshot = resultCache.get(problemHash, configHash);
+			if (cachedSnapshot != null && cachedSnapshot.applyExactlyTo(roster)) {
+				cacheStatus = "HIT";
+				ScoreDirector<Roster> scoreDirector = scoreDirectorFactory.buildScoreDirector();
+				scoreDirector.setWorkingSolution(roster);
+				scoreDirector.calculateScore();
+				scoreDirector.dispose();
+			} else {
+				if (cachedSnapshot == null) {
+					// Solved before with another config: only warm start, the config might change the result
+					cachedSnapshot = resultCache.findAny(problemHash);
+				}
+				if (cachedSnapshot != null) {
+					cachedSnapshot.applyTo(roster);
+				}
+				cacheStatus = cachedSnapshot == null ? "MISS" : "WARM";
+				roster = solver.solve(roster);
+				resultCache.put(problemHash, configHash, roster);
+			}
+			long solveMillis = System.currentTimeMillis() - startMillis - readMillis;
+			String name = inputFile.getName().replaceFirst("\\.xlsx$", "");
+			File outputFile = new File(outputDir, name + "-solved.xlsx");
+			solutionFileIO.write(roster, scoreDirectorFactory, outputFile);
+			long writeMillis = System.currentTimeMillis() - startMillis - readMillis - solveMillis;
+			return new BatchResult(inputFile, outputFile, String.valueOf(roster.getScore()), cacheStatus,
+					readMillis, solveMillis, writeMillis, null);
+		} catch (RuntimeException e) {
+			// 1 broken workbook must not stop the rest of the batch
+			System.err.println("Failed solving inputFile (" + inputFile + "): " + e.getMessage());
+			return new BatchResult(inputFile, null, null, null, 0L, 0L, 0L, e.toString());
+		}
+	}
+
+	public static void writeSummary(List<BatchResult> resultList, File summaryFile) {
+		try (BufferedWriter writer = Files.newBufferedWriter(summaryFile.toPath(), StandardCharsets.UTF_8)) {
+			writer.write("Input,Output,Score,Cache,Read millis,Solve millis,Write millis,Error");
+			writer.newLine();
+			for (BatchResult result : resultList) {
+				writer.write(String.join(",", escape(result.inputFile.getPath()),
+						escape(result.outputFile == null ? "" : result.outputFile.getPath()),
+						escape(result.score == null ? "" : result.score),
+						result.cacheStatus == null ? "" : result.cacheStatus,
+						String.valueOf(result.readMillis), String.valueOf(result.solveMillis),
+						String.valueOf(result.writeMillis), escape(result.error == null ? "" : result.error)));
+				writer.newLine();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed writing summaryFile (" + summaryFile + ").", e);
+		}
+	}
+
+	private static String escape(String value) {
+		if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+			return "\"" + value.replace("\"", "\"\"") + "\"";
+		}
+		return value;
+	}
+
+	public static class BatchResult {
+
+		private final File inputFile;
+		private final File outputFile;
+		private final String score;
+		private final String cacheStatus;
+		private final long readMillis;
+		private final long solveMillis;
+		private final long writeMillis;
+		private final String error;
+
+		public BatchResult(File inputFile, File outputFile, String score, String cacheStatus,
+				long readMillis, long solveMillis, long writeMillis, String error) {
+			this.inputFile = inputFile;
+			this.outputFile = outputFile;
+			this.score = score;
+			this.cacheStatus = cacheStatus;
+			this.readMillis = readMillis;
+			this.solveMillis = solveMillis;
+			this.writeMillis = writeMillis;
+			this.error = error;
+		}
+
+		public File getInputFile() {
+			return inputFile;
+		}
+
+		public String getScore() {
+			return score;
+		}
+
+		public String getError() {
+			return error;
+		}
+
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.app;
+
+import java.io.File;
+
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.persistence.WorkerRosteringSolutionFileBinaryIO;
+import org.optaplanner.training.workerrostering.persistence.WorkerRosteringSolutionFileDaysIO;
+
+/**
+ * Converts a Days workbook to a binary roster snapshot or back, depending on the extension of the input file.
+ * A binary snapshot becomes an input workbook, which {@link WorkerRosteringSolutionFileDaysIO#read(File)} reads
+ * again, so only the pinned assignments are kept, see {@link WorkerRosteringSolutionFileDaysIO#writeInput}.
+ * <p>
+ * Usage: {@code WorkerRosteringBinaryConverterApp <inputFile> [outputFile]},
+ * the outputFile defaults to the inputFile with the other extension.
+ */
+public class WorkerRosteringBinaryConverterApp {
+
+	public static void main(String[] args) {
+		if (args.length < 1 || args.length > 2) {
+			throw new IllegalArgumentException("Usage: WorkerRosteringBinaryConverterApp <inputFile> [outputFile]");
+		}
+		File inputFile = new File(args[0]);
+		WorkerRosteringSolutionFileDaysIO daysIO = new WorkerRosteringSolutionFileDaysIO();
+		WorkerRosteringSolutionFileBinaryIO binaryIO = new WorkerRosteringSolutionFileBinaryIO();
+		boolean toBinary = !inputFile.getName().endsWith("." + binaryIO.getInputFileExtension());
+		File outputFile = args.length > 1 ? new File(args[1]) : new File(inputFile.getParentFile(),
+				stripExtension(inputFile.getName()) + "."
+				+ (toBinary ? binaryIO.getOutputFileExtension() : daysIO.getOutputFileExtension()));
+
+		long startMillis = System.currentTimeMillis();
+		Roster roster = toBinary ? daysIO.read(inputFile) : binaryIO.read(inputFile);
+		long readMillis = System.currentTimeMillis() - startMillis;
+		startMillis = System.currentTimeMillis();
+		if (toBinary) {
+			binaryIO.write(roster, outputFile);
+		} else {
+			daysIO.writeInput(roster, outputFile);
+		}
+		long writeMillis = System.currentTimeMillis() - startMillis;
+		System.out.println("Converted " + inputFile + " (read in " + readMillis + " ms) to " + outputFile
+				+ " (written in " + writeMillis + " ms).");
+	}
+
+	private static String stripExtension(String fileName) {
+		int dotIndex = fileName.lastIndexOf('.');
+		return dotIndex < 0 ? fileName : fileName.substring(0, dotIndex);
+	}
+
+}
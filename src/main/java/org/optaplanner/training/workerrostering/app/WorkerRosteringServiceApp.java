@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.app;
+
+import java.io.IOException;
+
+import org.optaplanner.training.workerrostering.service.RosterSolvingHttpServer;
+import org.optaplanner.training.workerrostering.service.RosterSolvingService;
+import org.optaplanner.training.workerrostering.solver.SolverFactoryHolder;
+
+/**
+ * Runs the solving service on localhost until the process is killed.
+ * <p>
+ * Usage: {@code WorkerRosteringServiceApp [port] [solverThreadCount]}, for example:
+ * <pre>
+ * curl --data-binary @roster.xlsx "http://localhost:8080/jobs?name=roster"
+ * curl http://localhost:8080/jobs/1/scores
+ * curl -o solved.xlsx http://localhost:8080/jobs/1/best
+ * </pre>
+ */
+public class WorkerRosteringServiceApp {
+
+	public static final int DEFAULT_PORT = 8080;
+
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int solverThreadCount = args.length > 1 ? Integer.parseInt(args[1])
+				: Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		// Compile the rules before accepting the first job
+		SolverFactoryHolder.getSolverFactory();
+		RosterSolvingService solvingService = new RosterSolvingService(solverThreadCount);
+		RosterSolvingHttpServer httpServer = new RosterSolvingHttpServer(solvingService, port);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			httpServer.stop();
+			solvingService.shutdown();
+		}));
+		httpServer.start();
+		System.out.println("Solving rosters on http://localhost:" + httpServer.getPort()
+				+ RosterSolvingHttpServer.JOBS_PATH + " with " + solverThreadCount + " solver thread(s).");
+	}
+
+}
@@ -24,6 +24,8 @@ import java.util.Set;
 public class Employee {
 
     private final String name;
+    // As read, before the VIP adjustment of time
+    private final Double baseTime;
     private final Double time;
     // VIPs work less ;)
     private final Double vipFactor;
@@ -44,6 +46,7 @@ public class Employee {
         this.name = name;
         this.skillSet = skillSet;
         //this.time = time;
+        this.baseTime = time;
         this.vipFactor = vipFactor;
         this.time = time * (1-vipFactor/12);
         init();
@@ -51,6 +54,7 @@ public class Employee {
     public Employee(String name, Set<Skill> skillSet) {
         this.name = name;
         this.skillSet = skillSet;
+        this.baseTime = 100.0;
         this.time = 100.0;
         this.vipFactor = 0.0;
         init();
@@ -106,6 +110,14 @@ public class Employee {
         return time;
     }
 
+    /**
+     * @return the time passed to the constructor,
+     * so {@code new Employee(name, skillSet, getBaseTime(), getVIPFactor())} has the same {@link #getTime()}
+     */
+    public double getBaseTime() {
+        return baseTime;
+    }
+
     public double getTimeAdjustedCost(double cost) {
     	return cost * 100.0 / time;
     }
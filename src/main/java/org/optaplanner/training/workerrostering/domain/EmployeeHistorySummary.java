@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.domain;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The HISTORY shift assignments of 1 employee that are no longer in the working memory, collapsed into totals.
+ * Every employee has exactly 1, with zero totals if they have no such history.
+ */
+public class EmployeeHistorySummary {
+
+    private final Employee employee;
+    private final int shiftCount;
+    private final long days;
+    private final long adjustedCost;
+    private final Map<String, Long> shiftTypeAdjustedCostMap;
+
+    public EmployeeHistorySummary(Employee employee) {
+        this(employee, 0, 0L, 0L, Collections.emptyMap());
+    }
+
+    public EmployeeHistorySummary(Employee employee, int shiftCount, long days, long adjustedCost,
+            Map<String, Long> shiftTypeAdjustedCostMap) {
+        this.employee = employee;
+        this.shiftCount = shiftCount;
+        this.days = days;
+        this.adjustedCost = adjustedCost;
+        this.shiftTypeAdjustedCostMap = shiftTypeAdjustedCostMap;
+    }
+
+    public Employee getEmployee() {
+        return employee;
+    }
+
+    public int getShiftCount() {
+        return shiftCount;
+    }
+
+    public long getDays() {
+        return days;
+    }
+
+    /**
+     * @return the sum of {@link ShiftAssignment#getAdjustedCost()} over the history
+     */
+    public long getAdjustedCost() {
+        return adjustedCost;
+    }
+
+    public Map<String, Long> getShiftTypeAdjustedCostMap() {
+        return shiftTypeAdjustedCostMap;
+    }
+
+    public long getAdjustedCost(String shiftType) {
+        Long shiftTypeAdjustedCost = shiftTypeAdjustedCostMap.get(shiftType);
+        return shiftTypeAdjustedCost == null ? 0L : shiftTypeAdjustedCost;
+    }
+
+    /**
+     * Used by the fairness rules.
+     * @param liveAdjustedCost the sum of the adjusted cost of the shift assignments in the working memory
+     * @return the history plus the live adjusted cost
+     */
+    public long getTotalAdjustedCost(Number liveAdjustedCost) {
+        return adjustedCost + liveAdjustedCost.longValue();
+    }
+
+    public long getTotalAdjustedCost(String shiftType, Number liveAdjustedCost) {
+        return getAdjustedCost(shiftType) + liveAdjustedCost.longValue();
+    }
+
+    @Override
+    public String toString() {
+        return employee + " history";
+    }
+
+}
@@ -16,6 +16,7 @@
 
 package org.optaplanner.training.workerrostering.domain;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -43,6 +44,9 @@ public class Roster {
     @ProblemFactCollectionProperty
     @ValueRangeProvider(id = "employeeRange")
     private List<Employee> employeeList;
+    // Compressed HISTORY shift assignments that aren't planning entities
+    @ProblemFactCollectionProperty
+    private List<EmployeeHistorySummary> employeeHistorySummaryList;
     public Solver<Roster> Solver;
 
     @PlanningEntityCollectionProperty
@@ -57,23 +61,62 @@ public class Roster {
     public Roster(RosterParametrization rosterParametrization,
             List<Skill> skillList, List<Spot> spotList, List<TimeSlot> timeSlotList, List<Employee> employeeList,
             List<ShiftAssignment> shiftAssignmentList) {
+        this(rosterParametrization, skillList, spotList, timeSlotList, employeeList, shiftAssignmentList,
+                employeeList.stream().map(EmployeeHistorySummary::new).collect(Collectors.toList()));
+    }
+
+    /**
+     * @param employeeHistorySummaryList never null, exactly 1 per employee
+     */
+    public Roster(RosterParametrization rosterParametrization,
+            List<Skill> skillList, List<Spot> spotList, List<TimeSlot> timeSlotList, List<Employee> employeeList,
+            List<ShiftAssignment> shiftAssignmentList, List<EmployeeHistorySummary> employeeHistorySummaryList) {
+        if (employeeHistorySummaryList.size() != employeeList.size()) {
+            throw new IllegalArgumentException("The employeeHistorySummaryList size ("
+                    + employeeHistorySummaryList.size() + ") differs from the employeeList size ("
+                    + employeeList.size() + ").");
+        }
         this.rosterParametrization = rosterParametrization;
         this.skillList = skillList;
         this.spotList = spotList;
         this.timeSlotList = timeSlotList;
         this.employeeList = employeeList;
         this.shiftAssignmentList = shiftAssignmentList;
+        this.employeeHistorySummaryList = employeeHistorySummaryList;
         
         for (ShiftAssignment sa : this.shiftAssignmentList) {
         	sa.setRoster(this);
         }
 
+        updateExpectedHours();
+    }
+
+    /**
+     * Spreads the total days over the employees by time. Call it again when shifts or employees are added.
+     */
+    public void updateExpectedHours() {
         double expectedHoursForFullTime = getTotalDays() / getTotalEmployeeTime() * 100.0;
         for (Employee emp : this.employeeList) {
         	emp.setExpectedHours(expectedHoursForFullTime * emp.getTime() / 100.0);
         }
     }
 
+    /**
+     * Puts the copy at the place of the original in a new employeeList,
+     * for a {@link org.optaplanner.core.impl.solver.ProblemFactChange} that must not change the original.
+     * Planning clones share the problem fact lists, so the old list stays untouched too.
+     */
+    public void replaceEmployee(Employee original, Employee copy) {
+        int index = employeeList.indexOf(original);
+        if (index < 0) {
+            throw new IllegalArgumentException("The employee (" + original
+                    + ") does not exist in the employeeList.");
+        }
+        List<Employee> newEmployeeList = new ArrayList<>(employeeList);
+        newEmployeeList.set(index, copy);
+        employeeList = newEmployeeList;
+    }
+
     public RosterParametrization getRosterParametrization() {
         return rosterParametrization;
     }
@@ -96,12 +139,21 @@ public class Roster {
 		return sorted;
     }
 
+    public List<EmployeeHistorySummary> getEmployeeHistorySummaryList() {
+        return employeeHistorySummaryList;
+    }
+
+    public void setEmployeeHistorySummaryList(List<EmployeeHistorySummary> employeeHistorySummaryList) {
+        this.employeeHistorySummaryList = employeeHistorySummaryList;
+    }
+
     public List<ShiftAssignment> getShiftAssignmentList() {
         return shiftAssignmentList;
     }
     
     public double getTotalDays() {
-    	return shiftAssignmentList.stream().mapToDouble(s -> s.getSpot().getDays()).sum();
+    	return shiftAssignmentList.stream().mapToDouble(s -> s.getSpot().getDays()).sum()
+    			+ employeeHistorySummaryList.stream().mapToDouble(EmployeeHistorySummary::getDays).sum();
     }
 
     public double getTotalEmployeeTime() {
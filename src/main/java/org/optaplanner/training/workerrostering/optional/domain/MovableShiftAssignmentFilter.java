@@ -25,9 +25,10 @@ import org.optaplanner.training.workerrostering.domain.TimeSlotState;
 public class MovableShiftAssignmentFilter implements SelectionFilter<Roster, ShiftAssignment> {
 
     @Override
+    @SuppressWarnings("deprecation")
     public boolean accept(ScoreDirector<Roster> scoreDirector, ShiftAssignment shiftAssignment) {
-        return !shiftAssignment.isLockedByUser();
-         //       && shiftAssignment.getTimeSlot().getTimeSlotState() != TimeSlotState.HISTORY;
+        return !shiftAssignment.isLockedByUser()
+                && shiftAssignment.getTimeSlot().getTimeSlotState() != TimeSlotState.HISTORY;
     }
 
 }
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+
+/**
+ * The employee of every assigned shift, keyed by names and dates instead of object references,
+ * so it survives re-reading the input workbook after it changed.
+ * <p>
+ * Used to warm start a solve: {@link #applyTo(Roster)} seeds the shift assignments that are still valid
+ * and leaves the others unassigned for the construction heuristic.
+ */
+public class AssignmentSnapshot {
+
+	private static final String CALENDAR_SHEET_NAME = "Calendar";
+	private static final String TIME_SLOT_SHEET_NAME = "Timeslots";
+	private static final int TIME_SLOT_HEADER_ROWS = 2;
+	private static final int CALENDAR_HEADER_ROWS = 4;
+	private static final String HEADER_LINE = "Spot\tDate\tEmployee";
+
+	private final List<Entry> entryList;
+
+	private AssignmentSnapshot(List<Entry> entryList) {
+		this.entryList = entryList;
+	}
+
+	public List<Entry> getEntryList() {
+		return Collections.unmodifiableList(entryList);
+	}
+
+	/**
+	 * @param entryList never null
+	 */
+	static AssignmentSnapshot of(List<Entry> entryList) {
+		return new AssignmentSnapshot(entryList);
+	}
+
+	public static AssignmentSnapshot of(Roster roster) {
+		List<Entry> entryList = new ArrayList<>(roster.getShiftAssignmentList().size());
+		for (ShiftAssignment shiftAssignment : roster.getShiftAssignmentList()) {
+			Employee employee = shiftAssignment.getEmployee();
+			if (employee == null || shiftAssignment.getDays().isEmpty()) {
+				continue;
+			}
+			entryList.add(new Entry(shiftAssignment.getSpot().getName(),
+					shiftAssignment.getDays().iterator().next(), employee.getName()));
+		}
+		return new AssignmentSnapshot(entryList);
+	}
+
+	/**
+	 * Reads the "Calendar" sheet of a workbook written by {@link WorkerRosteringSolutionFileDaysIO},
+	 * which holds a spot name for every day an employee works, extra shifts included.
+	 * Its first day column is the first day of the "Timeslots" sheet, like the writer does.
+	 * @param solvedFile never null
+	 * @return never null
+	 */
+	public static AssignmentSnapshot readWorkbook(File solvedFile) {
+		try (InputStream in = new BufferedInputStream(new FileInputStream(solvedFile));
+				Workbook workbook = new XSSFWorkbook(in)) {
+			Sheet sheet = workbook.getSheet(CALENDAR_SHEET_NAME);
+			if (sheet == null) {
+				throw new IllegalStateException("The workbook does not contain a sheet with name ("
+						+ CALENDAR_SHEET_NAME + ").");
+			}
+			LocalDate startDate = readStartDate(workbook);
+			List<Entry> entryList = new ArrayList<>();
+			for (int i = CALENDAR_HEADER_ROWS; i <= sheet.getLastRowNum(); i++) {
+				Row row = sheet.getRow(i);
+				if (row == null || row.getCell(0) == null) {
+					continue;
+				}
+				// The first cell holds the employee info, which starts with the name
+				String employeeName = RosterImportSupport.trimEmployeeName(row.getCell(0).getStringCellValue());
+				for (int j = 0; j < row.getLastCellNum() - 1; j++) {
+					Cell cell = row.getCell(1 + j);
+					if (cell == null || cell.getCellType() != Cell.CELL_TYPE_STRING) {
+						continue;
+					}
+					String spotName = cell.getStringCellValue().trim();
+					if (spotName.isEmpty()) {
+						continue;
+					}
+					entryList.add(new Entry(spotName, startDate.plusDays(j), employeeName));
+				}
+			}
+			return new AssignmentSnapshot(entryList);
+		} catch (IOException | RuntimeException e) {
+			throw new IllegalStateException("Failed reading solvedFile (" + solvedFile
+					+ ") to create an assignment snapshot.", e);
+		}
+	}
+
+	/**
+	 * @return the earliest start day of the "Timeslots" sheet
+	 */
+	private static LocalDate readStartDate(Workbook workbook) {
+		Sheet sheet = workbook.getSheet(TIME_SLOT_SHEET_NAME);
+		if (sheet == null) {
+			throw new IllegalStateException("The workbook does not contain a sheet with name ("
+					+ TIME_SLOT_SHEET_NAME + ").");
+		}
+		LocalDate startDate = null;
+		for (int i = TIME_SLOT_HEADER_ROWS; i <= sheet.getLastRowNum(); i++) {
+			Row row = sheet.getRow(i);
+			if (row == null || row.getCell(0) == null) {
+				continue;
+			}
+			LocalDate date = LocalDateTime.parse(row.getCell(0).getStringCellValue(),
+					WorkerRosteringSolutionFileDaysIO.DATE_TIME_FORMATTER).toLocalDate();
+			if (startDate == null || date.isBefore(startDate)) {
+				startDate = date;
+			}
+		}
+		if (startDate == null) {
+			throw new IllegalStateException("The sheet (" + TIME_SLOT_SHEET_NAME + ") has no time slots.");
+		}
+		return startDate;
+	}
+
+	public static AssignmentSnapshot read(File snapshotFile) {
+		try (BufferedReader reader = Files.newBufferedReader(snapshotFile.toPath(), StandardCharsets.UTF_8)) {
+			String line = reader.readLine();
+			if (!HEADER_LINE.equals(line)) {
+				throw new IllegalStateException("The snapshotFile (" + snapshotFile
+						+ ") does not start with the header (" + HEADER_LINE + ").");
+			}
+			List<Entry> entryList = new ArrayList<>();
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) {
+					continue;
+				}
+				String[] tokens = line.split("\t");
+				if (tokens.length != 3) {
+					throw new IllegalStateException("The snapshotFile (" + snapshotFile + ") has a line (" + line
+							+ ") with " + tokens.length + " tokens instead of 3.");
+				}
+				entryList.add(new Entry(tokens[0], LocalDate.parse(tokens[1]), tokens[2]));
+			}
+			return new AssignmentSnapshot(entryList);
+		} catch (IOException | RuntimeException e) {
+			throw new IllegalStateException("Failed reading snapshotFile (" + snapshotFile + ").", e);
+		}
+	}
+
+	public void write(File snapshotFile) {
+		try (BufferedWriter writer = Files.newBufferedWriter(snapshotFile.toPath(), StandardCharsets.UTF_8)) {
+			writer.write(HEADER_LINE);
+			writer.newLine();
+			for (Entry entry : entryList) {
+				writer.write(entry.spotName + "\t" + entry.date + "\t" + entry.employeeName);
+				writer.newLine();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed writing snapshotFile (" + snapshotFile + ").", e);
+		}
+	}
+
+	/**
+	 * Reads a solved workbook (.xlsx) or a snapshot file written by {@link #write(File)}.
+	 */
+	public static AssignmentSnapshot readAny(File file) {
+		if (file.getName().endsWith(".xlsx")) {
+			return readWorkbook(file);
+		}
+		return read(file);
+	}
+
+	/**
+	 * Seeds the employee of every shift assignment that is in this snapshot, unless
+	 * it's locked by the user (the new input decides those),
+	 * the employee no longer exists,
+	 * or the employee became unavailable on one of its days.
+	 * Everything else stays unassigned, so the solver plans it from scratch.
+	 * <p>
+	 * Call it before solving, not on a working solution: it doesn't notify a score director.
+	 * @param roster never null, typically just read from the (changed) input workbook
+	 * @return the number of shift assignments that got an employee
+	 */
+	public int applyTo(Roster roster) {
+		Map<String, ShiftAssignment> shiftAssignmentMap = buildShiftAssignmentMap(roster);
+		Map<String, Employee> employeeMap = buildEmployeeMap(roster);
+		Map<ShiftAssignment, Employee> seededMap = new IdentityHashMap<>();
+		// Mirrors the "At most one shift assignment per day per employee" rule
+		Set<String> occupiedSet = new HashSet<>();
+		for (ShiftAssignment shiftAssignment : roster.getShiftAssignmentList()) {
+			if (shiftAssignment.getEmployee() != null) {
+				occupiedSet.add(buildOccupiedKey(shiftAssignment, shiftAssignment.getEmployee()));
+			}
+		}
+		for (Entry entry : entryList) {
+			ShiftAssignment shiftAssignment = shiftAssignmentMap.get(buildKey(entry.spotName, entry.date));
+			Employee employee = employeeMap.get(entry.employeeName);
+			if (shiftAssignment == null || employee == null
+					|| shiftAssignment.isLockedByUser() || seededMap.containsKey(shiftAssignment)
+					|| shiftAssignment.getEmployee() != null
+					|| employee.getShiftVacationOverlap(shiftAssignment) > 0
+					|| !occupiedSet.add(buildOccupiedKey(shiftAssignment, employee))) {
+				continue;
+			}
+			seededMap.put(shiftAssignment, employee);
+		}
+		for (Map.Entry<ShiftAssignment, Employee> seeded : seededMap.entrySet()) {
+			seeded.getKey().setEmployee(seeded.getValue());
+		}
+		return seededMap.size();
+	}
+
+	/**
+	 * Like {@link #applyTo(Roster)}, but for the same problem that this snapshot was solved from,
+	 * so it seeds every entry, even one that breaks a hard constraint.
+	 * An entry of a shift assignment that is locked by the user matches if that shift assignment
+	 * already has the employee of the entry.
+	 * @param roster never null, not changed if this returns false
+	 * @return true if every entry matches a shift assignment and an employee of the roster
+	 */
+	public boolean applyExactlyTo(Roster roster) {
+		Map<String, ShiftAssignment> shiftAssignmentMap = buildShiftAssignmentMap(roster);
+		Map<String, Employee> employeeMap = buildEmployeeMap(roster);
+		Map<ShiftAssignment, Employee> seededMap = new IdentityHashMap<>();
+		for (Entry entry : entryList) {
+			ShiftAssignment shiftAssignment = shiftAssignmentMap.get(buildKey(entry.spotName, entry.date));
+			Employee employee = employeeMap.get(entry.employeeName);
+			if (shiftAssignment == null || employee == null) {
+				return false;
+			}
+			if (shiftAssignment.isLockedByUser() || shiftAssignment.getEmployee() != null) {
+				if (shiftAssignment.getEmployee() != employee) {
+					return false;
+				}
+			} else if (seededMap.put(shiftAssignment, employee) != null) {
+				return false;
+			}
+		}
+		for (Map.Entry<ShiftAssignment, Employee> seeded : seededMap.entrySet()) {
+			seeded.getKey().setEmployee(seeded.getValue());
+		}
+		return true;
+	}
+
+	/**
+	 * Every day of a shift is a key, but the first day of a shift wins over the last day of the previous one
+	 * (a spot with more than 7 days), because {@link #of(Roster)} keys an entry by its first day.
+	 */
+	private static Map<String, ShiftAssignment> buildShiftAssignmentMap(Roster roster) {
+		Map<String, ShiftAssignment> shiftAssignmentMap = new HashMap<>(roster.getShiftAssignmentList().size() * 8);
+		for (ShiftAssignment shiftAssignment : roster.getShiftAssignmentList()) {
+			for (LocalDate date : shiftAssignment.getDays()) {
+				shiftAssignmentMap.putIfAbsent(buildKey(shiftAssignment.getSpot().getName(), date), shiftAssignment);
+			}
+		}
+		for (ShiftAssignment shiftAssignment : roster.getShiftAssignmentList()) {
+			if (!shiftAssignment.getDays().isEmpty()) {
+				shiftAssignmentMap.put(buildKey(shiftAssignment.getSpot().getName(),
+						shiftAssignment.getDays().iterator().next()), shiftAssignment);
+			}
+		}
+		return shiftAssignmentMap;
+	}
+
+	private static Map<String, Employee> buildEmployeeMap(Roster roster) {
+		Map<String, Employee> employeeMap = new HashMap<>();
+		for (Employee employee : roster.getEmployeeList()) {
+			employeeMap.put(employee.getName(), employee);
+		}
+		return employeeMap;
+	}
+
+	private static String buildKey(String spotName, LocalDate date) {
+		return spotName + "@" + date;
+	}
+
+	@SuppressWarnings("deprecation")
+	private static String buildOccupiedKey(ShiftAssignment shiftAssignment, Employee employee) {
+		return employee.getName() + "@" + shiftAssignment.getTimeSlot().getStartDateTime().toLocalDate();
+	}
+
+	public static class Entry {
+
+		private final String spotName;
+		private final LocalDate date;
+		private final String employeeName;
+
+		public Entry(String spotName, LocalDate date, String employeeName) {
+			this.spotName = spotName;
+			this.date = date;
+			this.employeeName = employeeName;
+		}
+
+		public String getSpotName() {
+			return spotName;
+		}
+
+		/**
+		 * @return any day of the shift
+		 */
+		public LocalDate getDate() {
+			return date;
+		}
+
+		public String getEmployeeName() {
+			return employeeName;
+		}
+
+	}
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.persistence;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.optaplanner.training.workerrostering.domain.TimeSlot;
+
+/**
+ * The time slots of the planning horizon indexed by epoch day, so the readers can go from a date to its time slot
+ * and from a time slot to its neighbours without scanning the time slot list.
+ * Build it once per time slot list, it doesn't notice changes to that list.
+ */
+final class HorizonCalendar {
+
+	private final List<TimeSlot> timeSlotList;
+	private final Map<TimeSlot, Integer> slotIndexMap;
+
+	private final long firstEpochDay;
+	// Per day: the index of the first slot that contains it, including the day its end falls on, otherwise -1
+	private final int[] slotIndexByDay;
+	// Per day: the slots that contain it, excluding the day their end falls on
+	private final List<List<TimeSlot>> coveringSlotsByDay;
+	private final List<List<TimeSlot>> startingSlotsByDay;
+	// The last day of a slot is the day before the day its end falls on
+	private final List<List<TimeSlot>> endingSlotsByDay;
+
+	HorizonCalendar(List<TimeSlot> timeSlotList) {
+		this.timeSlotList = timeSlotList;
+		slotIndexMap = new IdentityHashMap<>(timeSlotList.size());
+		long minEpochDay = Long.MAX_VALUE;
+		long maxEpochDay = Long.MIN_VALUE;
+		for (int i = 0; i < timeSlotList.size(); i++) {
+			TimeSlot slot = timeSlotList.get(i);
+			// The first one wins, like the scan in getNextTimeSlot() did
+			slotIndexMap.putIfAbsent(slot, i);
+			minEpochDay = Math.min(minEpochDay, slot.getStartDateTime().toLocalDate().toEpochDay());
+			maxEpochDay = Math.max(maxEpochDay, slot.getEndDateTime().toLocalDate().toEpochDay());
+		}
+		int dayCount = timeSlotList.isEmpty() ? 0 : (int) (maxEpochDay - minEpochDay + 1);
+		firstEpochDay = minEpochDay;
+		slotIndexByDay = new int[dayCount];
+		Arrays.fill(slotIndexByDay, -1);
+		coveringSlotsByDay = new ArrayList<>(Collections.nCopies(dayCount, null));
+		startingSlotsByDay = new ArrayList<>(Collections.nCopies(dayCount, null));
+		endingSlotsByDay = new ArrayList<>(Collections.nCopies(dayCount, null));
+		for (int i = 0; i < timeSlotList.size(); i++) {
+			TimeSlot slot = timeSlotList.get(i);
+			int startDay = toDayIndex(slot.getStartDateTime().toLocalDate());
+			int endDay = toDayIndex(slot.getEndDateTime().toLocalDate());
+			for (int day = startDay; day <= endDay; day++) {
+				if (slotIndexByDay[day] < 0) {
+					slotIndexByDay[day] = i;
+				}
+				if (day < endDay) {
+					add(coveringSlotsByDay, day, slot);
+				}
+			}
+			add(startingSlotsByDay, startDay, slot);
+			if (endDay - 1 >= 0) {
+				add(endingSlotsByDay, endDay - 1, slot);
+			}
+		}
+	}
+
+	private static void add(List<List<TimeSlot>> slotsByDay, int day, TimeSlot slot) {
+		List<TimeSlot> slotList = slotsByDay.get(day);
+		if (slotList == null) {
+			slotList = new ArrayList<>(1);
+			slotsByDay.set(day, slotList);
+		}
+		slotList.add(slot);
+	}
+
+	/**
+	 * @return -1 if the date is outside the horizon
+	 */
+	private int toDayIndex(LocalDate date) {
+		long day = date.toEpochDay() - firstEpochDay;
+		return day < 0L || day >= slotIndexByDay.length ? -1 : (int) day;
+	}
+
+	private List<TimeSlot> getSlots(List<List<TimeSlot>> slotsByDay, LocalDate date) {
+		int day = toDayIndex(date);
+		List<TimeSlot> slotList = day < 0 ? null : slotsByDay.get(day);
+		return slotList == null ? Collections.emptyList() : slotList;
+	}
+
+	/**
+	 * The day the end of a time slot falls on counts as part of that time slot too,
+	 * so a date on the boundary of 2 consecutive time slots gets the earlier one.
+	 * @param date never null
+	 * @return never null
+	 * @throws IllegalStateException if no time slot contains the date
+	 */
+	TimeSlot getTimeSlotForDate(LocalDate date) {
+		int day = toDayIndex(date);
+		if (day < 0 || slotIndexByDay[day] < 0) {
+			throw new IllegalStateException("Date " + date.toString() + " not matched to timeslot");
+		}
+		return timeSlotList.get(slotIndexByDay[day]);
+	}
+
+	/**
+	 * @return never null, the time slots that contain the date, excluding the day their end falls on
+	 */
+	List<TimeSlot> getCoveringTimeSlots(LocalDate date) {
+		return getSlots(coveringSlotsByDay, date);
+	}
+
+	/**
+	 * @return never null
+	 */
+	List<TimeSlot> getTimeSlotsStartingOn(LocalDate date) {
+		return getSlots(startingSlotsByDay, date);
+	}
+
+	/**
+	 * @return never null, the time slots that end the day after the date
+	 */
+	List<TimeSlot> getTimeSlotsEndingOn(LocalDate date) {
+		return getSlots(endingSlotsByDay, date);
+	}
+
+	/**
+	 * @param slots never null, only time slots of this calendar
+	 * @return never null, in time slot list order
+	 */
+	List<TimeSlot> sortTimeSlots(BitSet slots) {
+		List<TimeSlot> sortedSlotList = new ArrayList<>(slots.cardinality());
+		for (int i = slots.nextSetBit(0); i >= 0; i = slots.nextSetBit(i + 1)) {
+			sortedSlotList.add(timeSlotList.get(i));
+		}
+		return sortedSlotList;
+	}
+
+	/**
+	 * @return -1 if the time slot isn't in this calendar
+	 */
+	int indexOf(TimeSlot slot) {
+		Integer index = slotIndexMap.get(slot);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return null if it's the last time slot or not in this calendar
+	 */
+	TimeSlot getNextTimeSlot(TimeSlot slot) {
+		int index = indexOf(slot);
+		return index < 0 || index + 1 >= timeSlotList.size() ? null : timeSlotList.get(index + 1);
+	}
+
+	/**
+	 * @return null if it's the first time slot or not in this calendar
+	 */
+	TimeSlot getPreviousTimeSlot(TimeSlot slot) {
+		int index = indexOf(slot);
+		return index <= 0 ? null : timeSlotList.get(index - 1);
+	}
+
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.persistence;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.Skill;
+import org.optaplanner.training.workerrostering.domain.Spot;
+import org.optaplanner.training.workerrostering.domain.TimeSlot;
+import org.optaplanner.training.workerrostering.domain.TimeSlotState;
+
+/**
+ * What the workbook reader of {@link WorkerRosteringSolutionFileDaysIO} and {@link StreamingRosterReader}
+ * have in common: they only differ in how they get the cell values and styles out of the workbook.
+ */
+public final class RosterImportSupport {
+
+	// The name of an extra spot is this prefix and the name of the spot of the "Extra Shifts" row
+	static final String EXTRA_SPOT_PREFIX = "EX_";
+
+	/**
+	 * @param style never null
+	 * @param color never null
+	 * @param argbHexes the ARGB colors that count as that color too, as Excel and LibreOffice save them
+	 */
+	static boolean hasFill(CellStyle style, IndexedColors color, String... argbHexes) {
+		boolean isIndexedMatch = style.getFillForegroundColor() == color.getIndex()
+				&& style.getFillPattern() == CellStyle.SOLID_FOREGROUND;
+		if (isIndexedMatch) {
+			return true;
+		}
+		if (style.getFillBackgroundColor() == 0 || style.getFillBackgroundColor() == 64) {
+			XSSFColor col = (XSSFColor) style.getFillForegroundColorColor();
+			if (col != null) {
+				String argbHex = col.getARGBHex();
+				for (String candidate : argbHexes) {
+					if (Objects.equals(argbHex, candidate)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param startDate never null, the first day of the planning period
+	 * @param endDate never null, exclusive
+	 * @return never null, weekly time slots over the planning period
+	 */
+	static List<TimeSlot> generateTimeSlotList(LocalDate startDate, LocalDate endDate) {
+		List<TimeSlot> slots = new ArrayList<TimeSlot>();
+		LocalDateTime slotStartDateTime = startDate.atStartOfDay();
+		while (slotStartDateTime.toLocalDate().isBefore(endDate)) {
+			LocalDateTime slotEndDateTime = slotStartDateTime.plusWeeks(1);
+			TimeSlot slot = new TimeSlot(slotStartDateTime, slotEndDateTime);
+			slot.setTimeSlotState(TimeSlotState.DRAFT);
+			slots.add(slot);
+			slotStartDateTime = slotEndDateTime;
+		}
+		return slots;
+	}
+
+	static List<ShiftAssignment> generateShiftAssignmentYear(List<TimeSlot> timeSlotList, List<Spot> spotList) {
+		List<ShiftAssignment> shiftAssignments = new ArrayList<ShiftAssignment>();
+		for (TimeSlot slot : timeSlotList) {
+			for (Spot spot : spotList) {
+				ShiftAssignment sa = new ShiftAssignment(spot, slot);
+				shiftAssignments.add(sa);
+			}
+		}
+		return shiftAssignments;
+	}
+
+	static Spot createSpot(String name, String requiredSkillName, String unsuitableSkillName, double days,
+			double scoreBeforeVacation, double scoreAfterVacation, double offset, Map<String, Skill> skillMap,
+			List<Skill> skillList) {
+		Skill requiredSkill = skillMap.get(requiredSkillName);
+		if (requiredSkill == null) {
+			throw new IllegalStateException("The requiredSkillName (" + requiredSkillName
+					+ ") does not exist in the skillList (" + skillList + ").");
+		}
+		Skill unsuitableSkill = unsuitableSkillName == null ? null : skillMap.get(unsuitableSkillName);
+		return new Spot(name, requiredSkill, unsuitableSkill, (int) days,
+				(int) scoreBeforeVacation, (int) scoreAfterVacation, (int) offset);
+	}
+
+	/**
+	 * @param unskillNames null or empty if none
+	 */
+	static Employee createEmployee(String name, String sdSkillNames, String fdSkillNames, String nightShift,
+			String unskillNames, double time, double vipFactor, Map<String, Skill> skillMap, List<Skill> skillList) {
+		Set<Skill> skillSet = Arrays.stream(sdSkillNames.split(","))
+				.map((skillName) -> {
+					skillName = skillName.trim();
+					if (skillName.equals("NONE")) {
+						return null;
+					}
+					Skill skill = skillMap.get(skillName + "_SD");
+					if (skill == null) {
+						throw new IllegalStateException("The skillName (" + skillName
+								+ ") does not exist in the skillList (" + skillList + ").");
+					}
+					return skill;
+				}).filter(s -> s != null).collect(Collectors.toSet());
+		Set<Skill> fdSkillSet = Arrays.stream(fdSkillNames.split(","))
+				.map((skillName) -> {
+					skillName = skillName.trim();
+					if (skillName.equals("NONE")) {
+						return null;
+					}
+					Skill skill = skillMap.get(skillName + "_FD");
+					if (skill == null) {
+						throw new IllegalStateException("The skillName (" + skillName
+								+ ") does not exist in the skillList (" + skillList + ").");
+					}
+					return skill;
+				}).filter(s -> s != null).collect(Collectors.toSet());
+		skillSet.addAll(fdSkillSet);
+		if (skillSet.isEmpty()) {
+			throw new IllegalStateException("Employee " + name + " has no skills");
+		}
+		if (!"n".equals(nightShift)) {
+			Skill nightSkill = skillMap.get("Night");
+			if (nightSkill == null) {
+				throw new IllegalStateException("Night Skill required");
+			}
+			skillSet.add(nightSkill);
+		}
+		if (unskillNames != null && unskillNames.length() > 0) {
+			Set<Skill> unSkillSet = Arrays.stream(unskillNames.split(","))
+					.map((skillName) -> {
+						Skill skill = skillMap.get(skillName);
+						if (skill == null) {
+							throw new IllegalStateException("The skillName (" + skillName
+									+ ") does not exist in the skillList (" + skillList + ").");
+						}
+						return skill;
+					}).collect(Collectors.toSet());
+			skillSet.addAll(unSkillSet);
+		}
+		return new Employee(name, skillSet, time, vipFactor);
+	}
+
+	/**
+	 * A row of the "Extra Shifts" sheet (holidays...): 1 extra shift assignment per spot.
+	 */
+	static List<ShiftAssignment> createExtraShiftAssignments(LocalDate extraLocalDate, String spotNames, int days,
+			HorizonCalendar horizonCalendar, Map<String, Spot> spotMap) {
+		TimeSlot slot = horizonCalendar.getTimeSlotForDate(extraLocalDate);
+		int offset = extraLocalDate.getDayOfYear() - slot.getStartDateTime().getDayOfYear();
+		Set<Spot> spots = Arrays.stream(spotNames.split(","))
+				.map((spotName) -> {
+					spotName = spotName.trim();
+					Spot spot = spotMap.get(spotName);
+					if (spot == null) {
+						throw new IllegalStateException("The spot (" + spotName
+								+ ") does not exist in the spotList");
+					}
+					return spot;
+				}).filter(s -> s != null).collect(Collectors.toSet());
+		List<ShiftAssignment> sas = new ArrayList<ShiftAssignment>();
+		for (Spot spot : spots) {
+			Spot extraSpot = new Spot(EXTRA_SPOT_PREFIX + spot.getName(), spot.getRequiredSkill(), spot.getUnsuitableSkill(),
+					days, -50000, -50000, offset);
+			extraSpot.setIsExtraSpot(true);
+			sas.add(new ShiftAssignment(extraSpot, slot));
+		}
+		return sas;
+	}
+
+	/**
+	 * @param extraSpot never null, {@link Spot#getIsExtraSpot()} is true
+	 * @return never null, the spot name of its "Extra Shifts" row
+	 */
+	static String getBaseSpotName(Spot extraSpot) {
+		return extraSpot.getName().substring(EXTRA_SPOT_PREFIX.length());
+	}
+
+	/**
+	 * The reverse of {@link #createEmployee}: splits the skill set in SD, FD, night and unskills.
+	 * @param employee never null
+	 * @return never null, the sdSkillNames, fdSkillNames, nightShift and unskillNames of createEmployee
+	 */
+	static String[] splitSkillNames(Employee employee) {
+		List<String> sdSkillNameList = new ArrayList<>();
+		List<String> fdSkillNameList = new ArrayList<>();
+		List<String> unskillNameList = new ArrayList<>();
+		boolean nightShift = false;
+		for (Skill skill : employee.getSkillSet()) {
+			String name = skill.getName();
+			if (name.endsWith("_SD")) {
+				sdSkillNameList.add(name.substring(0, name.length() - "_SD".length()));
+			} else if (name.endsWith("_FD")) {
+				fdSkillNameList.add(name.substring(0, name.length() - "_FD".length()));
+			} else if (name.equals("Night")) {
+				nightShift = true;
+			} else {
+				unskillNameList.add(name);
+			}
+		}
+		return new String[] {
+				sdSkillNameList.isEmpty() ? "NONE" : String.join(",", sdSkillNameList),
+				fdSkillNameList.isEmpty() ? "NONE" : String.join(",", fdSkillNameList),
+				nightShift ? "y" : "n",
+				String.join(",", unskillNameList) };
+	}
+
+	/**
+	 * The reverse of {@link #createExtraShiftAssignments}:
+	 * the day of the time slot (end day included) with the offset of the extra spot.
+	 */
+	@SuppressWarnings("deprecation")
+	static LocalDate findExtraShiftDate(ShiftAssignment shiftAssignment) {
+		TimeSlot timeSlot = shiftAssignment.getTimeSlot();
+		LocalDate end = timeSlot.getEndDateTime().toLocalDate();
+		int startDayOfYear = timeSlot.getStartDateTime().getDayOfYear();
+		for (LocalDate date = timeSlot.getStartDateTime().toLocalDate(); !date.isAfter(end);
+				date = date.plusDays(1)) {
+			if (date.getDayOfYear() - startDayOfYear == shiftAssignment.getSpot().getOffset()) {
+				return date;
+			}
+		}
+		throw new IllegalStateException("The extra shift assignment (" + shiftAssignment + ") has an offset ("
+				+ shiftAssignment.getSpot().getOffset() + ") outside of its timeSlot (" + timeSlot + ").");
+	}
+
+	/**
+	 * An unavailable cell of the "Vacation Calendar" sheet: the day after is undesirable.
+	 */
+	static void markUnavailable(Employee employee, LocalDate date) {
+		employee.getUndesirableDateSet().remove(date);
+		employee.getUnavailableDateSet().add(date);
+		employee.getUndesirableDateSet().add(date.plusDays(1));
+	}
+
+	/**
+	 * A locked cell of the "Vacation Calendar" sheet: its value is the spot name.
+	 */
+	static void lockShiftAssignment(Employee employee, LocalDate date, String spotName,
+			ShiftAssignmentPinIndex pinIndex) {
+		Spot setSpot = pinIndex.findSpot(spotName);
+		if (setSpot == null) {
+			throw new IllegalStateException("Employee " + employee.getName() + " fixed to non exisiting spot "
+					+ spotName);
+		}
+		System.out.println("Employee " + employee.getName() + " fixed to spot " + setSpot.getName()
+				+ " on " + date.toString());
+		ShiftAssignment fixedSA = pinIndex.findShiftAssignment(setSpot, date);
+		if (fixedSA == null) {
+			throw new IllegalStateException("Employee " + employee.getName()
+					+ " fixed to existing spot " + spotName + " but not found in ShiftAssignment List");
+		}
+		fixedSA.setEmployee(employee);
+		fixedSA.setLockedByUser(true);
+	}
+
+	/**
+	 * @param firstDayColumn the column of startDate
+	 * @param startDate never null, the first day of the planning period
+	 * @param endDate never null, exclusive
+	 * @return never null, indexed by column number, null before firstDayColumn, ends at endDate (exclusive)
+	 */
+	static LocalDate[] createColumnDates(int firstDayColumn, LocalDate startDate, LocalDate endDate) {
+		int dayCount = (int) ChronoUnit.DAYS.between(startDate, endDate);
+		LocalDate[] columnDates = new LocalDate[firstDayColumn + Math.max(dayCount, 0)];
+		for (int i = 0; i < dayCount; i++) {
+			columnDates[firstDayColumn + i] = startDate.plusDays(i);
+		}
+		return columnDates;
+	}
+
+	/**
+	 * An unavailable cell of the "Vacation Calendar" sheet added after reading,
+	 * with the same undesirable dates and vacation time slots as if the reader had seen it.
+	 * @param timeSlotList never null, the time slots of the roster of the employee
+	 */
+	public static void addUnavailableDate(List<TimeSlot> timeSlotList, Employee employee, LocalDate date) {
+		markUnavailable(employee, date);
+		HorizonCalendar horizonCalendar = new HorizonCalendar(timeSlotList);
+		List<Employee> employeeList = Collections.singletonList(employee);
+		calculateVacationTimeSlotsFromDates(horizonCalendar, employeeList);
+		calculateBeforeAfterVacationTimeSlots(horizonCalendar, employeeList);
+	}
+
+	static void calculateBeforeAfterVacationTimeSlots(HorizonCalendar horizonCalendar, List<Employee> employeeList) {
+		// if vacation includes Monday, previous timeslot (S-F) is before vacation
+		for (Employee employee : employeeList) {
+			Set<LocalDate> vacationDays = employee.getUnavailableDateSet();
+			Set<LocalDate> undesirableDays = employee.getUndesirableDateSet();
+			Set<TimeSlot> beforeVacationSlots = employee.getBeforeVacationTimeSlotSet();
+			Set<TimeSlot> afterVacationSlots = employee.getAfterVacationTimeSlotSet();
+
+			for (LocalDate vacationDay : vacationDays) {
+				if (vacationDay.getDayOfWeek() != DayOfWeek.MONDAY) continue;
+				// get previous timeslot (ending previous friday)
+				LocalDate previousFriday = vacationDay.plusDays(-3);
+
+				assert(previousFriday.getDayOfWeek() == DayOfWeek.FRIDAY);
+
+				if (vacationDays.contains(previousFriday)) continue;
+
+				beforeVacationSlots.addAll(horizonCalendar.getTimeSlotsEndingOn(previousFriday));
+
+				// set weekend before as undesirable
+				undesirableDays.add(previousFriday.plusDays(1));
+				undesirableDays.add(previousFriday.plusDays(2));
+			}
+
+			for (LocalDate vacationDay : vacationDays) {
+				if (vacationDay.getDayOfWeek() != DayOfWeek.FRIDAY) continue;
+				// get next timeslot (starting next saturday)
+				LocalDate nextSaturday = vacationDay.plusDays(1);
+
+				assert(nextSaturday.getDayOfWeek() == DayOfWeek.SATURDAY);
+
+				if (vacationDays.contains(nextSaturday)) continue;
+
+				afterVacationSlots.addAll(horizonCalendar.getTimeSlotsStartingOn(nextSaturday));
+
+				// set weekend after as undesirable
+				undesirableDays.add(nextSaturday);
+				undesirableDays.add(nextSaturday.plusDays(1));
+			}
+		}
+	}
+
+	static void calculateVacationTimeSlotsFromDates(HorizonCalendar horizonCalendar, List<Employee> employeeList) {
+		// to reuse some of the week based calculations, calculate week based vacation timeslots from
+		// dates
+
+		// vacation day in saturday to friday period => set timeslot as vacation
+		for (Employee employee : employeeList) {
+			BitSet vacationSlotIndexes = new BitSet();
+			for (LocalDate vacationDay : employee.getUnavailableDateSet()) {
+				for (TimeSlot slot : horizonCalendar.getCoveringTimeSlots(vacationDay)) {
+					vacationSlotIndexes.set(horizonCalendar.indexOf(slot));
+				}
+			}
+			// In time slot order, like before
+			employee.getUnavailableTimeSlotSet().addAll(horizonCalendar.sortTimeSlots(vacationSlotIndexes));
+		}
+	}
+
+	static String trimEmployeeName(String employeeName) {
+		return employeeName.split(" ")[0];
+	}
+
+	private RosterImportSupport() {
+	}
+
+}
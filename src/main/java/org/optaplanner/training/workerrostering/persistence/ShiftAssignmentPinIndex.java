@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.persistence;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.Spot;
+
+/**
+ * Finds the shift assignment to pin for a locked calendar cell with 2 hash lookups,
+ * instead of scanning the spot list and the shift assignment list for every cell.
+ * Build it after all shift assignments, including the extra shifts, are created.
+ * <p>
+ * A spot with more than 7 days has overlapping shifts: the first day of a shift is also the last day
+ * of the previous one. A pin record that names the first day of a shift finds it exactly,
+ * see {@link #findShiftAssignmentStartingOn(String, LocalDate)}.
+ */
+final class ShiftAssignmentPinIndex {
+
+	private final Map<String, Spot> spotMap;
+	private final Map<Spot, Map<Long, ShiftAssignment>> spotDayMap;
+	// By spot name and first day, extra shifts included: those are unique, unlike the days
+	private final Map<String, ShiftAssignment> startDayMap;
+
+	ShiftAssignmentPinIndex(List<Spot> spotList, List<ShiftAssignment> shiftAssignmentList) {
+		spotMap = new HashMap<>(spotList.size());
+		for (Spot spot : spotList) {
+			spotMap.putIfAbsent(spot.getName(), spot);
+		}
+		spotDayMap = new HashMap<>(spotList.size());
+		startDayMap = new HashMap<>(shiftAssignmentList.size());
+		for (ShiftAssignment shiftAssignment : shiftAssignmentList) {
+			if (!shiftAssignment.getDays().isEmpty()) {
+				startDayMap.put(buildStartDayKey(shiftAssignment.getSpot().getName(),
+						shiftAssignment.getDays().iterator().next()), shiftAssignment);
+			}
+			// Matched by name, like before: extra shifts have an "EX_" spot name, so they are never pinned
+			Spot spot = spotMap.get(shiftAssignment.getSpot().getName());
+			if (spot == null) {
+				continue;
+			}
+			Map<Long, ShiftAssignment> dayMap = spotDayMap.computeIfAbsent(spot, key -> new HashMap<>());
+			for (LocalDate day : shiftAssignment.getDays()) {
+				// The first one in list order wins
+				dayMap.putIfAbsent(day.toEpochDay(), shiftAssignment);
+			}
+		}
+	}
+
+	/**
+	 * @return null if there is no spot with that name
+	 */
+	Spot findSpot(String spotName) {
+		return spotMap.get(spotName);
+	}
+
+	/**
+	 * @return null if no shift assignment of that spot covers that date
+	 */
+	ShiftAssignment findShiftAssignment(Spot spot, LocalDate date) {
+		Map<Long, ShiftAssignment> dayMap = spotDayMap.get(spot);
+		return dayMap == null ? null : dayMap.get(date.toEpochDay());
+	}
+
+	/**
+	 * @param spotName never null, also the {@code EX_} name of an extra shift
+	 * @return null if no shift assignment of that spot starts on that date
+	 */
+	ShiftAssignment findShiftAssignmentStartingOn(String spotName, LocalDate startDate) {
+		return startDayMap.get(buildStartDayKey(spotName, startDate));
+	}
+
+	private static String buildStartDayKey(String spotName, LocalDate startDate) {
+		return spotName + "@" + startDate;
+	}
+
+}
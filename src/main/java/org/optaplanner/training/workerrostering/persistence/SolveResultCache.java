@@ -0,0 +1,269 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.EmployeeHistorySummary;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.Skill;
+import org.optaplanner.training.workerrostering.domain.Spot;
+import org.optaplanner.training.workerrostering.domain.TimeSlot;
+import org.optaplanner.training.workerrostering.solver.KieContainerCache;
+import org.optaplanner.training.workerrostering.solver.SolverFactoryHolder;
+
+/**
+ * Solved assignments on disk, as {@link AssignmentSnapshot}s in {@code <cacheDir>/<problemHash>/<configHash>.tsv},
+ * so re-running the same workbook doesn't solve it again.
+ * <p>
+ * The problem hash only depends on the content of the roster, not on the workbook bytes or the list order,
+ * so re-exporting a workbook still hits. If only the config changed, {@link #findAny(String)} still returns
+ * a solution of the same problem to warm start from.
+ * <p>
+ * A {@link #get(String, String) hit} touches the file, so {@link #put(String, String, Roster)} evicts
+ * the least recently used entries until the cache is below its maximum size.
+ */
+public class SolveResultCache {
+
+	private static final String SNAPSHOT_SUFFIX = ".tsv";
+
+	private final File cacheDir;
+	private final long maxBytes;
+
+	/**
+	 * @param cacheDir never null, created if it doesn't exist
+	 * @param maxBytes {@code > 0}
+	 */
+	public SolveResultCache(File cacheDir, long maxBytes) {
+		if (maxBytes <= 0L) {
+			throw new IllegalArgumentException("The maxBytes (" + maxBytes + ") must be positive.");
+		}
+		this.cacheDir = cacheDir;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return null on a cache miss
+	 */
+	public AssignmentSnapshot get(String problemHash, String configHash) {
+		File snapshotFile = new File(new File(cacheDir, problemHash), configHash + SNAPSHOT_SUFFIX);
+		if (!snapshotFile.exists()) {
+			return null;
+		}
+		try {
+			AssignmentSnapshot snapshot = AssignmentSnapshot.read(snapshotFile);
+			snapshotFile.setLastModified(System.currentTimeMillis());
+			return snapshot;
+		} catch (RuntimeException e) {
+			// Evicted by another process in the meantime
+			return null;
+		}
+	}
+
+	/**
+	 * @return null if no config solved this problem yet, otherwise the most recently used solution
+	 */
+	public AssignmentSnapshot findAny(String problemHash) {
+		File[] snapshotFiles = new File(cacheDir, problemHash).listFiles(
+				(dir, name) -> name.endsWith(SNAPSHOT_SUFFIX));
+		if (snapshotFiles == null || snapshotFiles.length == 0) {
+			return null;
+		}
+		File newestFile = snapshotFiles[0];
+		for (File snapshotFile : snapshotFiles) {
+			if (snapshotFile.lastModified() > newestFile.lastModified()) {
+				newestFile = snapshotFile;
+			}
+		}
+		String name = newestFile.getName();
+		return get(problemHash, name.substring(0, name.length() - SNAPSHOT_SUFFIX.length()));
+	}
+
+	public void put(String problemHash, String configHash, Roster solvedRoster) {
+		File problemDir = new File(cacheDir, problemHash);
+		File snapshotFile = new File(problemDir, configHash + SNAPSHOT_SUFFIX);
+		try {
+			Files.createDirectories(problemDir.toPath());
+			// Write and rename, so a concurrent reader never reads half a snapshot
+			Path tempFile = Files.createTempFile(problemDir.toPath(), configHash, ".tmp");
+			AssignmentSnapshot.of(solvedRoster).write(tempFile.toFile());
+			Files.move(tempFile, snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | RuntimeException e) {
+			// The result is still fine, only the next run solves it again
+			System.out.println("Could not write the snapshotFile (" + snapshotFile + "): " + e.getMessage());
+			return;
+		}
+		evict();
+	}
+
+	private void evict() {
+		List<File> snapshotFileList = new ArrayList<>();
+		File[] problemDirs = cacheDir.listFiles(File::isDirectory);
+		if (problemDirs == null) {
+			return;
+		}
+		for (File problemDir : problemDirs) {
+			File[] snapshotFiles = problemDir.listFiles((dir, name) -> name.endsWith(SNAPSHOT_SUFFIX));
+			if (snapshotFiles != null) {
+				for (File snapshotFile : snapshotFiles) {
+					snapshotFileList.add(snapshotFile);
+				}
+			}
+		}
+		long totalBytes = snapshotFileList.stream().mapToLong(File::length).sum();
+		snapshotFileList.sort(Comparator.comparingLong(File::lastModified));
+		for (File snapshotFile : snapshotFileList) {
+			if (totalBytes <= maxBytes) {
+				break;
+			}
+			long length = snapshotFile.length();
+			if (snapshotFile.delete()) {
+				totalBytes -= length;
+				File problemDir = snapshotFile.getParentFile();
+				String[] remaining = problemDir.list();
+				if (remaining != null && remaining.length == 0) {
+					problemDir.delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param roster never null, before solving
+	 * @return never null, the same for 2 rosters with the same problem facts and pinned or seeded employees,
+	 * regardless of list order
+	 */
+	public static String hashProblem(Roster roster) {
+		List<String> lineList = new ArrayList<>();
+		lineList.add("skills " + sortedNames(roster.getSkillList().stream().map(Skill::getName)));
+		for (ShiftAssignment shiftAssignment : roster.getShiftAssignmentList()) {
+			Spot spot = shiftAssignment.getSpot();
+			TimeSlot timeSlot = shiftAssignment.getTimeSlot();
+			Employee employee = shiftAssignment.getEmployee();
+			lineList.add("shift " + spot.getName() + " " + nameOf(spot.getRequiredSkill())
+					+ " " + nameOf(spot.getUnsuitableSkill()) + " " + spot.getDays() + " " + spot.getOffset()
+					+ " " + spot.getIsExtraSpot() + " " + spot.getScoreBeforeVacation()
+					+ " " + spot.getScoreAfterVacation()
+					+ " " + timeSlot.getStartDateTime() + " " + timeSlot.getEndDateTime()
+					+ " " + timeSlot.getTimeSlotState()
+					+ " " + shiftAssignment.isLockedByUser() + " " + (employee == null ? "-" : employee.getName()));
+		}
+		for (Employee employee : roster.getEmployeeList()) {
+			lineList.add("employee " + employee.getName() + " " + employee.getTime() + " " + employee.getVIPFactor()
+					+ " " + employee.getCanDoND() + " " + employee.getCanDoFD()
+					+ " " + sortedNames(employee.getSkillSet().stream().map(Skill::getName))
+					+ " " + sortedNames(employee.getUnavailableDateSet().stream().map(String::valueOf))
+					+ " " + sortedNames(employee.getUndesirableDateSet().stream().map(String::valueOf)));
+		}
+		for (EmployeeHistorySummary summary : roster.getEmployeeHistorySummaryList()) {
+			lineList.add("history " + summary.getEmployee().getName() + " " + summary.getShiftCount()
+					+ " " + summary.getDays() + " " + summary.getAdjustedCost()
+					+ " " + new TreeMap<>(summary.getShiftTypeAdjustedCostMap()));
+		}
+		// Sort, so the order of the sheets' rows doesn't matter
+		lineList.sort(null);
+		MessageDigest digest = newDigest();
+		for (String line : lineList) {
+			digest.update(line.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) '\n');
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * @param solverFactory never null
+	 * @return never null, changes if the solver config, the score rules or the termination changes
+	 */
+	public static String hashConfig(SolverFactory<Roster> solverFactory) {
+		MessageDigest digest = newDigest();
+		digest.update(readResource(SolverFactoryHolder.SOLVER_CONFIG));
+		digest.update(readResource(KieContainerCache.DRL_RESOURCE));
+		// The termination is often tweaked programmatically, after reading the solver config
+		TerminationConfig terminationConfig = solverFactory.getSolverConfig().getTerminationConfig();
+		if (terminationConfig != null) {
+			String termination = terminationConfig.calculateTimeMillisSpentLimit()
+					+ " " + terminationConfig.calculateUnimprovedTimeMillisSpentLimit()
+					+ " " + terminationConfig.getBestScoreLimit()
+					+ " " + terminationConfig.getStepCountLimit()
+					+ " " + terminationConfig.getUnimprovedStepCountLimit();
+			digest.update(termination.getBytes(StandardCharsets.UTF_8));
+		}
+		return toHex(digest.digest());
+	}
+
+	private static String sortedNames(Stream<String> nameStream) {
+		return nameStream.sorted().collect(Collectors.joining(",", "[", "]"));
+	}
+
+	private static String nameOf(Skill skill) {
+		return skill == null ? "-" : skill.getName();
+	}
+
+	private static byte[] readResource(String resource) {
+		try (InputStream in = SolveResultCache.class.getClassLoader().getResourceAsStream(resource)) {
+			if (in == null) {
+				throw new IllegalStateException("The resource (" + resource + ") does not exist on the classpath.");
+			}
+			byte[] buffer = new byte[8192];
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			int length;
+			while ((length = in.read(buffer)) != -1) {
+				out.write(buffer, 0, length);
+			}
+			return out.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed reading the resource (" + resource + ").", e);
+		}
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("The JVM does not support SHA-256.", e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder();
+		for (int i = 0; i < 16; i++) {
+			hex.append(String.format("%02x", bytes[i]));
+		}
+		return hex.toString();
+	}
+
+}
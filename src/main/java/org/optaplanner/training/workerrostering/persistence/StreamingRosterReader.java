@@ -0,0 +1,467 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.RosterParametrization;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.Skill;
+import org.optaplanner.training.workerrostering.domain.Spot;
+import org.optaplanner.training.workerrostering.domain.TimeSlot;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Reads the same workbook as the reader of {@link WorkerRosteringSolutionFileDaysIO}, but streams the sheet XML
+ * instead of building an {@code XSSFWorkbook}: only 1 row of the "Vacation Calendar" is in memory at a time,
+ * so the heap needed is proportional to the roster, not to the spreadsheet.
+ * Fill colors are classified once per style of the styles table, see {@link StyleCategoryIndex}.
+ */
+final class StreamingRosterReader {
+
+	private static final int LIST_HEADER_ROWS = 2;
+	private static final int CALENDAR_HEADER_ROWS = 4;
+
+	private final XSSFReader xssfReader;
+	private final ReadOnlySharedStringsTable sharedStrings;
+	private final StyleCategoryIndex styleCategoryIndex;
+	// Like the getDateCellValue() of the DOM reader, a date is a day count since 1904 instead of 1900
+	private final boolean date1904;
+	// The planning period (start inclusive, end exclusive)
+	private final LocalDate startDate;
+	private final LocalDate endDate;
+
+	StreamingRosterReader(OPCPackage opcPackage, LocalDate startDate, LocalDate endDate)
+			throws IOException, OpenXML4JException, SAXException {
+		this.startDate = startDate;
+		this.endDate = endDate;
+		xssfReader = new XSSFReader(opcPackage);
+		sharedStrings = new ReadOnlySharedStringsTable(opcPackage);
+		StylesTable stylesTable = xssfReader.getStylesTable();
+		styleCategoryIndex = new StyleCategoryIndex(stylesTable.getNumCellStyles(), stylesTable::getStyleAt);
+		date1904 = readDate1904();
+	}
+
+	/**
+	 * @return the {@code date1904} attribute of the {@code <workbookPr>} element of the workbook part
+	 */
+	private boolean readDate1904() throws IOException, OpenXML4JException, SAXException {
+		boolean[] date1904 = { false };
+		try (InputStream in = xssfReader.getWorkbookData()) {
+			XMLReader xmlReader = SAXHelper.newXMLReader();
+			xmlReader.setContentHandler(new DefaultHandler() {
+				@Override
+				public void startElement(String uri, String localName, String qName, Attributes attributes) {
+					if (localName.equals("workbookPr")) {
+						String value = attributes.getValue("date1904");
+						date1904[0] = "1".equals(value) || "true".equals(value);
+					}
+				}
+			});
+			xmlReader.parse(new InputSource(in));
+		} catch (ParserConfigurationException e) {
+			throw new IllegalStateException("Failed creating an XML reader for the workbook part.", e);
+		}
+		return date1904[0];
+	}
+
+	Roster readRoster() {
+		RosterParametrization rosterParametrization = new RosterParametrization();
+		List<Skill> skillList = readListSheet("Skills", new String[] { "Name" }).stream()
+				.map(row -> new Skill(row.getString(0)))
+				.collect(Collectors.toList());
+		Map<String, Skill> skillMap = skillList.stream().collect(Collectors.toMap(Skill::getName, skill -> skill));
+
+		List<Spot> spotList = new ArrayList<>();
+		for (SheetRow row : readListSheet("Spots",
+				new String[] { "Name", "Required skill", "Unsuitable Skill", "Days" })) {
+			String name = row.getString(0);
+			SheetCell unsuitableCell = row.getCell(2);
+			spotList.add(RosterImportSupport.createSpot(name, row.getString(1),
+					unsuitableCell == null ? null : unsuitableCell.getString(),
+					row.getNumber(3, 8.0, "days in spot " + name),
+					row.getNumber(4, 0.0, "score before vacation in spot " + name),
+					row.getNumber(5, 0.0, "score after vacation in spot " + name),
+					row.getNumber(6, 8.0, "offset in spot " + name),
+					skillMap, skillList));
+		}
+		Map<String, Spot> spotMap = spotList.stream().collect(Collectors.toMap(Spot::getName, spot -> spot));
+		List<TimeSlot> timeSlotList = RosterImportSupport.generateTimeSlotList(startDate, endDate);
+		HorizonCalendar horizonCalendar = new HorizonCalendar(timeSlotList);
+
+		List<Employee> employeeList = new ArrayList<>();
+		for (SheetRow row : readListSheet("Employees",
+				new String[] { "Name", "Skills", "Night Shift", "Time", "VIP", "Unskills", "SD", "FD" })) {
+			String name = row.getString(0);
+			SheetCell unskillCell = row.getCell(5);
+			employeeList.add(RosterImportSupport.createEmployee(name, row.getString(6), row.getString(7),
+					row.getString(2), unskillCell == null ? null : unskillCell.getString(),
+					row.getNumber(3, 100.0, "time in employee " + name),
+					row.getNumber(4, 0.0, "VIP in employee " + name),
+					skillMap, skillList));
+		}
+		Map<String, Employee> employeeMap = employeeList.stream()
+				.collect(Collectors.toMap(Employee::getName, employee -> employee));
+		List<ShiftAssignment> shiftAssignmentList = RosterImportSupport.generateShiftAssignmentYear(timeSlotList,
+				spotList);
+
+		// read extra shifts (holidays...)
+		for (SheetRow row : readListSheet("Extra Shifts", new String[] { "Date", "Shifts", "Days" })) {
+			LocalDate extraLocalDate = DateUtil.getJavaDate(row.getRequiredCell(0).getNumber(), date1904)
+					.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+			shiftAssignmentList.addAll(RosterImportSupport.createExtraShiftAssignments(extraLocalDate,
+					row.getString(1), (int) row.getRequiredCell(2).getNumber(), horizonCalendar, spotMap));
+		}
+
+		// read vacation days and fixed shift assignments in 1 pass
+		LocalDate[] columnDates = RosterImportSupport.createColumnDates(1, startDate, endDate);
+		ShiftAssignmentPinIndex pinIndex = new ShiftAssignmentPinIndex(spotList, shiftAssignmentList);
+		processSheet("Vacation Calendar", row -> {
+			if (row.rowIndex < CALENDAR_HEADER_ROWS - 1) {
+				return;
+			}
+			if (row.rowIndex == CALENDAR_HEADER_ROWS - 1) {
+				checkHeaderRow("Vacation Calendar", row, new String[] { "Name" });
+				return;
+			}
+			SheetCell nameCell = row.getCell(0);
+			if (nameCell == null) {
+				return;
+			}
+			String employeeName = RosterImportSupport.trimEmployeeName(nameCell.getString());
+			Employee employee = employeeMap.get(employeeName);
+			if (employee == null) {
+				System.out.println("The employeeName (" + employeeName + ") does not exist in the employeeList ("
+						+ employeeList + ").");
+				return;
+			}
+			int lastColumn = Math.min(row.cells.length, columnDates.length);
+			for (int column = 1; column < lastColumn; column++) {
+				SheetCell cell = row.cells[column];
+				if (cell == null) {
+					continue;
+				}
+				LocalDate date = columnDates[column];
+				if (styleCategoryIndex.is(cell.styleIndex, StyleCategoryIndex.UNAVAILABLE)) {
+					RosterImportSupport.markUnavailable(employee, date);
+				}
+				if (styleCategoryIndex.is(cell.styleIndex, StyleCategoryIndex.LOCKED_BY_USER)) {
+					RosterImportSupport.lockShiftAssignment(employee, date, cell.getString(), pinIndex);
+				}
+			}
+		});
+
+		RosterImportSupport.calculateVacationTimeSlotsFromDates(horizonCalendar, employeeList);
+		RosterImportSupport.calculateBeforeAfterVacationTimeSlots(horizonCalendar, employeeList);
+		return new Roster(rosterParametrization, skillList, spotList, timeSlotList, employeeList,
+				shiftAssignmentList);
+	}
+
+	/**
+	 * @return the data rows, until the first row without a first cell
+	 */
+	private List<SheetRow> readListSheet(String sheetName, String[] headerTitles) {
+		List<SheetRow> rowList = new ArrayList<>();
+		boolean[] state = { false, false }; // header seen, end of data
+		processSheet(sheetName, row -> {
+			if (state[1] || row.rowIndex < LIST_HEADER_ROWS - 1) {
+				return;
+			}
+			if (row.rowIndex == LIST_HEADER_ROWS - 1) {
+				checkHeaderRow(sheetName, row, headerTitles);
+				state[0] = true;
+				return;
+			}
+			if (row.getCell(0) == null) {
+				state[1] = true;
+				return;
+			}
+			for (int j = 0; j < headerTitles.length; j++) {
+				if (row.getCell(j) == null) {
+					System.out.println("The sheet (" + sheetName + ") has no cell for " + headerTitles[j]
+							+ " at row (" + row.rowIndex + ") at column (" + j + ").");
+				}
+			}
+			rowList.add(row);
+		});
+		if (!state[0]) {
+			throw new IllegalStateException("The sheet (" + sheetName + ") has no header data at row ("
+					+ (LIST_HEADER_ROWS - 1) + ").");
+		}
+		return rowList;
+	}
+
+	private void checkHeaderRow(String sheetName, SheetRow headerRow, String[] headerTitles) {
+		for (int columnNumber = 0; columnNumber < headerTitles.length; columnNumber++) {
+			String headerTitle = headerTitles[columnNumber];
+			SheetCell cell = headerRow.getCell(columnNumber);
+			if (cell == null) {
+				throw new IllegalStateException("The sheet (" + sheetName + ") at header cell ("
+						+ headerRow.rowIndex + "," + columnNumber + ") does not contain the headerTitle ("
+						+ headerTitle + ").");
+			}
+			if (!cell.getString().equals(headerTitle)) {
+				throw new IllegalStateException("The sheet (" + sheetName + ") at header cell ("
+						+ headerRow.rowIndex + "," + columnNumber + ") does not contain the headerTitle ("
+						+ headerTitle + "), it contains cellValue (" + cell.getString() + ") instead.");
+			}
+		}
+	}
+
+	private void processSheet(String sheetName, Consumer<SheetRow> rowConsumer) {
+		try {
+			XSSFReader.SheetIterator sheetIterator = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+			while (sheetIterator.hasNext()) {
+				try (InputStream in = sheetIterator.next()) {
+					if (sheetIterator.getSheetName().equals(sheetName)) {
+						XMLReader xmlReader = SAXHelper.newXMLReader();
+						xmlReader.setContentHandler(new SheetHandler(rowConsumer));
+						xmlReader.parse(new InputSource(in));
+						return;
+					}
+				}
+			}
+		} catch (IOException | OpenXML4JException | SAXException | ParserConfigurationException e) {
+			throw new IllegalStateException("Failed reading the sheet (" + sheetName + ").", e);
+		}
+		throw new IllegalStateException("The workbook does not contain a sheet with name (" + sheetName + ").");
+	}
+
+	/**
+	 * Turns the {@code <row>} and {@code <c>} elements of a sheet into {@link SheetRow}s.
+	 */
+	private class SheetHandler extends DefaultHandler {
+
+		private final Consumer<SheetRow> rowConsumer;
+
+		private int rowIndex = -1;
+		private final List<SheetCell> cellList = new ArrayList<>();
+		private int columnIndex = -1;
+		private int styleIndex = 0;
+		private String type = null;
+		private boolean collectingText = false;
+		private final StringBuilder text = new StringBuilder();
+		private boolean hasValue = false;
+
+		public SheetHandler(Consumer<SheetRow> rowConsumer) {
+			this.rowConsumer = rowConsumer;
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes) {
+			switch (localName) {
+				case "row":
+					String rowReference = attributes.getValue("r");
+					rowIndex = rowReference == null ? rowIndex + 1 : Integer.parseInt(rowReference) - 1;
+					cellList.clear();
+					columnIndex = -1;
+					break;
+				case "c":
+					String cellReference = attributes.getValue("r");
+					columnIndex = cellReference == null ? columnIndex + 1 : parseColumnIndex(cellReference);
+					String styleValue = attributes.getValue("s");
+					styleIndex = styleValue == null ? 0 : Integer.parseInt(styleValue);
+					type = attributes.getValue("t");
+					text.setLength(0);
+					hasValue = false;
+					break;
+				case "v":
+				case "t":
+					collectingText = true;
+					hasValue = true;
+					break;
+				default:
+					break;
+			}
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			if (collectingText) {
+				text.append(ch, start, length);
+			}
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) {
+			switch (localName) {
+				case "v":
+				case "t":
+					collectingText = false;
+					break;
+				case "c":
+					while (cellList.size() <= columnIndex) {
+						cellList.add(null);
+					}
+					cellList.set(columnIndex, createCell());
+					break;
+				case "row":
+					rowConsumer.accept(new SheetRow(rowIndex, cellList.toArray(new SheetCell[cellList.size()])));
+					break;
+				default:
+					break;
+			}
+		}
+
+		private SheetCell createCell() {
+			if (!hasValue) {
+				return new SheetCell(styleIndex, CellKind.BLANK, "", 0.0);
+			}
+			String value = text.toString();
+			if (type == null || type.equals("n")) {
+				return new SheetCell(styleIndex, CellKind.NUMERIC, null, Double.parseDouble(value));
+			}
+			switch (type) {
+				case "s":
+					return new SheetCell(styleIndex, CellKind.STRING,
+							sharedStrings.getEntryAt(Integer.parseInt(value)), 0.0);
+				case "inlineStr":
+				case "str":
+					return new SheetCell(styleIndex, CellKind.STRING, value, 0.0);
+				case "b":
+					return new SheetCell(styleIndex, CellKind.BOOLEAN, value, 0.0);
+				default:
+					return new SheetCell(styleIndex, CellKind.ERROR, value, 0.0);
+			}
+		}
+
+	}
+
+	private static int parseColumnIndex(String cellReference) {
+		int columnIndex = 0;
+		for (int i = 0; i < cellReference.length(); i++) {
+			char c = cellReference.charAt(i);
+			if (c < 'A' || c > 'Z') {
+				break;
+			}
+			columnIndex = columnIndex * 26 + (c - 'A' + 1);
+		}
+		return columnIndex - 1;
+	}
+
+	private enum CellKind {
+		BLANK,
+		NUMERIC,
+		STRING,
+		BOOLEAN,
+		ERROR
+	}
+
+	/**
+	 * Like a POI {@code Cell}: a blank cell reads as an empty string or 0, any other mismatch fails.
+	 */
+	private static class SheetCell {
+
+		private final int styleIndex;
+		private final CellKind kind;
+		private final String string;
+		private final double number;
+
+		public SheetCell(int styleIndex, CellKind kind, String string, double number) {
+			this.styleIndex = styleIndex;
+			this.kind = kind;
+			this.string = string;
+			this.number = number;
+		}
+
+		public String getString() {
+			if (kind != CellKind.STRING && kind != CellKind.BLANK) {
+				throw new IllegalStateException("Cannot get a STRING value from a " + kind + " cell.");
+			}
+			return string;
+		}
+
+		public double getNumber() {
+			if (kind != CellKind.NUMERIC && kind != CellKind.BLANK) {
+				throw new IllegalStateException("Cannot get a NUMERIC value from a " + kind + " cell.");
+			}
+			return number;
+		}
+
+	}
+
+	private static class SheetRow {
+
+		private final int rowIndex;
+		private final SheetCell[] cells;
+
+		public SheetRow(int rowIndex, SheetCell[] cells) {
+			this.rowIndex = rowIndex;
+			this.cells = cells;
+		}
+
+		/**
+		 * @return null if the row has no such cell
+		 */
+		public SheetCell getCell(int column) {
+			return column < cells.length ? cells[column] : null;
+		}
+
+		public SheetCell getRequiredCell(int column) {
+			SheetCell cell = getCell(column);
+			if (cell == null) {
+				throw new IllegalStateException("The row (" + rowIndex + ") has no cell at column (" + column + ").");
+			}
+			return cell;
+		}
+
+		public String getString(int column) {
+			return getRequiredCell(column).getString();
+		}
+
+		/**
+		 * @return defaultValue if there is no such cell or it isn't a number
+		 */
+		public double getNumber(int column, double defaultValue, String description) {
+			SheetCell cell = getCell(column);
+			if (cell == null) {
+				return defaultValue;
+			}
+			try {
+				return cell.getNumber();
+			} catch (IllegalStateException e) {
+				System.out.println("ERROR: Expected number cell for " + description);
+				return defaultValue;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.persistence;
+
+import java.util.function.IntFunction;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.IndexedColors;
+
+/**
+ * The fill color categories of every cell style of a workbook, classified once,
+ * so checking a cell is an array lookup instead of comparing its colors.
+ * A style can be in several categories, so they are bit flags.
+ */
+final class StyleCategoryIndex {
+
+	static final int UNAVAILABLE = 1;
+	static final int LOCKED_BY_USER = 1 << 1;
+	static final int NON_EXISTING = 1 << 2;
+	static final int UNDESIRABLE = 1 << 3;
+
+	private final int[] categories;
+
+	/**
+	 * @param styleCount {@code >= 0}
+	 * @param styleLookup never null, from style index to style
+	 */
+	StyleCategoryIndex(int styleCount, IntFunction<CellStyle> styleLookup) {
+		categories = new int[styleCount];
+		for (int i = 0; i < styleCount; i++) {
+			CellStyle style = styleLookup.apply(i);
+			if (style != null) {
+				categories[i] = classify(style);
+			}
+		}
+	}
+
+	private static int classify(CellStyle style) {
+		int category = 0;
+		if (hasFill(style, WorkerRosteringSolutionFileDaysIO.UNAVAILABLE_COLOR)) {
+			category |= UNAVAILABLE;
+		}
+		if (hasFill(style, WorkerRosteringSolutionFileDaysIO.LOCKED_BY_USER_COLOR)) {
+			category |= LOCKED_BY_USER;
+		}
+		if (hasFill(style, WorkerRosteringSolutionFileDaysIO.NON_EXISTING_COLOR)) {
+			category |= NON_EXISTING;
+		}
+		if (hasFill(style, WorkerRosteringSolutionFileDaysIO.UNDESIRABLE_COLOR)) {
+			category |= UNDESIRABLE;
+		}
+		return category;
+	}
+
+	private static boolean hasFill(CellStyle style, IndexedColors color) {
+		return RosterImportSupport.hasFill(style, color, WorkerRosteringSolutionFileDaysIO.getArgbHexes(color));
+	}
+
+	/**
+	 * @param styleIndex an unknown index has no category
+	 * @param category one of the constants of this class
+	 */
+	boolean is(int styleIndex, int category) {
+		return styleIndex >= 0 && styleIndex < categories.length && (categories[styleIndex] & category) != 0;
+	}
+
+}
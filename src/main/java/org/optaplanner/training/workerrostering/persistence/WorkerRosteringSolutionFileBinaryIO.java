@@ -0,0 +1,457 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+import org.optaplanner.persistence.common.api.domain.solution.SolutionFileIO;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.EmployeeHistorySummary;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.RosterParametrization;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.Skill;
+import org.optaplanner.training.workerrostering.domain.Spot;
+import org.optaplanner.training.workerrostering.domain.TimeSlot;
+import org.optaplanner.training.workerrostering.domain.TimeSlotState;
+
+/**
+ * A compact binary snapshot of a roster, to load a problem that was already read from a workbook in milliseconds,
+ * for example for benchmarks and warm starts. Convert with {@code WorkerRosteringBinaryConverterApp}.
+ * <p>
+ * The file is memory mapped and read with absolute offsets, there is no text to parse except the names.
+ * Everything refers to skills, spots, time slots and employees by their index in the tables at the start.
+ * Skill sets, dates and time slot sets are bit sets, the shift assignments are int arrays.
+ * All numbers are big endian.
+ * <p>
+ * Extra spots (holidays...) aren't in the spotList, so they follow the spotList in the spot table.
+ */
+public class WorkerRosteringSolutionFileBinaryIO implements SolutionFileIO<Roster> {
+
+	public static final String FILE_EXTENSION = "wrbin";
+
+	private static final int MAGIC = 0x57524F53; // "WROS"
+	// Increase on every format change, older files are rejected instead of misread
+	public static final int FORMAT_VERSION = 1;
+
+	private static final int NONE = -1;
+
+	@Override
+	public String getInputFileExtension() {
+		return FILE_EXTENSION;
+	}
+
+	@Override
+	public String getOutputFileExtension() {
+		return FILE_EXTENSION;
+	}
+
+	@Override
+	public Roster read(File inputSolutionFile) {
+		try (FileChannel channel = FileChannel.open(inputSolutionFile.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+			return new RosterBinaryReader(buffer).readRoster();
+		} catch (IOException | RuntimeException e) {
+			throw new IllegalStateException(
+					"Failed reading inputSolutionFile (" + inputSolutionFile + ") to create a roster.", e);
+		}
+	}
+
+	@Override
+	public void write(Roster roster, File outputSolutionFile) {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(outputSolutionFile)))) {
+			new RosterBinaryWriter(roster, out).writeRoster();
+		} catch (IOException e) {
+			throw new IllegalStateException(
+					"Failed writing outputSolutionFile (" + outputSolutionFile + ") for roster (" + roster + ").", e);
+		}
+	}
+
+	private static int wordCount(int bitCount) {
+		return (bitCount + 63) / 64;
+	}
+
+	private static class RosterBinaryReader {
+
+		private final ByteBuffer buffer;
+
+		private List<Skill> skillList;
+		private List<TimeSlot> timeSlotList;
+		private long firstEpochDay;
+		private int dayWordCount;
+
+		public RosterBinaryReader(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		public Roster readRoster() {
+			int magic = buffer.getInt();
+			if (magic != MAGIC) {
+				throw new IllegalStateException("The file is not a binary roster, it starts with ("
+						+ Integer.toHexString(magic) + ").");
+			}
+			int formatVersion = buffer.getInt();
+			if (formatVersion != FORMAT_VERSION) {
+				throw new IllegalStateException("The formatVersion (" + formatVersion
+						+ ") is not supported, only formatVersion (" + FORMAT_VERSION
+						+ ") is. Convert the workbook again.");
+			}
+			firstEpochDay = buffer.getLong();
+			dayWordCount = buffer.getInt();
+
+			int skillCount = buffer.getInt();
+			skillList = new ArrayList<>(skillCount);
+			for (int i = 0; i < skillCount; i++) {
+				skillList.add(new Skill(readString()));
+			}
+
+			int spotCount = buffer.getInt();
+			int spotListSize = buffer.getInt();
+			List<Spot> spotTable = new ArrayList<>(spotCount);
+			for (int i = 0; i < spotCount; i++) {
+				String name = readString();
+				Skill requiredSkill = getOrNull(skillList, buffer.getInt());
+				Skill unsuitableSkill = getOrNull(skillList, buffer.getInt());
+				int days = buffer.getInt();
+				int scoreBeforeVacation = buffer.getInt();
+				int scoreAfterVacation = buffer.getInt();
+				int offset = buffer.getInt();
+				Spot spot = new Spot(name, requiredSkill, unsuitableSkill, days, scoreBeforeVacation,
+						scoreAfterVacation, offset);
+				spot.setIsExtraSpot(buffer.get() != 0);
+				spotTable.add(spot);
+			}
+			List<Spot> spotList = new ArrayList<>(spotTable.subList(0, spotListSize));
+
+			int timeSlotCount = buffer.getInt();
+			TimeSlotState[] timeSlotStates = TimeSlotState.values();
+			timeSlotList = new ArrayList<>(timeSlotCount);
+			for (int i = 0; i < timeSlotCount; i++) {
+				LocalDateTime startDateTime = LocalDateTime.ofEpochSecond(buffer.getLong(), 0, ZoneOffset.UTC);
+				LocalDateTime endDateTime = LocalDateTime.ofEpochSecond(buffer.getLong(), 0, ZoneOffset.UTC);
+				TimeSlot timeSlot = new TimeSlot(startDateTime, endDateTime);
+				byte timeSlotStateOrdinal = buffer.get();
+				timeSlot.setTimeSlotState(timeSlotStateOrdinal == NONE ? null : timeSlotStates[timeSlotStateOrdinal]);
+				timeSlotList.add(timeSlot);
+			}
+
+			int employeeCount = buffer.getInt();
+			int skillWordCount = wordCount(skillCount);
+			List<Employee> employeeList = new ArrayList<>(employeeCount);
+			for (int i = 0; i < employeeCount; i++) {
+				String name = readString();
+				double baseTime = buffer.getDouble();
+				double vipFactor = buffer.getDouble();
+				// Filled before the constructor, which derives from the skills
+				Set<Skill> skillSet = new HashSet<>();
+				readBits(skillWordCount, index -> skillSet.add(skillList.get(index)));
+				Employee employee = new Employee(name, skillSet, baseTime, vipFactor);
+				readDates(employee.getUnavailableDateSet());
+				readDates(employee.getUndesirableDateSet());
+				readTimeSlots(employee.getUnavailableTimeSlotSet());
+				readTimeSlots(employee.getUndesirableTimeSlotSet());
+				readTimeSlots(employee.getBeforeVacationTimeSlotSet());
+				readTimeSlots(employee.getAfterVacationTimeSlotSet());
+				employeeList.add(employee);
+			}
+
+			int employeeHistorySummaryCount = buffer.getInt();
+			List<EmployeeHistorySummary> employeeHistorySummaryList = new ArrayList<>(employeeHistorySummaryCount);
+			for (int i = 0; i < employeeHistorySummaryCount; i++) {
+				Employee employee = employeeList.get(buffer.getInt());
+				int shiftCount = buffer.getInt();
+				long days = buffer.getLong();
+				long adjustedCost = buffer.getLong();
+				int shiftTypeCount = buffer.getInt();
+				Map<String, Long> shiftTypeAdjustedCostMap = new HashMap<>(shiftTypeCount);
+				for (int j = 0; j < shiftTypeCount; j++) {
+					shiftTypeAdjustedCostMap.put(readString(), buffer.getLong());
+				}
+				employeeHistorySummaryList.add(new EmployeeHistorySummary(employee, shiftCount, days, adjustedCost,
+						shiftTypeAdjustedCostMap));
+			}
+
+			// Column wise: all spot indexes, then all time slot indexes, then all employee indexes
+			int shiftAssignmentCount = buffer.getInt();
+			int spotsOffset = buffer.position();
+			int timeSlotsOffset = spotsOffset + shiftAssignmentCount * Integer.BYTES;
+			int employeesOffset = timeSlotsOffset + shiftAssignmentCount * Integer.BYTES;
+			List<ShiftAssignment> shiftAssignmentList = new ArrayList<>(shiftAssignmentCount);
+			for (int i = 0; i < shiftAssignmentCount; i++) {
+				ShiftAssignment shiftAssignment = new ShiftAssignment(
+						spotTable.get(buffer.getInt(spotsOffset + i * Integer.BYTES)),
+						timeSlotList.get(buffer.getInt(timeSlotsOffset + i * Integer.BYTES)));
+				shiftAssignment.setEmployee(getOrNull(employeeList,
+						buffer.getInt(employeesOffset + i * Integer.BYTES)));
+				shiftAssignmentList.add(shiftAssignment);
+			}
+			buffer.position(employeesOffset + shiftAssignmentCount * Integer.BYTES);
+			readBits(wordCount(shiftAssignmentCount),
+					index -> shiftAssignmentList.get(index).setLockedByUser(true));
+
+			return new Roster(new RosterParametrization(), skillList, spotList, timeSlotList, employeeList,
+					shiftAssignmentList, employeeHistorySummaryList);
+		}
+
+		private String readString() {
+			int length = buffer.getInt();
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		private void readDates(Set<LocalDate> dateSet) {
+			readBits(dayWordCount, index -> dateSet.add(LocalDate.ofEpochDay(firstEpochDay + index)));
+		}
+
+		private void readTimeSlots(Set<TimeSlot> timeSlotSet) {
+			readBits(wordCount(timeSlotList.size()), index -> timeSlotSet.add(timeSlotList.get(index)));
+		}
+
+		private void readBits(int wordCount, IntConsumer bitConsumer) {
+			for (int i = 0; i < wordCount; i++) {
+				long word = buffer.getLong();
+				while (word != 0L) {
+					int bit = Long.numberOfTrailingZeros(word);
+					bitConsumer.accept(i * 64 + bit);
+					word &= word - 1L;
+				}
+			}
+		}
+
+		private static <E> E getOrNull(List<E> list, int index) {
+			return index == NONE ? null : list.get(index);
+		}
+
+	}
+
+	private static class RosterBinaryWriter {
+
+		private final Roster roster;
+		private final DataOutputStream out;
+
+		private final Map<Skill, Integer> skillIndexMap = new IdentityHashMap<>();
+		private final List<Spot> spotTable = new ArrayList<>();
+		private final Map<Spot, Integer> spotIndexMap = new IdentityHashMap<>();
+		private final Map<TimeSlot, Integer> timeSlotIndexMap = new IdentityHashMap<>();
+		private final Map<Employee, Integer> employeeIndexMap = new IdentityHashMap<>();
+		private long firstEpochDay = 0L;
+		private int dayCount = 0;
+
+		public RosterBinaryWriter(Roster roster, DataOutputStream out) {
+			this.roster = roster;
+			this.out = out;
+			indexAll(roster.getSkillList(), skillIndexMap);
+			for (Spot spot : roster.getSpotList()) {
+				addSpot(spot);
+			}
+			for (ShiftAssignment shiftAssignment : roster.getShiftAssignmentList()) {
+				if (!spotIndexMap.containsKey(shiftAssignment.getSpot())) {
+					addSpot(shiftAssignment.getSpot());
+				}
+			}
+			indexAll(roster.getTimeSlotList(), timeSlotIndexMap);
+			indexAll(roster.getEmployeeList(), employeeIndexMap);
+			long minEpochDay = Long.MAX_VALUE;
+			long maxEpochDay = Long.MIN_VALUE;
+			for (Employee employee : roster.getEmployeeList()) {
+				for (LocalDate date : employee.getUnavailableDateSet()) {
+					minEpochDay = Math.min(minEpochDay, date.toEpochDay());
+					maxEpochDay = Math.max(maxEpochDay, date.toEpochDay());
+				}
+				for (LocalDate date : employee.getUndesirableDateSet()) {
+					minEpochDay = Math.min(minEpochDay, date.toEpochDay());
+					maxEpochDay = Math.max(maxEpochDay, date.toEpochDay());
+				}
+			}
+			if (minEpochDay <= maxEpochDay) {
+				firstEpochDay = minEpochDay;
+				dayCount = (int) (maxEpochDay - minEpochDay + 1L);
+			}
+		}
+
+		private void addSpot(Spot spot) {
+			spotIndexMap.put(spot, spotTable.size());
+			spotTable.add(spot);
+		}
+
+		private static <E> void indexAll(List<E> list, Map<E, Integer> indexMap) {
+			for (E element : list) {
+				indexMap.putIfAbsent(element, indexMap.size());
+			}
+		}
+
+		public void writeRoster() throws IOException {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(firstEpochDay);
+			out.writeInt(wordCount(dayCount));
+
+			out.writeInt(roster.getSkillList().size());
+			for (Skill skill : roster.getSkillList()) {
+				writeString(skill.getName());
+			}
+
+			out.writeInt(spotTable.size());
+			out.writeInt(roster.getSpotList().size());
+			for (Spot spot : spotTable) {
+				writeString(spot.getName());
+				out.writeInt(indexOf(skillIndexMap, spot.getRequiredSkill(), "skill"));
+				out.writeInt(indexOf(skillIndexMap, spot.getUnsuitableSkill(), "skill"));
+				out.writeInt(spot.getDays());
+				out.writeInt(spot.getScoreBeforeVacation());
+				out.writeInt(spot.getScoreAfterVacation());
+				out.writeInt(spot.getOffset());
+				out.writeByte(spot.getIsExtraSpot() ? 1 : 0);
+			}
+
+			out.writeInt(roster.getTimeSlotList().size());
+			for (TimeSlot timeSlot : roster.getTimeSlotList()) {
+				out.writeLong(timeSlot.getStartDateTime().toEpochSecond(ZoneOffset.UTC));
+				out.writeLong(timeSlot.getEndDateTime().toEpochSecond(ZoneOffset.UTC));
+				TimeSlotState timeSlotState = timeSlot.getTimeSlotState();
+				out.writeByte(timeSlotState == null ? NONE : timeSlotState.ordinal());
+			}
+
+			int skillCount = roster.getSkillList().size();
+			int timeSlotCount = roster.getTimeSlotList().size();
+			out.writeInt(roster.getEmployeeList().size());
+			for (Employee employee : roster.getEmployeeList()) {
+				writeString(employee.getName());
+				out.writeDouble(employee.getBaseTime());
+				out.writeDouble(employee.getVIPFactor());
+				long[] skillWords = new long[wordCount(skillCount)];
+				for (Skill skill : employee.getSkillSet()) {
+					setBit(skillWords, indexOf(skillIndexMap, skill, "skill"));
+				}
+				writeWords(skillWords);
+				writeDates(employee.getUnavailableDateSet());
+				writeDates(employee.getUndesirableDateSet());
+				writeTimeSlots(employee.getUnavailableTimeSlotSet(), timeSlotCount);
+				writeTimeSlots(employee.getUndesirableTimeSlotSet(), timeSlotCount);
+				writeTimeSlots(employee.getBeforeVacationTimeSlotSet(), timeSlotCount);
+				writeTimeSlots(employee.getAfterVacationTimeSlotSet(), timeSlotCount);
+			}
+
+			out.writeInt(roster.getEmployeeHistorySummaryList().size());
+			for (EmployeeHistorySummary summary : roster.getEmployeeHistorySummaryList()) {
+				out.writeInt(indexOf(employeeIndexMap, summary.getEmployee(), "employee"));
+				out.writeInt(summary.getShiftCount());
+				out.writeLong(summary.getDays());
+				out.writeLong(summary.getAdjustedCost());
+				Map<String, Long> shiftTypeAdjustedCostMap = summary.getShiftTypeAdjustedCostMap();
+				out.writeInt(shiftTypeAdjustedCostMap.size());
+				for (Map.Entry<String, Long> entry : shiftTypeAdjustedCostMap.entrySet()) {
+					writeString(entry.getKey());
+					out.writeLong(entry.getValue());
+				}
+			}
+
+			List<ShiftAssignment> shiftAssignmentList = roster.getShiftAssignmentList();
+			out.writeInt(shiftAssignmentList.size());
+			for (ShiftAssignment shiftAssignment : shiftAssignmentList) {
+				out.writeInt(indexOf(spotIndexMap, shiftAssignment.getSpot(), "spot"));
+			}
+			for (ShiftAssignment shiftAssignment : shiftAssignmentList) {
+				out.writeInt(indexOf(timeSlotIndexMap, shiftAssignment.getTimeSlot(), "timeSlot"));
+			}
+			for (ShiftAssignment shiftAssignment : shiftAssignmentList) {
+				out.writeInt(indexOf(employeeIndexMap, shiftAssignment.getEmployee(), "employee"));
+			}
+			long[] lockedWords = new long[wordCount(shiftAssignmentList.size())];
+			for (int i = 0; i < shiftAssignmentList.size(); i++) {
+				if (shiftAssignmentList.get(i).isLockedByUser()) {
+					setBit(lockedWords, i);
+				}
+			}
+			writeWords(lockedWords);
+		}
+
+		/**
+		 * @return {@link #NONE} if the element is null
+		 */
+		private static <E> int indexOf(Map<E, Integer> indexMap, E element, String elementType) {
+			if (element == null) {
+				return NONE;
+			}
+			Integer index = indexMap.get(element);
+			if (index == null) {
+				throw new IllegalStateException("The " + elementType + " (" + element
+						+ ") is not in the roster's " + elementType + " list.");
+			}
+			return index;
+		}
+
+		private void writeString(String value) throws IOException {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		private void writeDates(Collection<LocalDate> dates) throws IOException {
+			long[] words = new long[wordCount(dayCount)];
+			for (LocalDate date : dates) {
+				setBit(words, (int) (date.toEpochDay() - firstEpochDay));
+			}
+			writeWords(words);
+		}
+
+		private void writeTimeSlots(Collection<TimeSlot> timeSlots, int timeSlotCount) throws IOException {
+			long[] words = new long[wordCount(timeSlotCount)];
+			for (TimeSlot timeSlot : timeSlots) {
+				// The Weeks reader adds null as the next time slot of the last one
+				if (timeSlot != null) {
+					setBit(words, indexOf(timeSlotIndexMap, timeSlot, "timeSlot"));
+				}
+			}
+			writeWords(words);
+		}
+
+		private static void setBit(long[] words, int index) {
+			words[index / 64] |= 1L << (index % 64);
+		}
+
+		private void writeWords(long[] words) throws IOException {
+			for (long word : words) {
+				out.writeLong(word);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.persistence;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.optaplanner.persistence.common.api.domain.solution.SolutionFileIO;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.RosterParametrization;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.Skill;
+import org.optaplanner.training.workerrostering.domain.Spot;
+import org.optaplanner.training.workerrostering.domain.TimeSlot;
+
+/**
+ * Reads the same roster as {@link WorkerRosteringSolutionFileDaysIO} from 1 flat CSV file, as HR systems export it,
+ * in a single forward pass: every line is turned into domain objects right away, nothing else is buffered.
+ * <p>
+ * The first field of every line is its record type, the records must come in this order
+ * (the last 3 can be mixed):
+ * <pre>
+ * skill,&lt;name&gt;
+ * spot,&lt;name&gt;,&lt;requiredSkill&gt;,[unsuitableSkill],[days],[scoreBeforeVacation],[scoreAfterVacation],[offset]
+ * employee,&lt;name&gt;,&lt;sdSkills&gt;,&lt;fdSkills&gt;,&lt;nightShift&gt;,[unskills],[time],[vip]
+ * extraShift,&lt;date&gt;,&lt;spots&gt;,&lt;days&gt;
+ * vacation,&lt;employee&gt;,&lt;date&gt;
+ * pin,&lt;employee&gt;,&lt;date&gt;,&lt;spot&gt;
+ * assignment,&lt;employee&gt;,&lt;date&gt;,&lt;spot&gt;
+ * </pre>
+ * The fields mean the same as the columns of the workbook sheets, with the same defaults for empty fields.
+ * Lists (skills, spots) are comma separated inside a quoted field. Dates are ISO (2019-01-05).
+ * Empty lines and lines starting with {@code #} are ignored. A field can't contain a line break.
+ * <p>
+ * A vacation is an unavailable cell of the "Vacation Calendar", a pin a locked one.
+ * A pin on the first day of a shift locks that shift, even if the previous shift of a spot with more than 7 days
+ * also covers that day. Unlike in the workbook, a pin can also lock an extra shift, by its {@code EX_} spot name
+ * and first day.
+ * An assignment seeds the employee of an unlocked shift assignment, see {@link AssignmentSnapshot#applyTo(Roster)}.
+ * {@link #write(Roster, File)} writes every record type, so {@link #read(File)} reads the same roster back.
+ */
+public class WorkerRosteringSolutionFileCsvIO implements SolutionFileIO<Roster> {
+
+	public static final String FILE_EXTENSION = "csv";
+
+	private static final String[] RECORD_TYPES = {
+			"skill", "spot", "employee", "extraShift", "vacation", "pin", "assignment" };
+	// The records with this stage or higher can be mixed
+	private static final int CALENDAR_STAGE = 4;
+
+	// The planning period (start inclusive, end exclusive) of the read rosters
+	private final LocalDate startDate;
+	private final LocalDate endDate;
+
+	public WorkerRosteringSolutionFileCsvIO() {
+		this(WorkerRosteringSolutionFileDaysIO.DEFAULT_START_DATE, WorkerRosteringSolutionFileDaysIO.DEFAULT_END_DATE);
+	}
+
+	/**
+	 * @param startDate never null, the first day of the first weekly time slot
+	 * @param endDate never null, exclusive, after startDate
+	 */
+	public WorkerRosteringSolutionFileCsvIO(LocalDate startDate, LocalDate endDate) {
+		if (!startDate.isBefore(endDate)) {
+			throw new IllegalArgumentException("The startDate (" + startDate + ") must be before the endDate ("
+					+ endDate + ").");
+		}
+		this.startDate = startDate;
+		this.endDate = endDate;
+	}
+
+	@Override
+	public String getInputFileExtension() {
+		return FILE_EXTENSION;
+	}
+
+	@Override
+	public String getOutputFileExtension() {
+		return FILE_EXTENSION;
+	}
+
+	@Override
+	public Roster read(File inputSolutionFile) {
+		try (BufferedReader reader = Files.newBufferedReader(inputSolutionFile.toPath(), StandardCharsets.UTF_8)) {
+			return new RosterCsvReader(startDate, endDate).readRoster(reader);
+		} catch (IOException | RuntimeException e) {
+			throw new IllegalStateException(
+					"Failed reading inputSolutionFile (" + inputSolutionFile + ") to create a roster.", e);
+		}
+	}
+
+	@Override
+	public void write(Roster roster, File outputSolutionFile) {
+		try (BufferedWriter writer = Files.newBufferedWriter(outputSolutionFile.toPath(), StandardCharsets.UTF_8)) {
+			for (Skill skill : roster.getSkillList()) {
+				writeRecord(writer, "skill", skill.getName());
+			}
+			for (Spot spot : roster.getSpotList()) {
+				writeRecord(writer, "spot", spot.getName(), spot.getRequiredSkill().getName(),
+						spot.getUnsuitableSkill() == null ? "" : spot.getUnsuitableSkill().getName(),
+						String.valueOf(spot.getDays()), String.valueOf(spot.getScoreBeforeVacation()),
+						String.valueOf(spot.getScoreAfterVacation()), String.valueOf(spot.getOffset()));
+			}
+			List<Employee> employeeList = roster.getEmployeeList();
+			for (Employee employee : employeeList) {
+				writeEmployeeRecord(writer, employee);
+			}
+			for (ShiftAssignment shiftAssignment : roster.getShiftAssignmentList()) {
+				Spot spot = shiftAssignment.getSpot();
+				if (spot.getIsExtraSpot()) {
+					writeRecord(writer, "extraShift", RosterImportSupport.findExtraShiftDate(shiftAssignment).toString(),
+							RosterImportSupport.getBaseSpotName(spot), String.valueOf(spot.getDays()));
+				}
+			}
+			for (Employee employee : employeeList) {
+				for (LocalDate date : new TreeSet<>(employee.getUnavailableDateSet())) {
+					writeRecord(writer, "vacation", employee.getName(), date.toString());
+				}
+			}
+			writer.write("# type,employee,date,spot");
+			writer.newLine();
+			for (ShiftAssignment shiftAssignment : roster.getShiftAssignmentList()) {
+				Employee employee = shiftAssignment.getEmployee();
+				if (employee == null || shiftAssignment.getDays().isEmpty()) {
+					continue;
+				}
+				writeRecord(writer, shiftAssignment.isLockedByUser() ? "pin" : "assignment", employee.getName(),
+						shiftAssignment.getDays().iterator().next().toString(), shiftAssignment.getSpot().getName());
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(
+					"Failed writing outputSolutionFile (" + outputSolutionFile + ") for roster (" + roster + ").", e);
+		}
+	}
+
+	private static void writeEmployeeRecord(BufferedWriter writer, Employee employee) throws IOException {
+		String[] skillFields = RosterImportSupport.splitSkillNames(employee);
+		writeRecord(writer, "employee", employee.getName(), skillFields[0], skillFields[1], skillFields[2],
+				skillFields[3], String.valueOf(employee.getBaseTime()), String.valueOf(employee.getVIPFactor()));
+	}
+
+	private static void writeRecord(BufferedWriter writer, String recordType, String... fields) throws IOException {
+		writer.write(recordType);
+		for (String field : fields) {
+			writer.write(',');
+			writer.write(escape(field));
+		}
+		writer.newLine();
+	}
+
+	private static String escape(String field) {
+		if (field.indexOf(',') < 0 && field.indexOf('"') < 0) {
+			return field;
+		}
+		return "\"" + field.replace("\"", "\"\"") + "\"";
+	}
+
+	/**
+	 * @param line never null
+	 * @return never null
+	 */
+	private static List<String> parseLine(String line) {
+		List<String> fieldList = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c != '"') {
+					field.append(c);
+				} else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else {
+					quoted = false;
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fieldList.add(field.toString().trim());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		if (quoted) {
+			throw new IllegalArgumentException("The line (" + line + ") has an unclosed quote.");
+		}
+		fieldList.add(field.toString().trim());
+		return fieldList;
+	}
+
+	private static class RosterCsvReader {
+
+		private final List<Skill> skillList = new ArrayList<>();
+		private final Map<String, Skill> skillMap = new HashMap<>();
+		private final List<Spot> spotList = new ArrayList<>();
+		private final Map<String, Spot> spotMap = new HashMap<>();
+		private final List<Employee> employeeList = new ArrayList<>();
+		private final Map<String, Employee> employeeMap = new HashMap<>();
+		private final LocalDate startDate;
+		private final LocalDate endDate;
+		private final List<TimeSlot> timeSlotList;
+		private final HorizonCalendar horizonCalendar;
+		private final List<ShiftAssignment> extraShiftAssignmentList = new ArrayList<>();
+		private final List<AssignmentSnapshot.Entry> assignmentEntryList = new ArrayList<>();
+
+		// Created when the first calendar record is reached, when all spots and extra shifts are known
+		private List<ShiftAssignment> shiftAssignmentList = null;
+		private ShiftAssignmentPinIndex pinIndex = null;
+
+		private int stage = 0;
+		private int lineNumber = 0;
+		private int outsidePeriodCount = 0;
+
+		public RosterCsvReader(LocalDate startDate, LocalDate endDate) {
+			this.startDate = startDate;
+			this.endDate = endDate;
+			timeSlotList = RosterImportSupport.generateTimeSlotList(startDate, endDate);
+			horizonCalendar = new HorizonCalendar(timeSlotList);
+		}
+
+		public Roster readRoster(BufferedReader reader) throws IOException {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.trim().isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				List<String> fieldList = parseLine(line);
+				try {
+					readRecord(fieldList);
+				} catch (RuntimeException e) {
+					throw new IllegalStateException("Failed reading line (" + lineNumber + "): " + line, e);
+				}
+			}
+			startCalendarStage();
+			if (outsidePeriodCount > 0) {
+				System.out.println("Ignored " + outsidePeriodCount + " vacation(s) outside the planning period ("
+						+ startDate + " - " + endDate + ").");
+			}
+			RosterImportSupport.calculateVacationTimeSlotsFromDates(horizonCalendar, employeeList);
+			RosterImportSupport.calculateBeforeAfterVacationTimeSlots(horizonCalendar, employeeList);
+			Roster roster = new Roster(new RosterParametrization(), skillList, spotList, timeSlotList, employeeList,
+					shiftAssignmentList);
+			if (!assignmentEntryList.isEmpty()) {
+				AssignmentSnapshot.of(assignmentEntryList).applyTo(roster);
+			}
+			return roster;
+		}
+
+		private void readRecord(List<String> fieldList) {
+			String recordType = fieldList.get(0);
+			int recordStage = -1;
+			for (int i = 0; i < RECORD_TYPES.length; i++) {
+				if (RECORD_TYPES[i].equals(recordType)) {
+					recordStage = Math.min(i, CALENDAR_STAGE);
+				}
+			}
+			if (recordStage < 0) {
+				throw new IllegalArgumentException("The recordType (" + recordType + ") is not one of "
+						+ String.join(", ", RECORD_TYPES) + ".");
+			}
+			if (recordStage < stage) {
+				throw new IllegalArgumentException("The recordType (" + recordType
+						+ ") must come before the " + RECORD_TYPES[stage] + " records.");
+			}
+			stage = recordStage;
+			switch (recordType) {
+				case "skill": {
+					Skill skill = new Skill(getField(fieldList, 1, "name"));
+					skillList.add(skill);
+					skillMap.put(skill.getName(), skill);
+					break;
+				}
+				case "spot": {
+					Spot spot = RosterImportSupport.createSpot(getField(fieldList, 1, "name"),
+							getField(fieldList, 2, "requiredSkill"), getOptionalField(fieldList, 3),
+							getNumber(fieldList, 4, 8.0), getNumber(fieldList, 5, 0.0), getNumber(fieldList, 6, 0.0),
+							getNumber(fieldList, 7, 8.0), skillMap, skillList);
+					spotList.add(spot);
+					spotMap.put(spot.getName(), spot);
+					break;
+				}
+				case "employee": {
+					Employee employee = RosterImportSupport.createEmployee(getField(fieldList, 1, "name"),
+							getField(fieldList, 2, "sdSkills"), getField(fieldList, 3, "fdSkills"),
+							getField(fieldList, 4, "nightShift"), getOptionalField(fieldList, 5),
+							getNumber(fieldList, 6, 100.0), getNumber(fieldList, 7, 0.0), skillMap, skillList);
+					employeeList.add(employee);
+					employeeMap.put(employee.getName(), employee);
+					break;
+				}
+				case "extraShift":
+					extraShiftAssignmentList.addAll(RosterImportSupport.createExtraShiftAssignments(
+							getDate(fieldList, 1), getField(fieldList, 2, "spots"),
+							(int) getNumber(fieldList, 3, Double.NaN), horizonCalendar, spotMap));
+					break;
+				case "vacation": {
+					startCalendarStage();
+					Employee employee = getEmployee(fieldList);
+					LocalDate date = getDate(fieldList, 2);
+					if (employee == null) {
+						break;
+					}
+					if (date.isBefore(startDate) || !date.isBefore(endDate)) {
+						outsidePeriodCount++;
+						break;
+					}
+					RosterImportSupport.markUnavailable(employee, date);
+					break;
+				}
+				case "pin": {
+					startCalendarStage();
+					Employee employee = getEmployee(fieldList);
+					if (employee == null) {
+						break;
+					}
+					LocalDate date = getDate(fieldList, 2);
+					String spotName = getField(fieldList, 3, "spot");
+					ShiftAssignment shiftAssignment = pinIndex.findShiftAssignmentStartingOn(spotName, date);
+					if (shiftAssignment != null) {
+						shiftAssignment.setEmployee(employee);
+						shiftAssignment.setLockedByUser(true);
+					} else if (spotName.startsWith(RosterImportSupport.EXTRA_SPOT_PREFIX)) {
+						throw new IllegalArgumentException("The spotName (" + spotName
+								+ ") has no extra shift starting on date (" + date + ").");
+					} else {
+						// Any other day of the shift, like a locked cell of the workbook
+						RosterImportSupport.lockShiftAssignment(employee, date, spotName, pinIndex);
+					}
+					break;
+				}
+				case "assignment":
+					startCalendarStage();
+					assignmentEntryList.add(new AssignmentSnapshot.Entry(getField(fieldList, 3, "spot"),
+							getDate(fieldList, 2), getField(fieldList, 1, "employee")));
+					break;
+				default:
+					throw new IllegalStateException("The recordType (" + recordType + ") is not implemented.");
+			}
+		}
+
+		private void startCalendarStage() {
+			if (shiftAssignmentList != null) {
+				return;
+			}
+			shiftAssignmentList = RosterImportSupport.generateShiftAssignmentYear(timeSlotList, spotList);
+			shiftAssignmentList.addAll(extraShiftAssignmentList);
+			pinIndex = new ShiftAssignmentPinIndex(spotList, shiftAssignmentList);
+		}
+
+		/**
+		 * @return null if the employee doesn't exist, like in the workbook
+		 */
+		private Employee getEmployee(List<String> fieldList) {
+			String employeeName = getField(fieldList, 1, "employee");
+			Employee employee = employeeMap.get(employeeName);
+			if (employee == null) {
+				System.out.println("The employeeName (" + employeeName + ") at line (" + lineNumber
+						+ ") does not exist in the employeeList.");
+			}
+			return employee;
+		}
+
+		private String getField(List<String> fieldList, int index, String fieldName) {
+			String field = getOptionalField(fieldList, index);
+			if (field == null) {
+				throw new IllegalArgumentException("The " + fieldList.get(0) + " record has no " + fieldName
+						+ " at field (" + index + ").");
+			}
+			return field;
+		}
+
+		/**
+		 * @return null if the field is missing or empty
+		 */
+		private String getOptionalField(List<String> fieldList, int index) {
+			if (index >= fieldList.size() || fieldList.get(index).isEmpty()) {
+				return null;
+			}
+			return fieldList.get(index);
+		}
+
+		/**
+		 * @param defaultValue {@link Double#NaN} if the field is required
+		 */
+		private double getNumber(List<String> fieldList, int index, double defaultValue) {
+			String field = getOptionalField(fieldList, index);
+			if (field == null) {
+				if (Double.isNaN(defaultValue)) {
+					throw new IllegalArgumentException("The " + fieldList.get(0) + " record has no number at field ("
+							+ index + ").");
+				}
+				return defaultValue;
+			}
+			try {
+				return Double.parseDouble(field);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("The field (" + index + ") value (" + field
+						+ ") is not a number.", e);
+			}
+		}
+
+		private LocalDate getDate(List<String> fieldList, int index) {
+			String field = getField(fieldList, index, "date");
+			try {
+				return LocalDate.parse(field);
+			} catch (DateTimeParseException e) {
+				throw new IllegalArgumentException("The field (" + index + ") value (" + field
+						+ ") is not an ISO date.", e);
+			}
+		}
+
+	}
+
+}
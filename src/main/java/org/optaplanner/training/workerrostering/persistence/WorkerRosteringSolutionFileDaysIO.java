@@ -36,21 +36,25 @@ import java.time.format.TextStyle;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.WeekFields;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Calendar;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.Font;
@@ -59,13 +63,14 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFCellStyle;
-import org.apache.poi.xssf.usermodel.XSSFColor;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.drools.compiler.lang.DRL5Expressions.annotationValue_return;
 import org.optaplanner.core.api.solver.Solver;
 import org.optaplanner.core.api.solver.SolverFactory;
 import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.core.impl.score.director.ScoreDirectorFactory;
 import org.optaplanner.core.api.score.constraint.*;
 import org.optaplanner.persistence.common.api.domain.solution.SolutionFileIO;
 import org.optaplanner.training.workerrostering.domain.Employee;
@@ -76,6 +81,7 @@ import org.optaplanner.training.workerrostering.domain.Skill;
 import org.optaplanner.training.workerrostering.domain.Spot;
 import org.optaplanner.training.workerrostering.domain.TimeSlot;
 import org.optaplanner.training.workerrostering.domain.TimeSlotState;
+import org.xml.sax.SAXException;
 
 
 public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster> {
@@ -87,25 +93,58 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 
 	public static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm", Locale.ENGLISH);
 
-	private static final IndexedColors NON_EXISTING_COLOR = IndexedColors.GREY_80_PERCENT;
+	static final IndexedColors NON_EXISTING_COLOR = IndexedColors.GREY_80_PERCENT;
 	private static final IndexedColors HOLIDAY_COLOR = IndexedColors.ORANGE;
 	private static final String NON_EXISTING_COLOR_STRING = "FF333333";
 
-	private static final IndexedColors LOCKED_BY_USER_COLOR = IndexedColors.YELLOW;
+	static final IndexedColors LOCKED_BY_USER_COLOR = IndexedColors.YELLOW;
 	private static final String LOCKED_BY_USER_COLOR_STRING = "FFFFFF00";
 
-	private static final IndexedColors UNAVAILABLE_COLOR = IndexedColors.BLUE_GREY;
+	static final IndexedColors UNAVAILABLE_COLOR = IndexedColors.BLUE_GREY;
 	private static final String UNAVAILABLE_COLOR_STRING = "FF6666FF";
 	private static final String UNAVAILABLE_COLOR_STRING2 = "FF0070C0";
 	private static final String UNAVAILABLE_COLOR_STRING3 = "FF4472C4";
 	private static final String UNAVAILABLE_COLOR_STRING4 = "FF666699";
 
-	public static LocalDate startDate = LocalDate.of(2019, 1, 5);
-	public static LocalDate endDate = LocalDate.of(2020, 1, 4);
+	// Rows per sheet that SXSSF keeps in memory, the older ones are flushed to a temp file
+	public static final int STREAMING_ROW_WINDOW = 100;
 
-	private static final IndexedColors UNDESIRABLE_COLOR = IndexedColors.GREY_25_PERCENT;
+	// The planning period (start inclusive, end exclusive) of the default constructor
+	public static final LocalDate DEFAULT_START_DATE = LocalDate.of(2019, 1, 5);
+	public static final LocalDate DEFAULT_END_DATE = LocalDate.of(2020, 1, 4);
+
+	static final IndexedColors UNDESIRABLE_COLOR = IndexedColors.GREY_25_PERCENT;
 	private static final String UNDESIRABLE_COLOR_STRING = "FFAAAAAA";
 
+	// The planning period of the read rosters, the writer takes it from the time slots of the roster instead
+	private final LocalDate startDate;
+	private final LocalDate endDate;
+
+	public WorkerRosteringSolutionFileDaysIO() {
+		this(DEFAULT_START_DATE, DEFAULT_END_DATE);
+	}
+
+	/**
+	 * @param startDate never null, the first day of the first weekly time slot
+	 * @param endDate never null, exclusive, after startDate
+	 */
+	public WorkerRosteringSolutionFileDaysIO(LocalDate startDate, LocalDate endDate) {
+		if (!startDate.isBefore(endDate)) {
+			throw new IllegalArgumentException("The startDate (" + startDate + ") must be before the endDate ("
+					+ endDate + ").");
+		}
+		this.startDate = startDate;
+		this.endDate = endDate;
+	}
+
+	public LocalDate getStartDate() {
+		return startDate;
+	}
+
+	public LocalDate getEndDate() {
+		return endDate;
+	}
+
 	public String getInputFileExtension() {
 		return "xlsx";
 	}
@@ -114,11 +153,33 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 		return "xlsx";
 	}
 
+	/**
+	 * Streams the workbook, see {@link StreamingRosterReader}.
+	 */
 	public Roster read(File inputSolutionFile) {
+		OPCPackage opcPackage = null;
+		try {
+			opcPackage = OPCPackage.open(inputSolutionFile, PackageAccess.READ);
+			return new StreamingRosterReader(opcPackage, startDate, endDate).readRoster();
+		} catch (IOException | OpenXML4JException | SAXException | RuntimeException e) {
+			throw new IllegalStateException(
+					"Failed reading inputSolutionFile (" + inputSolutionFile + ") to create a roster.", e);
+		} finally {
+			if (opcPackage != null) {
+				// Read only, so don't save it on close
+				opcPackage.revert();
+			}
+		}
+	}
+
+	/**
+	 * Loads the entire workbook in memory, which {@link #read(File)} avoids.
+	 */
+	public Roster readWithDom(File inputSolutionFile) {
 		Workbook workbook;
 		try (InputStream in = new BufferedInputStream(new FileInputStream(inputSolutionFile))) {
 			workbook = new XSSFWorkbook(in);
-			return new RosterReader(workbook).readRoster();
+			return new RosterReader(workbook, startDate, endDate).readRoster();
 		} catch (IOException | RuntimeException e) {
 			throw new IllegalStateException(
 					"Failed reading inputSolutionFile (" + inputSolutionFile + ") to create a roster.", e);
@@ -126,20 +187,21 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 	}
 	  @Override
 	    public void write(Roster roster, File outputSolutionFile) {
-	        Workbook workbook = new RosterWriter(roster).writeWorkbook();
-	        try (FileOutputStream out = new FileOutputStream(outputSolutionFile)) {
-	            workbook.write(out);
-	        } catch (IOException e) {
-	            throw new IllegalStateException("Failed writing outputSolutionFile ("
-	                    + outputSolutionFile + ") for roster (" + roster + ").", e);
-	        }
+	        writeWorkbook(roster, new SXSSFWorkbook(STREAMING_ROW_WINDOW), outputSolutionFile,
+	        		getScoreDirectorFactory(roster.Solver), false);
 	    }
 	private static class RosterReader {
 
 		private final Workbook workbook;
+		private final StyleCategoryIndex styleCategoryIndex;
+		private final LocalDate startDate;
+		private final LocalDate endDate;
 
-		public RosterReader(Workbook workbook) {
+		public RosterReader(Workbook workbook, LocalDate startDate, LocalDate endDate) {
 			this.workbook = workbook;
+			this.startDate = startDate;
+			this.endDate = endDate;
+			styleCategoryIndex = new StyleCategoryIndex(workbook.getNumCellStyles(), workbook::getCellStyleAt);
 		}
 
 		public Roster readRoster() {
@@ -156,16 +218,10 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 					new String[] { "Name", "Required skill", "Unsuitable Skill", "Days" }, (Row row) -> {
 						String name = row.getCell(0).getStringCellValue();
 						String requiredSkillName = row.getCell(1).getStringCellValue();
-						Skill requiredSkill = skillMap.get(requiredSkillName);
-						if (requiredSkill == null) {
-							throw new IllegalStateException("The requiredSkillName (" + requiredSkillName
-									+ ") does not exist in the skillList (" + skillList + ").");
-						}
-						Skill unsuitableSkill = null;
+						String unsuitableSkillName = null;
 						Cell unCell = row.getCell(2);
 						if (unCell != null) {
-							String unsuitableSkillName = unCell.getStringCellValue();
-							unsuitableSkill = skillMap.get(unsuitableSkillName);
+							unsuitableSkillName = unCell.getStringCellValue();
 						}
 
 						Double days = 8.0;
@@ -204,72 +260,18 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 						} catch (IllegalStateException e) {
 							System.out.println("ERROR: Expected number cell for time in employee " + name);
 						}
-						return new Spot(name, requiredSkill, unsuitableSkill, days.intValue(),
-								scoreBeforeVacation.intValue(), scoreAfterVacation.intValue(), offset.intValue());
+						return RosterImportSupport.createSpot(name, requiredSkillName, unsuitableSkillName, days,
+								scoreBeforeVacation, scoreAfterVacation, offset, skillMap, skillList);
 					});
 			Map<String, Spot> spotMap = spotList.stream().collect(Collectors.toMap(Spot::getName, spot -> spot));
-			List<TimeSlot> timeSlotList = generateTimeSlotList();
+			List<TimeSlot> timeSlotList = RosterImportSupport.generateTimeSlotList(startDate, endDate);
+			HorizonCalendar horizonCalendar = new HorizonCalendar(timeSlotList);
 
 			List<Employee> employeeList = readListSheet("Employees",
 					new String[] { "Name", "Skills", "Night Shift", "Time", "VIP", "Unskills", "SD", "FD" }, (Row row) -> {
 						String name = row.getCell(0).getStringCellValue();
-						Set<Skill> skillSet;
-						Set<Skill> sdSkillSet = Arrays.stream(row.getCell(6).getStringCellValue().split(","))
-								.map((skillName) -> {
-									skillName = skillName.trim();
-									if (skillName.equals("NONE")) {
-										return null;
-									}
-									Skill skill = skillMap.get(skillName + "_SD");
-									if (skill == null) {
-										throw new IllegalStateException("The skillName (" + skillName
-												+ ") does not exist in the skillList (" + skillList + ").");
-									}
-									return skill;
-								}).filter(s -> s != null).collect(Collectors.toSet());
-						skillSet = sdSkillSet;
-						Set<Skill> fdSkillSet = Arrays.stream(row.getCell(7).getStringCellValue().split(","))
-								.map((skillName) -> {
-									skillName = skillName.trim();
-									Skill skill = skillMap.get(skillName + "_FD");
-									if (skillName.equals("NONE")) {
-										return null;
-									}
-									if (skill == null) {
-										throw new IllegalStateException("The skillName (" + skillName
-												+ ") does not exist in the skillList (" + skillList + ").");
-									}
-									return skill;
-								}).filter(s -> s != null).collect(Collectors.toSet());
-						skillSet.addAll(fdSkillSet);
-						
-						if (skillSet.isEmpty()) {
-							throw new IllegalStateException("Employee " + name + " has no skills");
-						}
 						String nightShift = row.getCell(2).getStringCellValue();
-						if (!"n".equals(nightShift)) {
-							Skill nightSkill = skillMap.get("Night");
-							if (nightSkill == null) {
-								throw new IllegalStateException("Night Skill required");
-							}
-							skillSet.add(nightSkill);
-						}
-						Object f = row.getCell(5);
-						if (f != null) {
-							String unskillCellValue = row.getCell(5).getStringCellValue();
-							if (unskillCellValue != null && unskillCellValue.length() > 0) {
-								Set<Skill> unSkillSet = Arrays.stream(row.getCell(5).getStringCellValue().split(","))
-										.map((skillName) -> {
-											Skill skill = skillMap.get(skillName);
-											if (skill == null) {
-												throw new IllegalStateException("The skillName (" + skillName
-														+ ") does not exist in the skillList (" + skillList + ").");
-											}
-											return skill;
-										}).collect(Collectors.toSet());
-								skillSet.addAll(unSkillSet);
-							}
-						}
+						String unskillNames = row.getCell(5) == null ? null : row.getCell(5).getStringCellValue();
 
 						Double time = 100.0;
 						try {
@@ -290,12 +292,14 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 						} catch (IllegalStateException e) {
 							System.out.println("ERROR: Expected number cell for VIP in employee " + name);
 						}
-						Employee employee = new Employee(name, skillSet, time, vipFactor);
-						return employee;
+						return RosterImportSupport.createEmployee(name, row.getCell(6).getStringCellValue(),
+								row.getCell(7).getStringCellValue(), nightShift, unskillNames, time, vipFactor,
+								skillMap, skillList);
 					});
 			Map<String, Employee> employeeMap = employeeList.stream()
 					.collect(Collectors.toMap(Employee::getName, employee -> employee));
-			List<ShiftAssignment> shiftAssignmentList = generateShiftAssignmentYear(timeSlotList, spotList);
+			List<ShiftAssignment> shiftAssignmentList = RosterImportSupport.generateShiftAssignmentYear(timeSlotList,
+					spotList);
 		
 			// read extra shifts (holidays...)
 			
@@ -303,37 +307,9 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 					new String[] { "Date", "Shifts", "Days" }, (Row row) -> {
 						Date extraDate = row.getCell(0).getDateCellValue();
 						LocalDate extraLocalDate = extraDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-						TimeSlot slot = getTimeSlotForDate(timeSlotList, extraLocalDate);
-						
-						int offset = extraLocalDate.getDayOfYear() - slot.getStartDateTime().getDayOfYear();
-							
-						
-						Set<Spot> spots = Arrays.stream(row.getCell(1).getStringCellValue().split(","))
-								.map((spotName) -> {
-									spotName = spotName.trim();
-									Spot spot = spotMap.get(spotName);
-									if (spot == null) {
-										throw new IllegalStateException("The spot (" + spotName
-												+ ") does not exist in the spotList" );
-									}
-									return spot;
-								}).filter(s -> s != null).collect(Collectors.toSet());
-
 						int days = (int)row.getCell(2).getNumericCellValue();
-						
-						List<ShiftAssignment> sas = new ArrayList<ShiftAssignment>();
-						
-						for (Spot spot : spots) {
-						Spot extraSpot = new Spot("EX_" + spot.getName(), spot.getRequiredSkill(), spot.getUnsuitableSkill(),
-								days, -50000, -50000, offset);
-
-						extraSpot.setIsExtraSpot(true);
-
-						ShiftAssignment sa = new ShiftAssignment(extraSpot, slot);
-						sas.add(sa);
-						}
-
-						return sas;
+						return RosterImportSupport.createExtraShiftAssignments(extraLocalDate,
+								row.getCell(1).getStringCellValue(), days, horizonCalendar, spotMap);
 					});
 			
 			for (List<ShiftAssignment> sas : extraShifts) {
@@ -341,13 +317,14 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 					shiftAssignmentList.add(sa);
 				}
 			}
-			// read vacation days only
+			// read vacation days and fixed shift assignments in 1 pass
+			ShiftAssignmentPinIndex pinIndex = new ShiftAssignmentPinIndex(spotList, shiftAssignmentList);
 			readDayGridSheet("Vacation Calendar", new String[] { "Name" }, (Row row) -> {
 				Cell cell = row.getCell(0);
 				if (cell == null) {
 					return null;
 				}
-				String employeeName = trimEmployeeName(cell.getStringCellValue());
+				String employeeName = RosterImportSupport.trimEmployeeName(cell.getStringCellValue());
 				Employee employee = employeeMap.get(employeeName);
 				if (employee == null) {
 					System.out.println("The employeeName (" + employeeName + ") does not exist in the employeeList ("
@@ -356,208 +333,21 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 					// + ") does not exist in the employeeList (" + employeeList + ").");
 				}
 				return employee;
-			}, timeSlotList, (Pair<Employee, LocalDate> pair, Cell cell) -> {
-				if (cell == null)
-					return null;
-				if (hasStyle(cell, UNAVAILABLE_COLOR)) {
-					Employee employee = pair.getKey();
-					LocalDate date = pair.getValue();
-					if (employee.getUndesirableDateSet().contains(date)) {
-						employee.getUndesirableDateSet().remove(date);
-					}
-					employee.getUnavailableDateSet().add(date);
-					employee.getUndesirableDateSet().add(date.plusDays(1));
-					LocalDate previousDay = date.plusDays(-1);
+			}, (Employee employee, LocalDate date, Cell cell) -> {
+				if (hasStyle(cell, StyleCategoryIndex.UNAVAILABLE)) {
+					RosterImportSupport.markUnavailable(employee, date);
 				}
-				return null;
-			});
-			
-			//read fixed shift assignments
-			readDayGridSheet("Vacation Calendar", new String[] { "Name" }, (Row row) -> {
-				Cell cell = row.getCell(0);
-				if (cell == null) {
-					return null;
-				}
-				String employeeName = trimEmployeeName(cell.getStringCellValue());
-				Employee employee = employeeMap.get(employeeName);
-				return employee;
-			}, timeSlotList, (Pair<Employee, LocalDate> pair, Cell cell) -> {
-				if (cell == null)
-					return null;
-				if (hasStyle(cell, LOCKED_BY_USER_COLOR)) {
-					String spotName = cell.getStringCellValue();
-					Employee employee = pair.getKey();
-					LocalDate date = pair.getValue();
-					Spot setSpot = spotList.stream().filter(s -> s.getName().equals(spotName)).findFirst().orElse(null);
-					if (setSpot == null) {
-						throw new IllegalStateException("Employee " + employee.getName() + " fixed to non exisiting spot " + spotName);
-					}
-					System.out.println("Employee " + employee.getName() + " fixed to spot " + setSpot.getName() + 
-							" on " + date.toString());
-					
-					// get spot for date, slow but doesn't matter
-					ShiftAssignment fixedSA = shiftAssignmentList.stream().filter(sa -> 
-						sa.getSpot().getName().equals(setSpot.getName()) &&
-						sa.getDays().contains(date)).findFirst().orElse(null);
-					
-					if (fixedSA == null) {
-						throw new IllegalStateException("Employee " + employee.getName() + 
-								" fixed to existing spot " + spotName + " but not found in ShiftAssignment List");
-					}
-					
-					fixedSA.setEmployee(employee);
-					fixedSA.setLockedByUser(true);
-					
+				if (hasStyle(cell, StyleCategoryIndex.LOCKED_BY_USER)) {
+					RosterImportSupport.lockShiftAssignment(employee, date, cell.getStringCellValue(), pinIndex);
 				}
-				return null;
 			});
-			
-			
-			calculateVacationTimeSlotsFromDates(timeSlotList, employeeList);
-			calculateBeforeAfterVacationTimeSlots(timeSlotList, employeeList);
+
+			RosterImportSupport.calculateVacationTimeSlotsFromDates(horizonCalendar, employeeList);
+			RosterImportSupport.calculateBeforeAfterVacationTimeSlots(horizonCalendar, employeeList);
 			return new Roster(rosterParametrization, skillList, spotList, timeSlotList, employeeList,
 					shiftAssignmentList);
 		}
 
-		private TimeSlot getTimeSlotForDate(List<TimeSlot> timeSlots, LocalDate date) {
-			for (TimeSlot slot : timeSlots) {
-				int slotStartDayYear = slot.getStartDateTime().getYear() * 10000 + slot.getStartDateTime().getDayOfYear();
-				int slotEndDayYear = slot.getEndDateTime().getYear() * 10000 + slot.getEndDateTime().getDayOfYear();
-				int dateDayYear = date.getYear() * 10000 + date.getDayOfYear();
-
-				if (slotStartDayYear <= dateDayYear && slotEndDayYear >= dateDayYear) {
-					return slot;
-				}
-			}
-			
-			throw new IllegalStateException("Date " + date.toString() + " not matched to timeslot");
-		}
-
-		private void calculateBeforeAfterVacationTimeSlots(List<TimeSlot> timeSlots, List<Employee> employeeList) {
-			// if vacation includes Monday, previous timeslot (S-F) is before vacation
-			for (Employee employee : employeeList) {
-				Set<LocalDate> vacationDays = employee.getUnavailableDateSet();
-				Set<LocalDate> undesirableDays = employee.getUndesirableDateSet();
-				Set<TimeSlot> vacationSlots = employee.getUnavailableTimeSlotSet();
-				Set<TimeSlot> beforeVacationSlots = employee.getBeforeVacationTimeSlotSet();
-				Set<TimeSlot> afterVacationSlots = employee.getAfterVacationTimeSlotSet();
-
-				for (LocalDate vacationDay : vacationDays) {
-					if (vacationDay.getDayOfWeek() != DayOfWeek.MONDAY) continue;
-					// get previous timeslot (ending previous friday)
-					LocalDate previousFriday = vacationDay.plusDays(-3);
-
-					assert(previousFriday.getDayOfWeek() == DayOfWeek.FRIDAY);
-
-					if (vacationDays.contains(previousFriday)) continue;
-
-					for (TimeSlot slot : timeSlots) {
-						LocalDate end = slot.getEndDateTime().toLocalDate().plusDays(-1);
-						if (end.isEqual(previousFriday)) {
-							beforeVacationSlots.add(slot);
-						}
-					}
-					
-					// set weekend before as undesirable
-					undesirableDays.add(previousFriday.plusDays(1));
-					undesirableDays.add(previousFriday.plusDays(2));
-				}
-
-				for (LocalDate vacationDay : vacationDays) {
-					if (vacationDay.getDayOfWeek() != DayOfWeek.FRIDAY) continue;
-					// get next timeslot (starting next saturday)
-					LocalDate nextSaturday = vacationDay.plusDays(1);
-
-					assert(nextSaturday.getDayOfWeek() == DayOfWeek.SATURDAY);
-
-					if (vacationDays.contains(nextSaturday)) continue;
-
-					for (TimeSlot slot : timeSlots) {
-						LocalDate start = slot.getStartDateTime().toLocalDate();
-						if (start.isEqual(nextSaturday)) {
-							afterVacationSlots.add(slot);
-						}
-					}
-
-					// set weekend after as undesirable
-					undesirableDays.add(nextSaturday);
-					undesirableDays.add(nextSaturday.plusDays(1));
-				}
-			}
-		}
-
-		private void calculateVacationTimeSlotsFromDates(List<TimeSlot> timeSlots, List<Employee> employeeList) {
-			// to reuse some of the week based calculations, calculate week based vacation timeslots from
-			// dates
-			
-			// vacation day in saturday to friday period => set timeslot as vacation
-			for (Employee employee : employeeList) {
-				Set<LocalDate> vacationDays = employee.getUnavailableDateSet();
-				Set<TimeSlot> vacationSlots = employee.getUnavailableTimeSlotSet();
-
-				for (TimeSlot slot : timeSlots) {
-					LocalDate start = slot.getStartDateTime().toLocalDate();
-					LocalDate end = slot.getEndDateTime().toLocalDate();
-					for (LocalDate date = start; date.isBefore(end); date = date.plusDays(1)) {
-						if (vacationDays.contains(date) && !vacationSlots.contains(slot)) {
-							vacationSlots.add(slot);
-						}
-					}
-				}
-			}
-		}
-
-		private String trimEmployeeName(String employeeName) {
-			return employeeName.split(" ")[0];
-
-		}
-
-		private TimeSlot getNextTimeSlot(List<TimeSlot> slots, TimeSlot slot) {
-			for (int i = 0; i < slots.size() - 1; ++i) {
-				if (slots.get(i) == slot) {
-					return slots.get(i + 1);
-				}
-			}
-			return null;
-		}
-
-		private TimeSlot getPreviousTimeSlot(List<TimeSlot> slots, TimeSlot slot) {
-			for (int i = 1; i < slots.size(); ++i) {
-				if (slots.get(i) == slot) {
-					return slots.get(i - 1);
-				}
-			}
-			return null;
-		}
-
-		private List<TimeSlot> generateTimeSlotList() {
-			List<TimeSlot> slots = new ArrayList<TimeSlot>();
-			LocalDateTime startDate = LocalDateTime.of(2019, 1, 5, 0, 0);
-			while (startDate.getYear() < 2020) {
-
-				LocalDateTime endDate = startDate.plusWeeks(1);
-				TimeSlot slot = new TimeSlot(startDate, endDate);
-				slot.setTimeSlotState(TimeSlotState.DRAFT);
-				slots.add(slot);
-				startDate = endDate;
-			}
-
-			return slots;
-		}
-
-		private List<ShiftAssignment> generateShiftAssignmentYear(List<TimeSlot> timeSlotList, List<Spot> spotList) {
-			List<ShiftAssignment> shiftAssignments = new ArrayList<ShiftAssignment>();
-
-			for (TimeSlot slot : timeSlotList) {
-				for (Spot spot : spotList) {
-
-					ShiftAssignment sa = new ShiftAssignment(spot, slot);
-					shiftAssignments.add(sa);
-				}
-			}
-			return shiftAssignments;
-		}
-
 		private <E> List<E> readListSheet(String sheetName, String[] headerTitles, Function<Row, E> rowMapper) {
 
 			return readListSheet(sheetName, headerTitles, rowMapper, 2);
@@ -570,25 +360,7 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 			if (sheet == null) {
 				throw new IllegalStateException("The workbook does not contain a sheet with name (" + sheetName + ").");
 			}
-			Row headerRow = sheet.getRow(numHeaderRows - 1);
-			if (headerRow == null) {
-				throw new IllegalStateException("The sheet (" + sheetName + ") has no header data at row (1).");
-			}
-			int columnNumber = 0;
-			for (String headerTitle : headerTitles) {
-				Cell cell = headerRow.getCell(columnNumber);
-				if (cell == null) {
-					throw new IllegalStateException("The sheet (" + sheetName + ") at header cell ("
-							+ cell.getRowIndex() + "," + cell.getColumnIndex() + ") does not contain the headerTitle ("
-							+ headerTitle + ").");
-				}
-				if (!cell.getStringCellValue().equals(headerTitle)) {
-					throw new IllegalStateException("The sheet (" + sheetName + ") at header cell ("
-							+ cell.getRowIndex() + "," + cell.getColumnIndex() + ") does not contain the headerTitle ("
-							+ headerTitle + "), it contains cellValue (" + cell.getStringCellValue() + ") instead.");
-				}
-				columnNumber++;
-			}
+			checkHeaderRow(sheet, sheetName, headerTitles, numHeaderRows - 1);
 			List<E> elementList = new ArrayList<>(sheet.getLastRowNum() - firstDataRowIndex);
 			for (int i = firstDataRowIndex; i <= sheet.getLastRowNum(); i++) {
 				Row row = sheet.getRow(i);
@@ -614,36 +386,60 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 			return elementList;
 		}
 
-		private <E, F> List<F> readDayGridSheet(String sheetName, String[] headerTitles, Function<Row, E> rowMapper,
-				List<TimeSlot> timeSlotList, BiFunction<Pair<E, LocalDate>, Cell, F> cellMapper) {
-			Sheet sheet = workbook.getSheet(sheetName);
-			int numHeaderRows = 0;
-			Row weekHeaderRow = sheet.getRow(numHeaderRows++);
-			Row monthHeaderRow = sheet.getRow(numHeaderRows++);
-			Row dayHeaderRow = sheet.getRow(numHeaderRows++);
-			Row weekDayHeaderRow = sheet.getRow(numHeaderRows++);
-
-			readListSheet(sheetName, headerTitles, rowMapper, numHeaderRows);
+		private void checkHeaderRow(Sheet sheet, String sheetName, String[] headerTitles, int headerRowIndex) {
+			Row headerRow = sheet.getRow(headerRowIndex);
+			if (headerRow == null) {
+				throw new IllegalStateException("The sheet (" + sheetName + ") has no header data at row ("
+						+ headerRowIndex + ").");
+			}
+			int columnNumber = 0;
+			for (String headerTitle : headerTitles) {
+				Cell cell = headerRow.getCell(columnNumber);
+				if (cell == null) {
+					throw new IllegalStateException("The sheet (" + sheetName + ") at header cell ("
+							+ cell.getRowIndex() + "," + cell.getColumnIndex() + ") does not contain the headerTitle ("
+							+ headerTitle + ").");
+				}
+				if (!cell.getStringCellValue().equals(headerTitle)) {
+					throw new IllegalStateException("The sheet (" + sheetName + ") at header cell ("
+							+ cell.getRowIndex() + "," + cell.getColumnIndex() + ") does not contain the headerTitle ("
+							+ headerTitle + "), it contains cellValue (" + cell.getStringCellValue() + ") instead.");
+				}
+				columnNumber++;
+			}
+		}
 
-			List<F> cellElementList = new ArrayList<>((sheet.getLastRowNum() - numHeaderRows) * timeSlotList.size());
+		/**
+		 * Reads every row once, with the date of each column computed up front.
+		 * Rows that the rowMapper maps to null are skipped.
+		 */
+		private <E> void readDayGridSheet(String sheetName, String[] headerTitles, Function<Row, E> rowMapper,
+				DayCellConsumer<E> cellConsumer) {
+			Sheet sheet = workbook.getSheet(sheetName);
+			if (sheet == null) {
+				throw new IllegalStateException("The workbook does not contain a sheet with name (" + sheetName + ").");
+			}
+			// Week, month, day and weekday rows, the last one holds the header titles
+			int numHeaderRows = 4;
+			checkHeaderRow(sheet, sheetName, headerTitles, numHeaderRows - 1);
+			LocalDate[] columnDates = RosterImportSupport.createColumnDates(headerTitles.length, startDate, endDate);
 			for (int i = numHeaderRows; i <= sheet.getLastRowNum(); i++) {
-				int columnNumber = headerTitles.length;
 				Row row = sheet.getRow(i);
 				if (row == null) {
 					continue;
 				}
 				E rowElement = rowMapper.apply(row);
-				for (LocalDate date = startDate; date.isBefore(endDate); date = date.plusDays(1)) {
+				if (rowElement == null) {
+					continue;
+				}
+				int lastColumnNumber = Math.min(row.getLastCellNum(), columnDates.length);
+				for (int columnNumber = headerTitles.length; columnNumber < lastColumnNumber; columnNumber++) {
 					Cell cell = row.getCell(columnNumber);
-
-					F cellElement = cellMapper.apply(Pair.of(rowElement, date), cell);
-					if (cellElement != null) {
-						cellElementList.add(cellElement);
+					if (cell != null) {
+						cellConsumer.accept(rowElement, columnDates[columnNumber], cell);
 					}
-					columnNumber++;
 				}
 			}
-			return cellElementList;
 		}
 
 		private <E, F> List<F> readGridSheet(String sheetName, String[] headerTitles, Function<Row, E> rowMapper,
@@ -705,50 +501,105 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 			return cellElementList;
 		}
 
-		private boolean hasStyle(Cell cell, IndexedColors color) {
-			Boolean isIndexedMatch = cell.getCellStyle().getFillForegroundColor() == color.getIndex()
-					&& cell.getCellStyle().getFillPattern() == CellStyle.SOLID_FOREGROUND;
-			if (isIndexedMatch)
-				return true;
-
-			if (cell.getCellStyle().getFillBackgroundColor() == 0
-					|| cell.getCellStyle().getFillBackgroundColor() == 64) {
-				org.apache.poi.xssf.usermodel.XSSFColor col = (org.apache.poi.xssf.usermodel.XSSFColor) cell
-						.getCellStyle().getFillForegroundColorColor();
-				if (col != null) {
-					if (color == NON_EXISTING_COLOR) {
-						return Objects.equals(col.getARGBHex(), NON_EXISTING_COLOR_STRING);
-					}
-					if (color == LOCKED_BY_USER_COLOR) {
-						return Objects.equals(col.getARGBHex(), LOCKED_BY_USER_COLOR_STRING);
-					}
-					if (color == UNAVAILABLE_COLOR) {
-						return Objects.equals(col.getARGBHex(), UNAVAILABLE_COLOR_STRING)
-								|| Objects.equals(col.getARGBHex(), UNAVAILABLE_COLOR_STRING2)
-								|| Objects.equals(col.getARGBHex(), UNAVAILABLE_COLOR_STRING3)
-								|| Objects.equals(col.getARGBHex(), UNAVAILABLE_COLOR_STRING4);
-					}
-				}
-			}
-			return false;
+		private interface DayCellConsumer<E> {
+
+			void accept(E rowElement, LocalDate date, Cell cell);
+
+		}
+
+		private boolean hasStyle(Cell cell, int styleCategory) {
+			return styleCategoryIndex.is(cell.getCellStyle().getIndex() & 0xFFFF, styleCategory);
 		}
 	}
 
+	static String[] getArgbHexes(IndexedColors color) {
+		if (color == NON_EXISTING_COLOR) {
+			return new String[] { NON_EXISTING_COLOR_STRING };
+		}
+		if (color == LOCKED_BY_USER_COLOR) {
+			return new String[] { LOCKED_BY_USER_COLOR_STRING };
+		}
+		if (color == UNAVAILABLE_COLOR) {
+			return new String[] { UNAVAILABLE_COLOR_STRING, UNAVAILABLE_COLOR_STRING2, UNAVAILABLE_COLOR_STRING3,
+					UNAVAILABLE_COLOR_STRING4 };
+		}
+		if (color == UNDESIRABLE_COLOR) {
+			return new String[] { UNDESIRABLE_COLOR_STRING };
+		}
+		return new String[0];
+	}
+
+	/**
+	 * Streams the rows to disk, so only {@link #STREAMING_ROW_WINDOW} rows per sheet are in memory,
+	 * regardless of the number of skill calendars.
+	 */
 	public void write(Roster roster, Solver<Roster> solver, File outputSolutionFile) {
 		roster.Solver = solver;
-		Workbook workbook = new RosterWriter(roster).writeWorkbook();
+		write(roster, getScoreDirectorFactory(solver), outputSolutionFile);
+	}
+
+	/**
+	 * Like {@link #write(Roster, Solver, File)}, but without a solver, for example for a roster that wasn't solved.
+	 * @param scoreDirectorFactory null to leave out the "Score Summary" and "Score Details" sheets,
+	 * otherwise it scores the roster for them
+	 */
+	public void write(Roster roster, ScoreDirectorFactory<Roster> scoreDirectorFactory, File outputSolutionFile) {
+		writeWorkbook(roster, new SXSSFWorkbook(STREAMING_ROW_WINDOW), outputSolutionFile, scoreDirectorFactory,
+				false);
+	}
+
+	/**
+	 * Builds the entire workbook in memory, which {@link #write(Roster, Solver, File)} avoids.
+	 */
+	public void writeWithDom(Roster roster, Solver<Roster> solver, File outputSolutionFile) {
+		roster.Solver = solver;
+		writeWorkbook(roster, new XSSFWorkbook(), outputSolutionFile, getScoreDirectorFactory(solver), false);
+	}
+
+	private static ScoreDirectorFactory<Roster> getScoreDirectorFactory(Solver<Roster> solver) {
+		return solver == null ? null : solver.getScoreDirectorFactory();
+	}
+
+	/**
+	 * Writes the layout that {@link #read(File)} reads, instead of the solved layout of {@link #write(Roster, File)}:
+	 * the skills, spots, employees, extra shifts and a "Vacation Calendar" with the vacations and the pins.
+	 * The assignments that aren't locked by the user are a solution, so they are left out,
+	 * and so are the pins of extra shifts, which a locked cell can't name.
+	 * The days of the calendar come from the time slots of the roster, read it back with that planning period.
+	 */
+	public void writeInput(Roster roster, File outputSolutionFile) {
+		writeWorkbook(roster, new SXSSFWorkbook(STREAMING_ROW_WINDOW), outputSolutionFile, null, true);
+	}
+
+	private void writeWorkbook(Roster roster, Workbook workbook, File outputSolutionFile,
+			ScoreDirectorFactory<Roster> scoreDirectorFactory, boolean inputLayout) {
 		try (FileOutputStream out = new FileOutputStream(outputSolutionFile)) {
+			RosterWriter rosterWriter = new RosterWriter(roster, workbook, scoreDirectorFactory);
+			if (inputLayout) {
+				rosterWriter.writeInputWorkbook();
+			} else {
+				rosterWriter.writeWorkbook();
+			}
 			workbook.write(out);
 		} catch (IOException e) {
 			throw new IllegalStateException(
 					"Failed writing outputSolutionFile (" + outputSolutionFile + ") for roster (" + roster + ").", e);
+		} finally {
+			if (workbook instanceof SXSSFWorkbook) {
+				// Delete the temp files with the flushed rows
+				((SXSSFWorkbook) workbook).dispose();
+			}
 		}
 	}
 
 	private static class RosterWriter {
 
 		private final Roster roster;
-		private final Solver<Roster> solver;
+		// Null if there are no score sheets
+		private final ScoreDirectorFactory<Roster> scoreDirectorFactory;
+		// The days of the calendar sheets, from the time slots of the roster
+		private final LocalDate startDate;
+		private final LocalDate endDate;
 
 		private final Workbook workbook;
 		private final CellStyle headerStyle;
@@ -759,10 +610,24 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 		private final CellStyle unavailableStyle;
 		private final CellStyle undesirableStyle;
 
-		public RosterWriter(Roster roster) {
+		// Built on first use, shared by all calendar sheets
+		private Map<Employee, CalendarRow> calendarRowMap = null;
+		// Built on first use, shared by both summary sheets
+		private SummaryAggregation summaryAggregation = null;
+
+		/**
+		 * @param workbook never null, empty, rows are only created in order, so it can be an {@link SXSSFWorkbook}
+		 */
+		public RosterWriter(Roster roster, Workbook workbook, ScoreDirectorFactory<Roster> scoreDirectorFactory) {
 			this.roster = roster;
-			this.solver = roster.Solver;
-			workbook = new XSSFWorkbook();
+			this.scoreDirectorFactory = scoreDirectorFactory;
+			this.workbook = workbook;
+			List<TimeSlot> timeSlotList = roster.getTimeSlotList();
+			startDate = timeSlotList.stream().map(timeSlot -> timeSlot.getStartDateTime().toLocalDate())
+					.min(Comparator.naturalOrder()).orElse(DEFAULT_START_DATE);
+			// A time slot that ends during a day includes that day
+			endDate = timeSlotList.stream().map(timeSlot -> timeSlot.getEndDateTime().minusNanos(1).toLocalDate())
+					.max(Comparator.naturalOrder()).map(lastDate -> lastDate.plusDays(1)).orElse(startDate);
 			headerStyle = workbook.createCellStyle();
 			Font font = workbook.createFont();
 			font.setBold(true);
@@ -879,9 +744,118 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 			return workbook;
 		}
 
+		/**
+		 * The sheets and columns that {@link RosterReader} and {@link StreamingRosterReader} read.
+		 */
+		public Workbook writeInputWorkbook() {
+			writeListSheet("Skills", new String[] { "Name" }, roster.getSkillList(), (Row row, Skill skill) -> {
+				row.createCell(0).setCellValue(skill.getName());
+			});
+			writeListSheet("Spots", new String[] { "Name", "Required skill", "Unsuitable Skill", "Days",
+					"Score Before Vacation", "Score After Vacation", "Offset" }, roster.getSpotList(),
+					(Row row, Spot spot) -> {
+						row.createCell(0).setCellValue(spot.getName());
+						row.createCell(1).setCellValue(spot.getRequiredSkill().getName());
+						if (spot.getUnsuitableSkill() != null) {
+							row.createCell(2).setCellValue(spot.getUnsuitableSkill().getName());
+						}
+						row.createCell(3).setCellValue(spot.getDays());
+						row.createCell(4).setCellValue(spot.getScoreBeforeVacation());
+						row.createCell(5).setCellValue(spot.getScoreAfterVacation());
+						row.createCell(6).setCellValue(spot.getOffset());
+					});
+			writeListSheet("Employees",
+					new String[] { "Name", "Skills", "Night Shift", "Time", "VIP", "Unskills", "SD", "FD" },
+					roster.getEmployeeList(), (Row row, Employee employee) -> {
+						String[] skillFields = RosterImportSupport.splitSkillNames(employee);
+						row.createCell(0).setCellValue(employee.getName());
+						row.createCell(1).setCellValue(
+								employee.getSkillSet().stream().map(Skill::getName).collect(Collectors.joining(",")));
+						row.createCell(2).setCellValue(skillFields[2]);
+						row.createCell(3).setCellValue(employee.getBaseTime());
+						row.createCell(4).setCellValue(employee.getVIPFactor());
+						row.createCell(5).setCellValue(skillFields[3]);
+						row.createCell(6).setCellValue(skillFields[0]);
+						row.createCell(7).setCellValue(skillFields[1]);
+					});
+			CellStyle dateStyle = workbook.createCellStyle();
+			dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+			List<ShiftAssignment> extraShiftAssignmentList = roster.getShiftAssignmentList().stream()
+					.filter(shiftAssignment -> shiftAssignment.getSpot().getIsExtraSpot())
+					.collect(Collectors.toList());
+			writeListSheet("Extra Shifts", new String[] { "Date", "Shifts", "Days" }, extraShiftAssignmentList,
+					(Row row, ShiftAssignment shiftAssignment) -> {
+						LocalDate date = RosterImportSupport.findExtraShiftDate(shiftAssignment);
+						Cell dateCell = row.createCell(0);
+						// In the default time zone, like the readers convert it back
+						dateCell.setCellValue(Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+						dateCell.setCellStyle(dateStyle);
+						row.createCell(1).setCellValue(RosterImportSupport.getBaseSpotName(shiftAssignment.getSpot()));
+						row.createCell(2).setCellValue(shiftAssignment.getSpot().getDays());
+					});
+			Map<Employee, CalendarRow> inputCalendarRowMap = buildInputCalendarRowMap();
+			writeCalendarSheet("Vacation Calendar", new String[] { "Name" }, roster.getEmployeeList(),
+					(Row row, Employee employee) -> {
+						row.createCell(0).setCellValue(employee.getName());
+						writeCalendarDays(row, 1, inputCalendarRowMap.get(employee));
+					});
+			return workbook;
+		}
+
+		/**
+		 * The vacations and the pins of every employee. A pin goes on a day that the reader resolves
+		 * to that shift assignment: a shift of a spot with more than 7 days shares its first day
+		 * with the previous shift of that spot.
+		 */
+		private Map<Employee, CalendarRow> buildInputCalendarRowMap() {
+			int dayCount = (int) ChronoUnit.DAYS.between(startDate, endDate);
+			Map<Employee, CalendarRow> inputCalendarRowMap = new IdentityHashMap<>(roster.getEmployeeList().size());
+			for (Employee employee : roster.getEmployeeList()) {
+				String[] values = new String[dayCount];
+				CellStyle[] styles = new CellStyle[dayCount];
+				markCalendarDays(values, styles, employee.getUnavailableDateSet(), unavailableStyle);
+				inputCalendarRowMap.put(employee, new CalendarRow(values, styles));
+			}
+			ShiftAssignmentPinIndex pinIndex = new ShiftAssignmentPinIndex(roster.getSpotList(),
+					roster.getShiftAssignmentList());
+			for (ShiftAssignment shiftAssignment : roster.getShiftAssignmentList()) {
+				Employee employee = shiftAssignment.getEmployee();
+				if (!shiftAssignment.isLockedByUser() || employee == null) {
+					continue;
+				}
+				Spot spot = pinIndex.findSpot(shiftAssignment.getSpot().getName());
+				if (spot == null) {
+					System.out.println("The pinned extra shift assignment (" + shiftAssignment
+							+ ") can't be written as a locked cell.");
+					continue;
+				}
+				CalendarRow calendarRow = inputCalendarRowMap.get(employee);
+				if (calendarRow == null) {
+					throw new IllegalStateException("The pinned shift assignment (" + shiftAssignment
+							+ ") has an employee (" + employee + ") that isn't in the employeeList.");
+				}
+				int pinDayIndex = -1;
+				for (LocalDate day : shiftAssignment.getDays()) {
+					int dayIndex = getColumnNumberForDate(0, day);
+					if (dayIndex >= 0 && dayIndex < dayCount && calendarRow.values[dayIndex] == null
+							&& pinIndex.findShiftAssignment(spot, day) == shiftAssignment) {
+						pinDayIndex = dayIndex;
+						break;
+					}
+				}
+				if (pinDayIndex < 0) {
+					throw new IllegalStateException("The pinned shift assignment (" + shiftAssignment
+							+ ") has no free day in the calendar of its employee (" + employee + ").");
+				}
+				calendarRow.values[pinDayIndex] = spot.getName();
+				calendarRow.styles[pinDayIndex] = lockedByUserStyle;
+			}
+			return inputCalendarRowMap;
+		}
+
 		private void writeSummary(String sheetName, List<Employee> employees) {
+			SummaryAggregation aggregation = getSummaryAggregation();
 			List<String> summaryHeader = new ArrayList<String>();
-			List<String> shiftTypes = new ArrayList<String>();
 
 			summaryHeader.add("Name");
 			summaryHeader.add("Total Shifts");
@@ -892,57 +866,46 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 			summaryHeader.add("Total Cost Extra");
 			for (Spot spot : roster.getSpotList()) {
 				summaryHeader.add(spot.getName());
-				if (!shiftTypes.contains(spot.getShiftType())) {
-					shiftTypes.add(spot.getShiftType());
-				}
-			}
-			for (String shiftType : shiftTypes) {
-				summaryHeader.add(shiftType);
 			}
+			summaryHeader.addAll(aggregation.shiftTypeList);
 
 			writeListSheet(sheetName, summaryHeader.toArray(new String[summaryHeader.size()]), employees,
 					(Row row, Employee emp) -> {
 						row.createCell(0).setCellValue(emp.getInfo());
-						List<ShiftAssignment> er = roster.getEmployeeAssignments(emp);
-
-						int totalShifts = er.size();
-						double totalDays = er.stream().mapToDouble(s -> s.getSpot().getDays()).sum();
-						double totalCost = er.stream().mapToDouble(s -> s.getCost()).sum();
-						double normalizedDays = totalDays * 100.0 / emp.getTime();
-						double totalDaysExtra = er.stream().filter(s -> s.getSpot().getIsExtraSpot()).mapToDouble(s -> s.getSpot().getDays()).sum();
-						double totalCostExtra = er.stream().filter(s -> s.getSpot().getIsExtraSpot()).mapToDouble(s -> s.getCost()).sum();
+						int e = aggregation.employeeIndexMap.get(emp.getName());
 
 						int cell = 0;
-						row.createCell(++cell).setCellValue(totalShifts);
-						row.createCell(++cell).setCellValue(totalDays);
-						row.createCell(++cell).setCellValue(totalCost);
-						row.createCell(++cell).setCellValue(normalizedDays);
-						row.createCell(++cell).setCellValue(totalDaysExtra);
-						row.createCell(++cell).setCellValue(totalCostExtra);
-						for (Spot spot : roster.getSpotList()) {
-							long spotCnt = er.stream().filter(a -> a.getSpot() == spot).count();
-
-							long spotCost = er.stream().filter(a -> a.getSpot() == spot)
-									.mapToLong(a -> a.getAdjustedCost()).sum();
-							String val = spotCnt + " (" + spotCost + ")";
+						row.createCell(++cell).setCellValue(aggregation.shiftCounts[e]);
+						row.createCell(++cell).setCellValue(aggregation.totalDays[e]);
+						row.createCell(++cell).setCellValue(aggregation.totalCosts[e]);
+						row.createCell(++cell).setCellValue(aggregation.totalDays[e] * 100.0 / emp.getTime());
+						row.createCell(++cell).setCellValue(aggregation.totalDaysExtra[e]);
+						row.createCell(++cell).setCellValue(aggregation.totalCostsExtra[e]);
+						for (int s = 0; s < roster.getSpotList().size(); s++) {
+							String val = aggregation.spotCounts[e][s] + " (" + aggregation.spotAdjustedCosts[e][s] + ")";
 							row.createCell(++cell).setCellValue(val);
 						}
-						for (String shiftType : shiftTypes) {
-							long typeCnt = er.stream().filter(a -> a.getSpot().getShiftType().equals(shiftType))
-									.count();
-							long typeCost = er.stream().filter(a -> a.getSpot().getShiftType().equals(shiftType))
-									.mapToLong(a -> a.getAdjustedCost()).sum();
-							String val = typeCnt + " (" + typeCost + ")";
+						for (int t = 0; t < aggregation.shiftTypeList.size(); t++) {
+							String val = aggregation.shiftTypeCounts[e][t]
+									+ " (" + aggregation.shiftTypeAdjustedCosts[e][t] + ")";
 							row.createCell(++cell).setCellValue(val);
 						}
 					});
 
 		}
 
+		private SummaryAggregation getSummaryAggregation() {
+			if (summaryAggregation == null) {
+				summaryAggregation = new SummaryAggregation(roster);
+			}
+			return summaryAggregation;
+		}
+
 		private void writeScoreSummary() {
-			if (solver != null) {
-				ScoreDirector<Roster> score = solver.getScoreDirectorFactory().buildScoreDirector();
-				score.setWorkingSolution(solver.getBestSolution());
+			if (scoreDirectorFactory != null) {
+				ScoreDirector<Roster> score = scoreDirectorFactory.buildScoreDirector();
+				score.setWorkingSolution(roster);
+				score.calculateScore();
 				Collection<ConstraintMatchTotal> matchTotals = score.getConstraintMatchTotals();
 				Map<Object, Indictment> indictment = score.getIndictmentMap();
 
@@ -969,19 +932,21 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 								}
 							}
 						});
+				score.dispose();
 			}
 		}
 
 		private void writeSkillCalendars() {
+			// Every sheet reuses the calendar rows of the "Calendar" sheet, only the employees differ
 			for (Skill skill : roster.getSkillList()) {
-				List<Employee> skilledEmployees = roster.getEmployeeList().stream().filter(e -> e.getHasSkill(skill)).collect(Collectors.toList());
 				String sheetName = "Cal_" + skill.getName();
+				List<Employee> skilledEmployeeList = roster.getEmployeeList().stream()
+						.filter(employee -> employee.getHasSkill(skill)).collect(Collectors.toList());
 
-				writeCalendar(sheetName, new String[] { "Name" }, false, skilledEmployees,
+				writeCalendar(sheetName, new String[] { "Name" }, false, skilledEmployeeList,
 					(Row row, Employee employee) -> {
 						row.createCell(0).setCellValue(employee.getInfo());
 					});
-			
 			}
 		}
 
@@ -992,11 +957,20 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 
 		private <E> Sheet writeListSheet(String sheetName, String[] headerTitles, Collection<E> elementList,
 				BiConsumer<Row, E> rowConsumer, int startRow) {
+			return writeListSheet(sheetName, headerTitles, elementList, rowConsumer, startRow, row -> {});
+		}
+
+		/**
+		 * @param headerRowConsumer fills in the rows above the data rows, including the header title row,
+		 * because a streamed row can't be revisited after the data rows are written
+		 */
+		private <E> Sheet writeListSheet(String sheetName, String[] headerTitles, Collection<E> elementList,
+				BiConsumer<Row, E> rowConsumer, int startRow, Consumer<Row> headerRowConsumer) {
 			Sheet sheet = workbook.createSheet(sheetName);
 			sheet.setDefaultColumnWidth(20);
 			int rowNumber = 0;
 			do {
-				sheet.createRow(rowNumber++); // Leave empty
+				headerRowConsumer.accept(sheet.createRow(rowNumber++)); // Leave empty
 			} while (rowNumber < startRow);
 
 			Row headerRow = sheet.createRow(rowNumber++);
@@ -1007,6 +981,7 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 				cell.setCellStyle(headerStyle);
 				columnNumber++;
 			}
+			headerRowConsumer.accept(headerRow);
 			sheet.createFreezePane(1, 2);
 			for (E element : elementList) {
 				Row row = sheet.createRow(rowNumber);
@@ -1018,154 +993,149 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 
 		private <E> void writeGridSheet(String sheetName, String[] headerTitles, List<E> rowElementList,
 				BiConsumer<Row, E> rowConsumer, BiConsumer<Cell, Pair<E, TimeSlot>> cellConsumer) {
-			Sheet sheet = writeListSheet(sheetName, headerTitles, rowElementList, rowConsumer);
-			sheet.setDefaultColumnWidth(5);
-			sheet.createFreezePane(headerTitles.length, 2);
-			Row higherHeaderRow = sheet.getRow(0);
-			Row lowerHeaderRow = sheet.getRow(1);
-			int columnNumber = headerTitles.length;
-			for (TimeSlot timeSlot : roster.getTimeSlotList()) {
-				if (timeSlot.getStartDateTime().getHour() == 6) {
-					Cell cell = higherHeaderRow.createCell(columnNumber);
-					cell.setCellValue(timeSlot.getStartDateTime().toLocalDate().format(DAY_FORMATTER));
-					cell.setCellStyle(headerStyle);
-					sheet.addMergedRegion(new CellRangeAddress(0, 0, columnNumber, columnNumber + 2));
-				}
-				Cell cell = lowerHeaderRow.createCell(columnNumber);
-				cell.setCellValue(timeSlot.getSlotName());
-				cell.setCellStyle(headerStyle);
-				columnNumber++;
-			}
-			int rowNumber = 2;
-			for (E rowElement : rowElementList) {
-				Row row = sheet.getRow(rowNumber);
-				columnNumber = headerTitles.length;
+			List<CellRangeAddress> mergedRegionList = new ArrayList<>();
+			Sheet sheet = writeListSheet(sheetName, headerTitles, rowElementList, (Row row, E rowElement) -> {
+				rowConsumer.accept(row, rowElement);
+				int columnNumber = headerTitles.length;
 				for (TimeSlot timeSlot : roster.getTimeSlotList()) {
 					Cell cell = row.createCell(columnNumber);
 					cellConsumer.accept(cell, Pair.of(rowElement, timeSlot));
 					columnNumber++;
 				}
-				rowNumber++;
-			}
+			}, 1, (Row headerRow) -> {
+				boolean higherHeaderRow = headerRow.getRowNum() == 0;
+				int columnNumber = headerTitles.length;
+				for (TimeSlot timeSlot : roster.getTimeSlotList()) {
+					if (higherHeaderRow) {
+						if (timeSlot.getStartDateTime().getHour() == 6) {
+							Cell cell = headerRow.createCell(columnNumber);
+							cell.setCellValue(timeSlot.getStartDateTime().toLocalDate().format(DAY_FORMATTER));
+							cell.setCellStyle(headerStyle);
+							mergedRegionList.add(new CellRangeAddress(0, 0, columnNumber, columnNumber + 2));
+						}
+					} else {
+						Cell cell = headerRow.createCell(columnNumber);
+						cell.setCellValue(timeSlot.getSlotName());
+						cell.setCellStyle(headerStyle);
+					}
+					columnNumber++;
+				}
+			});
+			sheet.setDefaultColumnWidth(5);
+			sheet.createFreezePane(headerTitles.length, 2);
+			mergedRegionList.forEach(sheet::addMergedRegion);
 		}
 
 		private void writeCalendar(String sheetName, String[] headerTitles, Boolean vacationOnly,
 				List<Employee> employeeList, BiConsumer<Row, Employee> rowConsumer) {
+			writeCalendarSheet(sheetName, headerTitles, employeeList, (Row row, Employee employee) -> {
+				rowConsumer.accept(row, employee);
+				writeCalendarDays(row, headerTitles.length, getCalendarRowMap().get(employee));
+			});
+		}
 
-			Sheet sheet = writeListSheet(sheetName, headerTitles, employeeList, rowConsumer, 3);
+		/**
+		 * @param rowConsumer writes the header title columns and the day columns of a row
+		 */
+		private void writeCalendarSheet(String sheetName, String[] headerTitles, List<Employee> employeeList,
+				BiConsumer<Row, Employee> rowConsumer) {
+			Sheet sheet = writeListSheet(sheetName, headerTitles, employeeList, rowConsumer, 3, (Row headerRow) -> {
+				int rowNumber = headerRow.getRowNum();
+				if (rowNumber == 0) {
+					headerRow.createCell(0).setCellValue("KW");
+				} else if (rowNumber == 1) {
+					headerRow.createCell(0).setCellValue("M");
+				} else if (rowNumber == 2) {
+					headerRow.createCell(0).setCellValue("T");
+				}
+				int columnNumber = headerTitles.length;
+				for (LocalDate date = startDate; date.isBefore(endDate); date = date.plusDays(1)) {
+					Cell cell = headerRow.createCell(columnNumber);
+					if (rowNumber == 0) {
+						cell.setCellValue(date.get(WeekFields.ISO.weekOfYear()));
+					} else if (rowNumber == 1) {
+						cell.setCellValue(date.getMonthValue());
+					} else if (rowNumber == 2) {
+						cell.setCellValue(date.getDayOfMonth());
+					} else {
+						cell.setCellValue(date.getDayOfWeek().getDisplayName(TextStyle.NARROW, Locale.GERMAN));
+					}
+					++columnNumber;
+				}
+			});
 			sheet.setDefaultColumnWidth(5);
 			sheet.createFreezePane(headerTitles.length, 4);
-			Row weekHeaderRow = sheet.getRow(0);
-			Row monthHeaderRow = sheet.getRow(1);
-			Row dayHeaderRow = sheet.getRow(2);
-			Row weekdayHeaderRow = sheet.getRow(3);
-
-			weekHeaderRow.createCell(0).setCellValue("KW");
-			monthHeaderRow.createCell(0).setCellValue("M");
-			dayHeaderRow.createCell(0).setCellValue("T");
-			// weekdayHeaderRow.createCell(0).setCellValue("WT");
-
-			int columnNumber = headerTitles.length;
-			for (LocalDate date = startDate; date.isBefore(endDate); date = date.plusDays(1)) {
-				Cell weekCell = weekHeaderRow.createCell(columnNumber);
-				Cell monthCell = monthHeaderRow.createCell(columnNumber);
-				Cell dayCell = dayHeaderRow.createCell(columnNumber);
-				Cell weekdayCell = weekdayHeaderRow.createCell(columnNumber);
-
-				weekCell.setCellValue(date.get(WeekFields.ISO.weekOfYear()));
-				monthCell.setCellValue(date.getMonthValue());
-				dayCell.setCellValue(date.getDayOfMonth());
-				weekdayCell.setCellValue(date.getDayOfWeek().getDisplayName(TextStyle.NARROW, Locale.GERMAN));
-
-				++columnNumber;
-			}
+		}
 
-			int rowNumber = 4;
-			for (Employee employee : employeeList) {
-				Row row = sheet.getRow(rowNumber);
-				int startColumnNumber = headerTitles.length;
-				if (true || !vacationOnly) {
-					List<ShiftAssignment> shifts = roster.getEmployeeAssignments(employee);
-					for (ShiftAssignment shift : shifts) {
-						for (LocalDate shiftDay : shift.getDays()) {
-
-						int startColumn = getColumnNumberForDate(startColumnNumber,
-								shiftDay);
-							Cell cell = row.createCell(startColumn);
-							cell.setCellValue(shift.getSpot().toString());
-							
-							if (shift.isLockedByUser()) {
-								cell.setCellStyle(lockedByUserStyle);
-							}
-							else if (shift.getSpot().getIsExtraSpot()) {
-								cell.setCellStyle(holidayStyle);
-							}
-						}
-					}
+		private void writeCalendarDays(Row row, int startColumnNumber, CalendarRow calendarRow) {
+			for (int dayIndex = 0; dayIndex < calendarRow.values.length; dayIndex++) {
+				if (calendarRow.values[dayIndex] == null) {
+					continue;
+				}
+				Cell cell = row.createCell(startColumnNumber + dayIndex);
+				cell.setCellValue(calendarRow.values[dayIndex]);
+				if (calendarRow.styles[dayIndex] != null) {
+					cell.setCellStyle(calendarRow.styles[dayIndex]);
 				}
+			}
+		}
 
-				if (true || vacationOnly) {
-					Set<LocalDate> dates = employee.getUnavailableDateSet();
-					if (dates != null) {
-						for (LocalDate date : dates) {
-							int startColumn = getColumnNumberForDate(startColumnNumber, date);
-							int endColumn = getColumnNumberForDate(startColumnNumber, date);
-							for (int i = startColumn; i <= endColumn; ++i) {
-								Boolean existingCell = true;
-								Cell cell = row.getCell(i);
-								if (cell == null) {
-									cell = row.createCell(i);
-									existingCell = false;
-								}
-								cell.setCellStyle(unavailableStyle);
-								if (!existingCell) {
-									cell.setCellValue(" "); // TODO HACK to get a clearer xlsx file
-								}
-							}
-						}
-					}
+		private Map<Employee, CalendarRow> getCalendarRowMap() {
+			if (calendarRowMap == null) {
+				int dayCount = (int) ChronoUnit.DAYS.between(startDate, endDate);
+				// 1 pass instead of roster.getEmployeeAssignments() per employee, same order
+				Map<String, List<ShiftAssignment>> shiftAssignmentsByEmployeeName = roster.getShiftAssignmentList()
+						.stream().filter(shiftAssignment -> shiftAssignment.getEmployee() != null)
+						.collect(Collectors.groupingBy(shiftAssignment -> shiftAssignment.getEmployee().getName()));
+				// No POI calls, so every employee can be done on another thread
+				calendarRowMap = roster.getEmployeeList().parallelStream().collect(Collectors.toMap(
+						employee -> employee,
+						employee -> buildCalendarRow(employee, shiftAssignmentsByEmployeeName.getOrDefault(
+								employee.getName(), Collections.emptyList()), dayCount)));
+			}
+			return calendarRowMap;
+		}
 
-					dates = employee.getUndesirableDateSet();
-					if (dates != null) {
-						for (LocalDate date : dates) {
-							int startColumn = getColumnNumberForDate(startColumnNumber, date);
-							int endColumn = getColumnNumberForDate(startColumnNumber, date);
-							for (int i = startColumn; i <= endColumn; ++i) {
-								Boolean existingCell = true;
-								Cell cell = row.getCell(i);
-								if (cell == null) {
-									cell = row.createCell(i);
-									existingCell = false;
-								}
-								cell.setCellStyle(undesirableStyle);
-								if (!existingCell) {
-									cell.setCellValue(" "); // TODO HACK to get a clearer xlsx file
-								}
-							}
-						}
+		/**
+		 * Collects the value and style of every day first, so the cells are created from left to right.
+		 * Days outside the planning period aren't written, they have no header column either.
+		 */
+		private CalendarRow buildCalendarRow(Employee employee, List<ShiftAssignment> shiftAssignmentList,
+				int dayCount) {
+			String[] values = new String[dayCount];
+			CellStyle[] styles = new CellStyle[dayCount];
+			for (ShiftAssignment shift : shiftAssignmentList) {
+				for (LocalDate shiftDay : shift.getDays()) {
+					int dayIndex = getColumnNumberForDate(0, shiftDay);
+					if (dayIndex < 0 || dayIndex >= dayCount) {
+						continue;
 					}
-				} else {
-					Set<TimeSlot> slots = employee.getUnavailableTimeSlotSet();
-					for (TimeSlot slot : slots) {
-						int startColumn = getColumnNumberForDate(startColumnNumber,
-								slot.getStartDateTime().toLocalDate());
-						int endColumn = getColumnNumberForDate(startColumnNumber, slot.getEndDateTime().toLocalDate());
-						for (int i = startColumn; i < endColumn; ++i) {
-							Boolean existingCell = true;
-							Cell cell = row.getCell(i);
-							if (cell == null) {
-								cell = row.createCell(i);
-								existingCell = false;
-							}
-							cell.setCellStyle(unavailableStyle);
-							if (!existingCell) {
-								cell.setCellValue(" "); // TODO HACK to get a clearer xlsx file
-							}
-						}
+					values[dayIndex] = shift.getSpot().toString();
+					if (shift.isLockedByUser()) {
+						styles[dayIndex] = lockedByUserStyle;
+					} else if (shift.getSpot().getIsExtraSpot()) {
+						styles[dayIndex] = holidayStyle;
 					}
 				}
+			}
+			markCalendarDays(values, styles, employee.getUnavailableDateSet(), unavailableStyle);
+			markCalendarDays(values, styles, employee.getUndesirableDateSet(), undesirableStyle);
+			return new CalendarRow(values, styles);
+		}
 
-				rowNumber++;
+		private void markCalendarDays(String[] values, CellStyle[] styles, Set<LocalDate> dates, CellStyle style) {
+			if (dates == null) {
+				return;
+			}
+			for (LocalDate date : dates) {
+				int dayIndex = getColumnNumberForDate(0, date);
+				if (dayIndex < 0 || dayIndex >= values.length) {
+					continue;
+				}
+				styles[dayIndex] = style;
+				if (values[dayIndex] == null) {
+					values[dayIndex] = " "; // TODO HACK to get a clearer xlsx file
+				}
 			}
 		}
 
@@ -1174,6 +1144,102 @@ public class WorkerRosteringSolutionFileDaysIO implements SolutionFileIO<Roster>
 			return diff + initialColumn;
 		}
 
+		/**
+		 * The totals of the summary sheets, per employee (by name, like {@link Roster#getEmployeeAssignments(Employee)}),
+		 * per spot of the spotList and per shift type of those spots, in 1 pass over the shift assignments.
+		 */
+		private static class SummaryAggregation {
+
+			private final Map<String, Integer> employeeIndexMap;
+			private final List<String> shiftTypeList;
+
+			private final int[] shiftCounts;
+			private final double[] totalDays;
+			private final double[] totalCosts;
+			private final double[] totalDaysExtra;
+			private final double[] totalCostsExtra;
+			private final long[][] spotCounts;
+			private final long[][] spotAdjustedCosts;
+			private final long[][] shiftTypeCounts;
+			private final long[][] shiftTypeAdjustedCosts;
+
+			public SummaryAggregation(Roster roster) {
+				List<Employee> employeeList = roster.getEmployeeList();
+				employeeIndexMap = new HashMap<>(employeeList.size());
+				for (Employee employee : employeeList) {
+					employeeIndexMap.putIfAbsent(employee.getName(), employeeIndexMap.size());
+				}
+				List<Spot> spotList = roster.getSpotList();
+				// Extra spots aren't in the spotList, so they only count for their shift type
+				Map<Spot, Integer> spotIndexMap = new IdentityHashMap<>(spotList.size());
+				Map<String, Integer> shiftTypeIndexMap = new HashMap<>();
+				shiftTypeList = new ArrayList<>();
+				for (Spot spot : spotList) {
+					spotIndexMap.putIfAbsent(spot, spotIndexMap.size());
+					if (!shiftTypeIndexMap.containsKey(spot.getShiftType())) {
+						shiftTypeIndexMap.put(spot.getShiftType(), shiftTypeList.size());
+						shiftTypeList.add(spot.getShiftType());
+					}
+				}
+				int employeeCount = employeeIndexMap.size();
+				shiftCounts = new int[employeeCount];
+				totalDays = new double[employeeCount];
+				totalCosts = new double[employeeCount];
+				totalDaysExtra = new double[employeeCount];
+				totalCostsExtra = new double[employeeCount];
+				spotCounts = new long[employeeCount][spotList.size()];
+				spotAdjustedCosts = new long[employeeCount][spotList.size()];
+				shiftTypeCounts = new long[employeeCount][shiftTypeList.size()];
+				shiftTypeAdjustedCosts = new long[employeeCount][shiftTypeList.size()];
+
+				for (ShiftAssignment shiftAssignment : roster.getShiftAssignmentList()) {
+					Employee employee = shiftAssignment.getEmployee();
+					if (employee == null) {
+						continue;
+					}
+					Integer e = employeeIndexMap.get(employee.getName());
+					if (e == null) {
+						continue;
+					}
+					Spot spot = shiftAssignment.getSpot();
+					long adjustedCost = shiftAssignment.getAdjustedCost();
+					shiftCounts[e]++;
+					totalDays[e] += spot.getDays();
+					totalCosts[e] += shiftAssignment.getCost();
+					if (spot.getIsExtraSpot()) {
+						totalDaysExtra[e] += spot.getDays();
+						totalCostsExtra[e] += shiftAssignment.getCost();
+					}
+					Integer s = spotIndexMap.get(spot);
+					if (s != null) {
+						spotCounts[e][s]++;
+						spotAdjustedCosts[e][s] += adjustedCost;
+					}
+					Integer t = shiftTypeIndexMap.get(spot.getShiftType());
+					if (t != null) {
+						shiftTypeCounts[e][t]++;
+						shiftTypeAdjustedCosts[e][t] += adjustedCost;
+					}
+				}
+			}
+
+		}
+
+		/**
+		 * The day cells of an employee on every calendar sheet, null where there is no cell.
+		 */
+		private static class CalendarRow {
+
+			private final String[] values;
+			private final CellStyle[] styles;
+
+			public CalendarRow(String[] values, CellStyle[] styles) {
+				this.values = values;
+				this.styles = styles;
+			}
+
+		}
+
 		private CellStyle createStyle(IndexedColors color) {
 			CellStyle style = workbook.createCellStyle();
 			style.setFillForegroundColor(color.getIndex());
@@ -171,6 +171,7 @@ public class WorkerRosteringSolutionFileWeeksIO {
 			Map<String, Spot> spotMap = spotList.stream().collect(Collectors.toMap(
 					Spot::getName, spot -> spot));
 			List<TimeSlot> timeSlotList = generateTimeSlotList();
+			HorizonCalendar horizonCalendar = new HorizonCalendar(timeSlotList);
 			List<Employee> employeeList = readListSheet("Employees", 
 					new String[]{"Name", "Skills", "Night Shift", "Time", "VIP", "Unskills"}, (Row row) -> {
 				String name = row.getCell(0).getStringCellValue();
@@ -256,8 +257,8 @@ public class WorkerRosteringSolutionFileWeeksIO {
 						employee.getUndesirableTimeSlotSet().remove(timeSlot);
 					}
 					employee.getUnavailableTimeSlotSet().add(timeSlot);
-					employee.getUndesirableTimeSlotSet().add(getNextTimeSlot(timeSlotList, timeSlot));
-					TimeSlot previousTimeSlot = getPreviousTimeSlot(timeSlotList, timeSlot);
+					employee.getUndesirableTimeSlotSet().add(horizonCalendar.getNextTimeSlot(timeSlot));
+					TimeSlot previousTimeSlot = horizonCalendar.getPreviousTimeSlot(timeSlot);
 					if (!employee.getUnavailableTimeSlotSet().contains(previousTimeSlot)) {
 						employee.getBeforeVacationTimeSlotSet().add(previousTimeSlot);
 					}
@@ -269,24 +270,6 @@ public class WorkerRosteringSolutionFileWeeksIO {
 					shiftAssignmentList);
 		}
 		
-		private TimeSlot getNextTimeSlot(List<TimeSlot> slots, TimeSlot slot) {
-			for (int i = 0; i < slots.size() - 1; ++i) {
-				if (slots.get(i) == slot) {
-					return slots.get(i+1);
-				}
-			}
-			return null;
-		}
-
-		private TimeSlot getPreviousTimeSlot(List<TimeSlot> slots, TimeSlot slot) {
-			for (int i = 1; i < slots.size(); ++i) {
-				if (slots.get(i) == slot) {
-					return slots.get(i-1);
-				}
-			}
-			return null;
-		}
-
 		private List<TimeSlot> generateTimeSlotList() {
 			List<TimeSlot> slots = new ArrayList<TimeSlot>();
 			LocalDateTime startDate = LocalDateTime.of(2019,  1, 5, 0, 0);
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.persistence.AssignmentSnapshot;
+import org.optaplanner.training.workerrostering.persistence.WorkerRosteringSolutionFileBinaryIO;
+import org.optaplanner.training.workerrostering.persistence.WorkerRosteringSolutionFileCsvIO;
+import org.optaplanner.training.workerrostering.persistence.WorkerRosteringSolutionFileDaysIO;
+
+/**
+ * Exposes a {@link RosterSolvingService} over HTTP, on the loopback interface only:
+ * <ul>
+ * <li>{@code POST /jobs?format=xlsx|wrbin|csv&name=...&priority=LOW|NORMAL|HIGH}: submit the request body,
+ * returns the job status, or 503 if the waiting queue is full</li>
+ * <li>{@code GET /jobs}: the status of every job</li>
+ * <li>{@code GET /jobs/<id>}: the job status</li>
+ * <li>{@code GET /jobs/<id>/best?format=xlsx|tsv}: the best roster so far,
+ * as a workbook or as an {@link AssignmentSnapshot}</li>
+ * <li>{@code GET /jobs/<id>/scores}: streams every new best score as server-sent events, until the job ends</li>
+ * <li>{@code DELETE /jobs/<id>}: cancels an active job, forgets an ended one</li>
+ * </ul>
+ * Other input formats can be added with {@link #registerReader(String, Function)}.
+ */
+public class RosterSolvingHttpServer {
+
+    public static final String JOBS_PATH = "/jobs";
+    protected static final long SCORE_STREAM_POLL_MILLIS = 10_000L;
+    protected static final long RETRY_AFTER_SECONDS = 30L;
+
+    private static final String XLSX_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private final RosterSolvingService solvingService;
+    private final HttpServer httpServer;
+    private final ExecutorService requestExecutorService;
+    private final Map<String, Function<File, Roster>> readerMap = new ConcurrentHashMap<>();
+
+    /**
+     * @param solvingService never null
+     * @param port {@code 0} to pick a free port, see {@link #getPort()}
+     * @throws IOException if the port can't be bound
+     */
+    public RosterSolvingHttpServer(RosterSolvingService solvingService, int port) throws IOException {
+        this.solvingService = solvingService;
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        httpServer.createContext(JOBS_PATH, this::handle);
+        // Score streams block their thread, so don't let them starve the other requests
+        requestExecutorService = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "RosterSolvingHttpServer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpServer.setExecutor(requestExecutorService);
+        registerReader("xlsx", inputFile -> new WorkerRosteringSolutionFileDaysIO().read(inputFile));
+        registerReader(WorkerRosteringSolutionFileBinaryIO.FILE_EXTENSION,
+                inputFile -> new WorkerRosteringSolutionFileBinaryIO().read(inputFile));
+        registerReader(WorkerRosteringSolutionFileCsvIO.FILE_EXTENSION,
+                inputFile -> new WorkerRosteringSolutionFileCsvIO().read(inputFile));
+    }
+
+    /**
+     * @param format never null, the value of the {@code format} query parameter
+     * @param reader never null, reads the uploaded file, must be thread-safe
+     */
+    public void registerReader(String format, Function<File, Roster> reader) {
+        readerMap.put(format, reader);
+    }
+
+    public void start() {
+        httpServer.start();
+    }
+
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    public void stop() {
+        httpServer.stop(0);
+        requestExecutorService.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String[] segments = path.substring(JOBS_PATH.length()).replaceAll("^/|/$", "").split("/");
+            String method = exchange.getRequestMethod();
+            Map<String, String> queryMap = parseQuery(exchange.getRequestURI().getRawQuery());
+            if (segments[0].isEmpty()) {
+                if (method.equals("POST")) {
+                    handleSubmit(exchange, queryMap);
+                } else if (method.equals("GET")) {
+                    StringBuilder json = new StringBuilder("[");
+                    for (SolveJob job : solvingService.getJobList()) {
+                        json.append(json.length() > 1 ? "," : "").append(toJson(job));
+                    }
+                    sendText(exchange, 200, "application/json", json.append("]").toString());
+                } else {
+                    sendText(exchange, 405, "text/plain", "Unsupported method (" + method + ").");
+                }
+                return;
+            }
+            SolveJob job = solvingService.getJob(segments[0]);
+            if (job == null || segments.length > 2) {
+                sendText(exchange, 404, "text/plain", "Unknown path (" + path + ").");
+                return;
+            }
+            String resource = segments.length == 2 ? segments[1] : "";
+            if (method.equals("GET") && resource.isEmpty()) {
+                sendText(exchange, 200, "application/json", toJson(job));
+            } else if (method.equals("GET") && resource.equals("best")) {
+                handleBest(exchange, job, queryMap.getOrDefault("format", "xlsx"));
+            } else if (method.equals("GET") && resource.equals("scores")) {
+                handleScores(exchange, job);
+            } else if (method.equals("DELETE") && resource.isEmpty()) {
+                boolean done = solvingService.cancel(job.getId()) || solvingService.remove(job.getId());
+                sendText(exchange, done ? 200 : 409, "application/json", toJson(job));
+            } else {
+                sendText(exchange, 405, "text/plain", "Unsupported method (" + method + ") for path (" + path + ").");
+            }
+        } catch (RuntimeException e) {
+            sendText(exchange, 500, "text/plain", e.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleSubmit(HttpExchange exchange, Map<String, String> queryMap) throws IOException {
+        String format = queryMap.getOrDefault("format", "xlsx");
+        Function<File, Roster> reader = readerMap.get(format);
+        if (reader == null) {
+            sendText(exchange, 400, "text/plain", "Unsupported format (" + format + "), use one of "
+                    + readerMap.keySet() + ".");
+            return;
+        }
+        SolveJobPriority priority;
+        try {
+            priority = SolveJobPriority.valueOf(queryMap.getOrDefault("priority", SolveJobPriority.NORMAL.name()));
+        } catch (IllegalArgumentException e) {
+            sendText(exchange, 400, "text/plain", "Unsupported priority (" + queryMap.get("priority")
+                    + "), use one of " + Arrays.toString(SolveJobPriority.values()) + ".");
+            return;
+        }
+        Path inputFile = Files.createTempFile("roster", "." + format);
+        try {
+            try (InputStream in = exchange.getRequestBody()) {
+                Files.copy(in, inputFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Roster roster;
+            try {
+                roster = reader.apply(inputFile.toFile());
+            } catch (RuntimeException e) {
+                sendText(exchange, 400, "text/plain", "Unreadable roster: " + e);
+                return;
+            }
+            SolveJob job;
+            try {
+                job = solvingService.submit(queryMap.getOrDefault("name", "roster"), priority, roster);
+            } catch (RejectedExecutionException e) {
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+                sendText(exchange, 503, "text/plain", e.getMessage());
+                return;
+            }
+            exchange.getResponseHeaders().set("Location", JOBS_PATH + "/" + job.getId());
+            sendText(exchange, 201, "application/json", toJson(job));
+        } finally {
+            Files.deleteIfExists(inputFile);
+        }
+    }
+
+    private void handleBest(HttpExchange exchange, SolveJob job, String format) throws IOException {
+        Roster bestRoster = job.getBestRoster();
+        if (bestRoster == null) {
+            sendText(exchange, 409, "text/plain", "The job (" + job + ") has no best roster yet.");
+            return;
+        }
+        Path outputFile = Files.createTempFile("roster", "." + format);
+        try {
+            String contentType;
+            if (format.equals("xlsx")) {
+                // Only a finished solver has a stable best solution for the score summary sheets
+                new WorkerRosteringSolutionFileDaysIO().write(bestRoster,
+                        job.getStatus().isTerminal() ? job.getSolver() : null, outputFile.toFile());
+                contentType = XLSX_CONTENT_TYPE;
+            } else if (format.equals("tsv")) {
+                AssignmentSnapshot.of(bestRoster).write(outputFile.toFile());
+                contentType = "text/tab-separated-values";
+            } else {
+                sendText(exchange, 400, "text/plain", "Unsupported format (" + format + "), use xlsx or tsv.");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, Files.size(outputFile));
+            try (OutputStream out = exchange.getResponseBody()) {
+                Files.copy(outputFile, out);
+            }
+        } finally {
+            Files.deleteIfExists(outputFile);
+        }
+    }
+
+    private void handleScores(HttpExchange exchange, SolveJob job) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        // Length 0 means chunked: the response ends when the job ends
+        exchange.sendResponseHeaders(200, 0L);
+        try (OutputStream out = exchange.getResponseBody()) {
+            int index = 0;
+            while (true) {
+                List<String> scoreList;
+                try {
+                    scoreList = job.awaitBestScores(index, SCORE_STREAM_POLL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                StringBuilder events = new StringBuilder();
+                for (String score : scoreList) {
+                    events.append("event: bestScore\ndata: ").append(score).append("\n\n");
+                }
+                index += scoreList.size();
+                if (scoreList.isEmpty()) {
+                    if (job.getStatus().isTerminal()) {
+                        events.append("event: status\ndata: ").append(job.getStatus()).append("\n\n");
+                        out.write(events.toString().getBytes(StandardCharsets.UTF_8));
+                        return;
+                    }
+                    // Keeps idle connections from timing out and detects a disconnected client
+                    events.append(": keep-alive\n\n");
+                }
+                out.write(events.toString().getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> queryMap = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return queryMap;
+        }
+        try {
+            for (String parameter : rawQuery.split("&")) {
+                int equalsIndex = parameter.indexOf('=');
+                if (equalsIndex < 0) {
+                    queryMap.put(URLDecoder.decode(parameter, "UTF-8"), "");
+                } else {
+                    queryMap.put(URLDecoder.decode(parameter.substring(0, equalsIndex), "UTF-8"),
+                            URLDecoder.decode(parameter.substring(equalsIndex + 1), "UTF-8"));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("The JVM does not support UTF-8.", e);
+        }
+        return queryMap;
+    }
+
+    private static String toJson(SolveJob job) {
+        return "{\"id\":" + jsonString(job.getId())
+                + ",\"name\":" + jsonString(job.getName())
+                + ",\"priority\":" + jsonString(job.getPriority().name())
+                + ",\"status\":" + jsonString(job.getStatus().name())
+                + ",\"preemptedCount\":" + job.getPreemptedCount()
+                + ",\"bestScore\":" + jsonString(job.getBestScore())
+                + ",\"submittedMillis\":" + job.getSubmittedMillis()
+                + ",\"startedMillis\":" + job.getStartedMillis()
+                + ",\"finishedMillis\":" + job.getFinishedMillis()
+                + ",\"error\":" + jsonString(job.getErrorMessage()) + "}";
+    }
+
+    private static String jsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder json = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private static void sendText(HttpExchange exchange, int statusCode, String contentType, String text)
+            throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=UTF-8");
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+}
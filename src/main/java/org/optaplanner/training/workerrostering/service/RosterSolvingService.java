@@ -0,0 +1,295 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.optaplanner.core.impl.phase.event.PhaseLifecycleListenerAdapter;
+import org.optaplanner.core.impl.solver.DefaultSolver;
+import org.optaplanner.core.impl.solver.scope.DefaultSolverScope;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.solver.SolverFactoryHolder;
+
+/**
+ * Solves submitted rosters in the background, at most solverThreadCount at the same time.
+ * The other jobs wait in a queue, by {@link SolveJobPriority} and then FIFO.
+ * If maxWaitingJobCount jobs are already waiting, a submit is rejected.
+ * All solvers share the compiled rules of {@link SolverFactoryHolder}.
+ * <p>
+ * If every solver thread is busy, a waiting job preempts the solving job with the lowest priority, if that is lower:
+ * that job terminates early, keeps its best roster as checkpoint and waits to resume from it.
+ * So an urgent re-plan only waits for the current step of a long optimization, not for its termination.
+ * A resumed job only gets the remainder of its time spent limit.
+ */
+public class RosterSolvingService {
+
+    public static final int DEFAULT_MAX_WAITING_JOB_COUNT = 100;
+
+    private static final Comparator<SolveJob> WAITING_COMPARATOR
+            = Comparator.comparing(SolveJob::getPriority).reversed()
+            .thenComparingLong(job -> Long.parseLong(job.getId()));
+
+    private final SolverFactory<Roster> solverFactory;
+    private final int solverThreadCount;
+    private final int maxWaitingJobCount;
+    private final ExecutorService executorService;
+    private final Map<String, SolveJob> jobMap = new ConcurrentHashMap<>();
+    private final AtomicLong nextJobId = new AtomicLong(1L);
+
+    // Guarded by this
+    private final PriorityQueue<SolveJob> waitingQueue = new PriorityQueue<>(WAITING_COMPARATOR);
+    private final List<SolveJob> solvingJobList = new ArrayList<>();
+
+    /**
+     * @param solverThreadCount {@code >= 1}, each running job keeps 1 CPU core busy
+     */
+    public RosterSolvingService(int solverThreadCount) {
+        this(SolverFactoryHolder.getSolverFactory(), solverThreadCount, DEFAULT_MAX_WAITING_JOB_COUNT);
+    }
+
+    /**
+     * @param solverFactory never null
+     * @param solverThreadCount {@code >= 1}
+     * @param maxWaitingJobCount {@code >= 0}, excluding the solving jobs and the preempted jobs
+     */
+    public RosterSolvingService(SolverFactory<Roster> solverFactory, int solverThreadCount, int maxWaitingJobCount) {
+        if (solverThreadCount < 1) {
+            throw new IllegalArgumentException("The solverThreadCount (" + solverThreadCount
+                    + ") must be at least 1.");
+        }
+        if (maxWaitingJobCount < 0) {
+            throw new IllegalArgumentException("The maxWaitingJobCount (" + maxWaitingJobCount
+                    + ") must not be negative.");
+        }
+        this.solverFactory = solverFactory;
+        this.solverThreadCount = solverThreadCount;
+        this.maxWaitingJobCount = maxWaitingJobCount;
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        executorService = Executors.newFixedThreadPool(solverThreadCount, runnable -> {
+            Thread thread = new Thread(runnable, "RosterSolver-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Thread-safe.
+     * @param name never null, for humans only
+     * @param roster never null, the service takes ownership of it
+     * @return never null
+     * @throws RejectedExecutionException if maxWaitingJobCount jobs are already waiting
+     */
+    public SolveJob submit(String name, Roster roster) {
+        return submit(name, SolveJobPriority.NORMAL, roster);
+    }
+
+    /**
+     * Thread-safe.
+     * @param name never null, for humans only
+     * @param priority never null
+     * @param roster never null, the service takes ownership of it
+     * @return never null
+     * @throws RejectedExecutionException if maxWaitingJobCount jobs are already waiting
+     */
+    public SolveJob submit(String name, SolveJobPriority priority, Roster roster) {
+        synchronized (this) {
+            // A free solver thread takes the job right away, so it never waits
+            if (solvingJobList.size() >= solverThreadCount && countNewWaitingJobs() >= maxWaitingJobCount) {
+                throw new RejectedExecutionException("The job (" + name + ") is rejected, because "
+                        + maxWaitingJobCount + " jobs are already waiting.");
+            }
+            SolveJob job = new SolveJob(String.valueOf(nextJobId.getAndIncrement()), name, priority, roster);
+            jobMap.put(job.getId(), job);
+            waitingQueue.add(job);
+            schedule();
+            return job;
+        }
+    }
+
+    private synchronized int countNewWaitingJobs() {
+        // A preempted job was accepted before, so it doesn't count against the bound
+        return (int) waitingQueue.stream().filter(job -> job.getPreemptedCount() == 0).count();
+    }
+
+    private synchronized void schedule() {
+        while (solvingJobList.size() < solverThreadCount && !waitingQueue.isEmpty()) {
+            SolveJob job = waitingQueue.poll();
+            solvingJobList.add(job);
+            executorService.submit(() -> solve(job));
+        }
+        SolveJob nextJob = waitingQueue.peek();
+        if (nextJob == null) {
+            return;
+        }
+        // Preempt 1 job at a time, so a burst of urgent jobs doesn't pause every solver at once
+        if (solvingJobList.stream().anyMatch(SolveJob::isPreemptRequested)) {
+            return;
+        }
+        solvingJobList.stream()
+                .filter(job -> job.getStatus() == SolveJobStatus.SOLVING && !job.isCancelRequested())
+                .min(Comparator.comparing(SolveJob::getPriority))
+                .filter(job -> job.getPriority().compareTo(nextJob.getPriority()) < 0)
+                .ifPresent(SolveJob::requestPreempt);
+    }
+
+    private void solve(SolveJob job) {
+        Solver<Roster> solver = buildSolver(job);
+        solver.addEventListener(event -> job.bestRosterChanged(event.getNewBestSolution()));
+        // solve() resets terminateEarly(), so a cancel or preempt between startSolving() and solve() is checked again
+        ((DefaultSolver<Roster>) solver).addPhaseLifecycleListener(new PhaseLifecycleListenerAdapter<Roster>() {
+            @Override
+            public void solvingStarted(DefaultSolverScope<Roster> solverScope) {
+                job.solvingStarted();
+            }
+        });
+        try {
+            if (!job.startSolving(solver)) {
+                return;
+            }
+            try {
+                Roster bestRoster = solver.solve(job.getProblem());
+                if (job.getBestRoster() == null) {
+                    // Terminated before the first best solution event
+                    job.bestRosterChanged(bestRoster);
+                }
+                if (job.isPreemptRequested() && !job.isCancelRequested()) {
+                    job.pause(bestRoster);
+                } else {
+                    job.finish(job.isCancelRequested() ? SolveJobStatus.CANCELLED : SolveJobStatus.SOLVED, null);
+                }
+            } catch (RuntimeException e) {
+                job.finish(SolveJobStatus.FAILED, e.toString());
+            }
+        } finally {
+            synchronized (this) {
+                solvingJobList.remove(job);
+                if (job.getStatus() == SolveJobStatus.PAUSED) {
+                    waitingQueue.add(job);
+                }
+                schedule();
+            }
+        }
+    }
+
+    private Solver<Roster> buildSolver(SolveJob job) {
+        TerminationConfig originalTerminationConfig = solverFactory.getSolverConfig().getTerminationConfig();
+        Long millisSpentLimit = originalTerminationConfig == null ? null
+                : originalTerminationConfig.calculateTimeMillisSpentLimit();
+        if (job.getPreemptedCount() == 0 || millisSpentLimit == null) {
+            return solverFactory.buildSolver();
+        }
+        // Don't let preemption extend the job's time budget, but keep the other terminations
+        SolverFactory<Roster> resumeSolverFactory = solverFactory.cloneSolverFactory();
+        TerminationConfig terminationConfig = new TerminationConfig();
+        terminationConfig.inherit(originalTerminationConfig);
+        terminationConfig.setMillisecondsSpentLimit(Math.max(1L, millisSpentLimit - job.getSolvingMillis()));
+        terminationConfig.setSecondsSpentLimit(null);
+        terminationConfig.setMinutesSpentLimit(null);
+        terminationConfig.setHoursSpentLimit(null);
+        terminationConfig.setDaysSpentLimit(null);
+        resumeSolverFactory.getSolverConfig().setTerminationConfig(terminationConfig);
+        return resumeSolverFactory.buildSolver();
+    }
+
+    /**
+     * Thread-safe.
+     * @param jobId never null
+     * @return null if there is no such job
+     */
+    public SolveJob getJob(String jobId) {
+        return jobMap.get(jobId);
+    }
+
+    /**
+     * Thread-safe.
+     * @return never null, in submit order
+     */
+    public List<SolveJob> getJobList() {
+        List<SolveJob> jobList = new ArrayList<>(jobMap.values());
+        jobList.sort(Comparator.comparingLong((SolveJob job) -> Long.parseLong(job.getId())));
+        return jobList;
+    }
+
+    /**
+     * Thread-safe. A queued job never starts, a solving job stops at its next step and keeps its best roster.
+     * @param jobId never null
+     * @return false if there is no such job or it already ended
+     */
+    public boolean cancel(String jobId) {
+        SolveJob job = jobMap.get(jobId);
+        if (job == null) {
+            return false;
+        }
+        synchronized (this) {
+            if (waitingQueue.remove(job)) {
+                job.finish(SolveJobStatus.CANCELLED, null);
+                return true;
+            }
+        }
+        return job.requestCancel();
+    }
+
+    /**
+     * Thread-safe. Forgets an ended job, so its rosters can be garbage collected.
+     * @param jobId never null
+     * @return false if there is no such job or it is still queued or solving
+     */
+    public boolean remove(String jobId) {
+        SolveJob job = jobMap.get(jobId);
+        if (job == null || !job.getStatus().isTerminal()) {
+            return false;
+        }
+        return jobMap.remove(jobId, job);
+    }
+
+    /**
+     * Cancels every job and waits for the solver threads.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            for (SolveJob job : waitingQueue) {
+                job.finish(SolveJobStatus.CANCELLED, null);
+            }
+            waitingQueue.clear();
+        }
+        for (SolveJob job : jobMap.values()) {
+            job.requestCancel();
+        }
+        executorService.shutdown();
+        try {
+            executorService.awaitTermination(1L, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the solver threads.", e);
+        }
+    }
+
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.training.workerrostering.domain.Roster;
+
+/**
+ * 1 roster submitted to the {@link RosterSolvingService}.
+ * <p>
+ * A preempted job keeps its best roster as checkpoint: it becomes the problem the job resumes from.
+ * <p>
+ * Thread-safe: the solver thread updates it, the HTTP threads read it.
+ */
+public class SolveJob {
+
+    private final String id;
+    private final String name;
+    private final SolveJobPriority priority;
+    private final long submittedMillis;
+
+    private volatile Roster problem;
+    private volatile SolveJobStatus status = SolveJobStatus.QUEUED;
+    private volatile boolean cancelRequested = false;
+    private volatile boolean preemptRequested = false;
+    private volatile int preemptedCount = 0;
+    private volatile long solvingMillis = 0L;
+    private volatile long lastStartedMillis = -1L;
+    private volatile Solver<Roster> solver = null;
+    private volatile Roster bestRoster = null;
+    private volatile String errorMessage = null;
+    private volatile long startedMillis = -1L;
+    private volatile long finishedMillis = -1L;
+
+    // Guarded by this
+    private final List<String> bestScoreList = new ArrayList<>();
+
+    public SolveJob(String id, String name, SolveJobPriority priority, Roster problem) {
+        this.id = id;
+        this.name = name;
+        this.priority = priority;
+        this.problem = problem;
+        submittedMillis = System.currentTimeMillis();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SolveJobPriority getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return never null, the submitted roster or the checkpoint of the last preemption
+     */
+    public Roster getProblem() {
+        return problem;
+    }
+
+    public SolveJobStatus getStatus() {
+        return status;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public boolean isPreemptRequested() {
+        return preemptRequested;
+    }
+
+    public int getPreemptedCount() {
+        return preemptedCount;
+    }
+
+    /**
+     * @return the time spent solving in the ended runs, excluding the time paused or queued
+     */
+    public long getSolvingMillis() {
+        return solvingMillis;
+    }
+
+    /**
+     * @return null before solving started
+     */
+    public Solver<Roster> getSolver() {
+        return solver;
+    }
+
+    /**
+     * @return null before the first best solution
+     */
+    public Roster getBestRoster() {
+        return bestRoster;
+    }
+
+    public String getBestScore() {
+        Roster roster = bestRoster;
+        return roster == null ? null : String.valueOf(roster.getScore());
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public long getSubmittedMillis() {
+        return submittedMillis;
+    }
+
+    /**
+     * @return -1 before solving started
+     */
+    public long getStartedMillis() {
+        return startedMillis;
+    }
+
+    /**
+     * @return -1 before the job is {@link SolveJobStatus#isTerminal() terminal}
+     */
+    public long getFinishedMillis() {
+        return finishedMillis;
+    }
+
+    synchronized boolean startSolving(Solver<Roster> solver) {
+        if (cancelRequested) {
+            finish(SolveJobStatus.CANCELLED, null);
+            return false;
+        }
+        this.solver = solver;
+        lastStartedMillis = System.currentTimeMillis();
+        if (startedMillis < 0L) {
+            startedMillis = lastStartedMillis;
+        }
+        status = SolveJobStatus.SOLVING;
+        return true;
+    }
+
+    /**
+     * Called by the solver thread once solve() started, so a request that came in before that isn't lost.
+     */
+    synchronized void solvingStarted() {
+        if (cancelRequested || preemptRequested) {
+            solver.terminateEarly();
+        }
+    }
+
+    synchronized void pause(Roster checkpoint) {
+        problem = checkpoint;
+        solver = null;
+        solvingMillis += System.currentTimeMillis() - lastStartedMillis;
+        preemptRequested = false;
+        preemptedCount++;
+        status = SolveJobStatus.PAUSED;
+        notifyAll();
+    }
+
+    synchronized void bestRosterChanged(Roster bestRoster) {
+        this.bestRoster = bestRoster;
+        bestScoreList.add(String.valueOf(bestRoster.getScore()));
+        notifyAll();
+    }
+
+    synchronized void finish(SolveJobStatus status, String errorMessage) {
+        if (!status.isTerminal()) {
+            throw new IllegalArgumentException("The status (" + status + ") is not terminal.");
+        }
+        finishedMillis = System.currentTimeMillis();
+        if (this.status == SolveJobStatus.SOLVING) {
+            solvingMillis += finishedMillis - lastStartedMillis;
+        }
+        this.status = status;
+        this.errorMessage = errorMessage;
+        notifyAll();
+    }
+
+    /**
+     * @return false if the job isn't solving or already preempted
+     */
+    synchronized boolean requestPreempt() {
+        if (status != SolveJobStatus.SOLVING || preemptRequested || cancelRequested) {
+            return false;
+        }
+        preemptRequested = true;
+        solver.terminateEarly();
+        return true;
+    }
+
+    /**
+     * @return true if the job was still active
+     */
+    synchronized boolean requestCancel() {
+        if (status.isTerminal()) {
+            return false;
+        }
+        cancelRequested = true;
+        if (solver != null) {
+            solver.terminateEarly();
+        }
+        return true;
+    }
+
+    /**
+     * Blocks until there is a best score after fromIndex, the job ends or the timeout passes.
+     * @param fromIndex {@code >= 0}, the number of best scores the caller already has
+     * @param timeoutMillis {@code > 0}
+     * @return never null, empty if there is nothing new
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized List<String> awaitBestScores(int fromIndex, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (bestScoreList.size() <= fromIndex && !status.isTerminal()) {
+            long remainingMillis = deadline - System.currentTimeMillis();
+            if (remainingMillis <= 0L) {
+                return Collections.emptyList();
+            }
+            wait(remainingMillis);
+        }
+        if (bestScoreList.size() <= fromIndex) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(bestScoreList.subList(fromIndex, bestScoreList.size()));
+    }
+
+    @Override
+    public String toString() {
+        return id + " (" + name + ")";
+    }
+
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.service;
+
+/**
+ * A job with a higher priority preempts a solving job with a lower one, if no solver thread is free.
+ */
+public enum SolveJobPriority {
+    /**
+     * For example a full-year optimization.
+     */
+    LOW,
+    NORMAL,
+    /**
+     * For example an interactive re-plan after a sick call.
+     */
+    HIGH
+}
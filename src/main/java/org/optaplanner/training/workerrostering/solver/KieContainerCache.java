@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.drools.compiler.kie.builder.impl.InternalKieModule;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieBuilder;
+import org.kie.api.builder.KieFileSystem;
+import org.kie.api.builder.KieModule;
+import org.kie.api.builder.Message;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.builder.model.KieModuleModel;
+import org.kie.api.runtime.KieContainer;
+
+/**
+ * Compiles the score rules into a kjar once and keeps it in a local cache directory,
+ * so the next process loads the precompiled rule classes instead of compiling the DRL again.
+ * <p>
+ * The kjar is keyed by a hash of the DRL, so editing the rules just misses the cache.
+ * The cache directory is {@code local/kiecache}, or the system property {@value #CACHE_DIR_PROPERTY}.
+ */
+public class KieContainerCache {
+
+    public static final String CACHE_DIR_PROPERTY = "workerrostering.kieCacheDir";
+    public static final String DRL_RESOURCE
+            = "org/optaplanner/training/workerrostering/solver/workerRosteringScoreRules.drl";
+    public static final String KBASE_NAME = "workerRosteringKbase";
+    public static final String KSESSION_NAME = "workerRosteringKsession";
+
+    private static final String GROUP_ID = "org.optaplanner.training";
+    private static final String ARTIFACT_ID = "workerrostering-rules";
+
+    /**
+     * @return never null, a new container for the kjar of the current DRL
+     */
+    public static KieContainer createKieContainer() {
+        byte[] drlBytes = readResource(DRL_RESOURCE);
+        String hash = hash(drlBytes);
+        KieServices kieServices = KieServices.Factory.get();
+        // The hash as version: a changed DRL never collides with an older kjar in the KieRepository
+        ReleaseId releaseId = kieServices.newReleaseId(GROUP_ID, ARTIFACT_ID, hash);
+        File cacheFile = new File(getCacheDir(), ARTIFACT_ID + "-" + hash + ".jar");
+        if (cacheFile.exists()) {
+            try {
+                byte[] kjarBytes = Files.readAllBytes(cacheFile.toPath());
+                KieModule kieModule = kieServices.getRepository().addKieModule(
+                        kieServices.getResources().newByteArrayResource(kjarBytes));
+                return kieServices.newKieContainer(kieModule.getReleaseId());
+            } catch (IOException | RuntimeException e) {
+                // A corrupt or incompatible cache entry is only a cache miss
+                System.out.println("Ignoring the cached kjar (" + cacheFile + "): " + e.getMessage());
+            }
+        }
+        InternalKieModule kieModule = buildKieModule(kieServices, releaseId, drlBytes);
+        writeCacheFile(cacheFile, kieModule.getBytes());
+        return kieServices.newKieContainer(releaseId);
+    }
+
+    private static InternalKieModule buildKieModule(KieServices kieServices, ReleaseId releaseId, byte[] drlBytes) {
+        KieModuleModel kieModuleModel = kieServices.newKieModuleModel();
+        kieModuleModel.newKieBaseModel(KBASE_NAME).setDefault(true)
+                .newKieSessionModel(KSESSION_NAME).setDefault(true);
+        KieFileSystem kieFileSystem = kieServices.newKieFileSystem();
+        kieFileSystem.generateAndWritePomXML(releaseId);
+        kieFileSystem.writeKModuleXML(kieModuleModel.toXML());
+        kieFileSystem.write("src/main/resources/" + DRL_RESOURCE, drlBytes);
+        KieBuilder kieBuilder = kieServices.newKieBuilder(kieFileSystem).buildAll();
+        if (kieBuilder.getResults().hasMessages(Message.Level.ERROR)) {
+            throw new IllegalStateException("The drl (" + DRL_RESOURCE + ") has errors:\n"
+                    + kieBuilder.getResults().getMessages(Message.Level.ERROR));
+        }
+        return (InternalKieModule) kieBuilder.getKieModule();
+    }
+
+    private static void writeCacheFile(File cacheFile, byte[] kjarBytes) {
+        try {
+            Path cacheDir = cacheFile.getParentFile().toPath();
+            Files.createDirectories(cacheDir);
+            // Write and rename, so a concurrent process never reads half a kjar
+            Path tempFile = Files.createTempFile(cacheDir, ARTIFACT_ID, ".tmp");
+            Files.write(tempFile, kjarBytes);
+            Files.move(tempFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Solving still works, only the next start is slower
+            System.out.println("Could not write the kjar cache file (" + cacheFile + "): " + e.getMessage());
+        }
+    }
+
+    private static File getCacheDir() {
+        return new File(System.getProperty(CACHE_DIR_PROPERTY, "local/kiecache"));
+    }
+
+    private static byte[] readResource(String resource) {
+        try (InputStream in = KieContainerCache.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("The resource (" + resource + ") does not exist on the classpath.");
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed reading the resource (" + resource + ").", e);
+        }
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(bytes);
+            // The module layout is part of the kjar too
+            digest.update((KBASE_NAME + "/" + KSESSION_NAME).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.substring(0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("The JVM does not support SHA-256.", e);
+        }
+    }
+
+    private KieContainerCache() {
+    }
+
+}
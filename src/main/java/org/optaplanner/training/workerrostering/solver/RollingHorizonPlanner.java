@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.EmployeeHistorySummary;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.TimeSlot;
+import org.optaplanner.training.workerrostering.domain.TimeSlotState;
+
+/**
+ * Plans a long roster week by week instead of in 1 solve: a window of windowWeeks time slots
+ * advances 1 time slot at a time.
+ * Per window, the time slots before it are HISTORY, the first tentativeWeeks of it are TENTATIVE
+ * and the rest is DRAFT. The time slots after the window aren't part of that solve at all.
+ * <p>
+ * Only the last {@value #HISTORY_LOOKBACK_WEEKS} HISTORY time slot(s) stay in the solve, as immovable
+ * shift assignments (see {@code MovableShiftAssignmentFilter}), so the day rules still see the previous week.
+ * Older history is collapsed into {@link EmployeeHistorySummary} facts,
+ * so the fairness rules still see the earlier load, but the working memory and move selection don't grow
+ * with the roster.
+ */
+public class RollingHorizonPlanner {
+
+    protected static final int HISTORY_LOOKBACK_WEEKS = 1;
+
+    private final SolverFactory<Roster> solverFactory;
+    private final int windowWeeks;
+    private final int tentativeWeeks;
+
+    /**
+     * @param solverFactory never null, its termination applies per window
+     * @param windowWeeks {@code >= 1}
+     * @param tentativeWeeks {@code 0 <= tentativeWeeks <= windowWeeks}
+     */
+    public RollingHorizonPlanner(SolverFactory<Roster> solverFactory, int windowWeeks, int tentativeWeeks) {
+        if (windowWeeks < 1) {
+            throw new IllegalArgumentException("The windowWeeks (" + windowWeeks + ") must be at least 1.");
+        }
+        if (tentativeWeeks < 0 || tentativeWeeks > windowWeeks) {
+            throw new IllegalArgumentException("The tentativeWeeks (" + tentativeWeeks
+                    + ") must be between 0 and the windowWeeks (" + windowWeeks + ").");
+        }
+        this.solverFactory = solverFactory;
+        this.windowWeeks = windowWeeks;
+        this.tentativeWeeks = tentativeWeeks;
+    }
+
+    /**
+     * Starts at the first time slot that isn't HISTORY yet and plans until the end of the roster.
+     * @param roster never null, its shift assignments are updated in place
+     * @return roster
+     */
+    @SuppressWarnings("deprecation")
+    public Roster plan(Roster roster) {
+        List<TimeSlot> timeSlotList = roster.getTimeSlotList().stream()
+                .sorted(Comparator.comparing(TimeSlot::getStartDateTime))
+                .collect(Collectors.toList());
+        Map<TimeSlot, List<ShiftAssignment>> timeSlotShiftAssignmentMap = roster.getShiftAssignmentList().stream()
+                .collect(Collectors.groupingBy(ShiftAssignment::getTimeSlot));
+        int windowStart = 0;
+        while (windowStart < timeSlotList.size()
+                && timeSlotList.get(windowStart).getTimeSlotState() == TimeSlotState.HISTORY) {
+            windowStart++;
+        }
+        HistoryCompactor historyCompactor = new HistoryCompactor();
+        int compactedEnd = 0;
+        try {
+            for (; windowStart < timeSlotList.size(); windowStart++) {
+                for (; compactedEnd < windowStart - HISTORY_LOOKBACK_WEEKS; compactedEnd++) {
+                    historyCompactor.addAll(timeSlotShiftAssignmentMap.getOrDefault(timeSlotList.get(compactedEnd),
+                            Collections.emptyList()));
+                }
+                int windowEnd = Math.min(timeSlotList.size(), windowStart + windowWeeks);
+                List<TimeSlot> windowTimeSlotList = timeSlotList.subList(compactedEnd, windowEnd);
+                for (int i = compactedEnd; i < windowEnd; i++) {
+                    timeSlotList.get(i).setTimeSlotState(i < windowStart ? TimeSlotState.HISTORY
+                            : i < windowStart + tentativeWeeks ? TimeSlotState.TENTATIVE
+                            : TimeSlotState.DRAFT);
+                }
+                List<ShiftAssignment> windowShiftAssignmentList = new ArrayList<>();
+                for (TimeSlot timeSlot : windowTimeSlotList) {
+                    windowShiftAssignmentList.addAll(
+                            timeSlotShiftAssignmentMap.getOrDefault(timeSlot, Collections.emptyList()));
+                }
+                solveWindow(roster, new ArrayList<>(windowTimeSlotList), windowShiftAssignmentList,
+                        historyCompactor);
+            }
+        } finally {
+            // The window rosters changed the expected hours and roster of the shared objects
+            for (ShiftAssignment shiftAssignment : roster.getShiftAssignmentList()) {
+                shiftAssignment.setRoster(roster);
+            }
+            roster.updateExpectedHours();
+        }
+        return roster;
+    }
+
+    private void solveWindow(Roster roster, List<TimeSlot> windowTimeSlotList,
+            List<ShiftAssignment> windowShiftAssignmentList, HistoryCompactor historyCompactor) {
+        List<Employee> employeeList = roster.getEmployeeList();
+        Roster windowRoster = new Roster(roster.getRosterParametrization(), roster.getSkillList(),
+                roster.getSpotList(), windowTimeSlotList, employeeList, windowShiftAssignmentList,
+                historyCompactor.buildEmployeeHistorySummaryList(employeeList));
+        Solver<Roster> solver = solverFactory.buildSolver();
+        Roster solvedWindowRoster = solver.solve(windowRoster);
+        // The best solution is a planning clone, so copy its employees back to the original shift assignments
+        List<ShiftAssignment> solvedShiftAssignmentList = solvedWindowRoster.getShiftAssignmentList();
+        for (int i = 0; i < windowShiftAssignmentList.size(); i++) {
+            windowShiftAssignmentList.get(i).setEmployee(solvedShiftAssignmentList.get(i).getEmployee());
+        }
+    }
+
+    /**
+     * Accumulates the history as the window advances, so each shift assignment is only counted once.
+     */
+    private static class HistoryCompactor {
+
+        private final Map<Employee, HistoryTotals> totalsMap = new IdentityHashMap<>();
+
+        public void addAll(List<ShiftAssignment> shiftAssignmentList) {
+            for (ShiftAssignment shiftAssignment : shiftAssignmentList) {
+                Employee employee = shiftAssignment.getEmployee();
+                if (employee == null) {
+                    continue;
+                }
+                HistoryTotals totals = totalsMap.computeIfAbsent(employee, key -> new HistoryTotals());
+                long adjustedCost = shiftAssignment.getAdjustedCost();
+                totals.shiftCount++;
+                totals.days += shiftAssignment.getSpot().getDays();
+                totals.adjustedCost += adjustedCost;
+                totals.shiftTypeAdjustedCostMap.merge(shiftAssignment.getSpot().getShiftType(), adjustedCost,
+                        Long::sum);
+            }
+        }
+
+        public List<EmployeeHistorySummary> buildEmployeeHistorySummaryList(List<Employee> employeeList) {
+            List<EmployeeHistorySummary> summaryList = new ArrayList<>(employeeList.size());
+            for (Employee employee : employeeList) {
+                HistoryTotals totals = totalsMap.get(employee);
+                summaryList.add(totals == null ? new EmployeeHistorySummary(employee)
+                        : new EmployeeHistorySummary(employee, totals.shiftCount, totals.days, totals.adjustedCost,
+                                new HashMap<>(totals.shiftTypeAdjustedCostMap)));
+            }
+            return summaryList;
+        }
+
+    }
+
+    private static class HistoryTotals {
+
+        private int shiftCount = 0;
+        private long days = 0L;
+        private long adjustedCost = 0L;
+        private final Map<String, Long> shiftTypeAdjustedCostMap = new HashMap<>(4);
+
+    }
+
+}
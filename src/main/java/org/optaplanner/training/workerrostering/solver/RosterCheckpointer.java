@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.optaplanner.core.api.solver.event.BestSolutionChangedEvent;
+import org.optaplanner.core.api.solver.event.SolverEventListener;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.persistence.AssignmentSnapshot;
+
+/**
+ * Writes the best roster to disk as an {@link AssignmentSnapshot} every intervalMillis while solving,
+ * so a crash or redeploy loses at most 1 interval of optimization.
+ * Resume with {@link #findNewestCheckpoint(File)} and {@link AssignmentSnapshot#applyTo(Roster)}.
+ * <p>
+ * The solver thread only remembers the new best roster (a planning clone that the solver doesn't change anymore),
+ * a background thread converts and writes it.
+ */
+public class RosterCheckpointer implements SolverEventListener<Roster>, AutoCloseable {
+
+    public static final String CHECKPOINT_PREFIX = "checkpoint-";
+    public static final String CHECKPOINT_SUFFIX = ".tsv";
+    // The newest checkpoint might be half written by a crash, so keep its predecessor too
+    protected static final int KEPT_CHECKPOINT_COUNT = 2;
+
+    private final File checkpointDir;
+    private final AtomicReference<Roster> unwrittenRoster = new AtomicReference<>(null);
+    private final ScheduledExecutorService executorService;
+
+    /**
+     * @param checkpointDir never null, created if it doesn't exist
+     * @param intervalMillis {@code > 0}
+     */
+    public RosterCheckpointer(File checkpointDir, long intervalMillis) {
+        if (intervalMillis <= 0L) {
+            throw new IllegalArgumentException("The intervalMillis (" + intervalMillis + ") must be positive.");
+        }
+        this.checkpointDir = checkpointDir;
+        checkpointDir.mkdirs();
+        executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "RosterCheckpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executorService.scheduleWithFixedDelay(this::writeCheckpoint, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void bestSolutionChanged(BestSolutionChangedEvent<Roster> event) {
+        if (event.isEveryProblemFactChangeProcessed()) {
+            unwrittenRoster.set(event.getNewBestSolution());
+        }
+    }
+
+    private void writeCheckpoint() {
+        Roster roster = unwrittenRoster.getAndSet(null);
+        if (roster == null) {
+            return;
+        }
+        File checkpointFile = new File(checkpointDir, CHECKPOINT_PREFIX + System.currentTimeMillis()
+                + CHECKPOINT_SUFFIX);
+        try {
+            // Write and rename, so a crash never leaves a half written checkpoint as the newest one
+            Path tempFile = Files.createTempFile(checkpointDir.toPath(), CHECKPOINT_PREFIX, ".tmp");
+            AssignmentSnapshot.of(roster).write(tempFile.toFile());
+            Files.move(tempFile, checkpointFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            File[] checkpointFiles = listCheckpoints(checkpointDir);
+            for (int i = KEPT_CHECKPOINT_COUNT; i < checkpointFiles.length; i++) {
+                Files.deleteIfExists(checkpointFiles[i].toPath());
+            }
+        } catch (IOException | RuntimeException e) {
+            // Solving goes on, the next interval tries again
+            System.out.println("Could not write the checkpointFile (" + checkpointFile + "): " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the last best roster, if it isn't written yet, and stops the background thread.
+     */
+    @Override
+    public void close() {
+        executorService.shutdown();
+        try {
+            executorService.awaitTermination(1L, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the checkpoint thread.", e);
+        }
+        writeCheckpoint();
+    }
+
+    /**
+     * @param checkpointDir never null
+     * @return null if there is no checkpoint
+     */
+    public static File findNewestCheckpoint(File checkpointDir) {
+        File[] checkpointFiles = listCheckpoints(checkpointDir);
+        return checkpointFiles.length == 0 ? null : checkpointFiles[0];
+    }
+
+    /**
+     * @return never null, newest first
+     */
+    private static File[] listCheckpoints(File checkpointDir) {
+        File[] checkpointFiles = checkpointDir.listFiles((dir, name) -> name.startsWith(CHECKPOINT_PREFIX)
+                && name.endsWith(CHECKPOINT_SUFFIX));
+        if (checkpointFiles == null) {
+            return new File[0];
+        }
+        Arrays.sort(checkpointFiles, Comparator.comparingLong(RosterCheckpointer::parseTimestamp).reversed());
+        return checkpointFiles;
+    }
+
+    private static long parseTimestamp(File checkpointFile) {
+        String name = checkpointFile.getName();
+        try {
+            return Long.parseLong(name.substring(CHECKPOINT_PREFIX.length(),
+                    name.length() - CHECKPOINT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+}
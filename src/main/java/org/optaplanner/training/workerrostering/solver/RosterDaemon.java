@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.impl.solver.ProblemFactChange;
+import org.optaplanner.training.workerrostering.domain.Roster;
+
+/**
+ * Keeps a {@link Solver} running in the background, so planners can edit vacations and pins
+ * (see the problem fact changes in {@link org.optaplanner.training.workerrostering.solver.change})
+ * without killing the solve and starting over.
+ * The solver keeps its working solution and score state, it only restarts its phases after a change.
+ * <p>
+ * Once the termination is reached, the solver doesn't return but waits for the next change,
+ * until {@link #terminate()} is called.
+ */
+public class RosterDaemon {
+
+    private final Solver<Roster> solver;
+    private final ExecutorService executorService;
+    private volatile Roster bestRoster = null;
+    private Future<Roster> solveFuture = null;
+
+    public RosterDaemon(SolverFactory<Roster> solverFactory) {
+        SolverFactory<Roster> daemonSolverFactory = solverFactory.cloneSolverFactory();
+        daemonSolverFactory.getSolverConfig().setDaemon(true);
+        solver = daemonSolverFactory.buildSolver();
+        solver.addEventListener(event -> {
+            // Until every change is processed, the best solution might still predate the planner's latest edit
+            if (event.isEveryProblemFactChangeProcessed()) {
+                bestRoster = event.getNewBestSolution();
+            }
+        });
+        executorService = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "RosterDaemon");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public synchronized void start(Roster roster) {
+        if (solveFuture != null) {
+            throw new IllegalStateException("The daemon is already solving.");
+        }
+        bestRoster = roster;
+        solveFuture = executorService.submit(() -> solver.solve(roster));
+    }
+
+    /**
+     * Thread-safe.
+     * @param problemFactChange never null
+     * @return false if the daemon is terminated
+     */
+    public boolean addProblemFactChange(ProblemFactChange<Roster> problemFactChange) {
+        return solver.addProblemFactChange(problemFactChange);
+    }
+
+    /**
+     * Thread-safe.
+     * @return the best roster that reflects every change added so far, or the input roster before the first one
+     */
+    public Roster getBestRoster() {
+        return bestRoster;
+    }
+
+    public Solver<Roster> getSolver() {
+        return solver;
+    }
+
+    /**
+     * Stops solving and waits for the solver thread.
+     * @return the best roster
+     */
+    public synchronized Roster terminate() {
+        if (solveFuture == null) {
+            throw new IllegalStateException("The daemon was never started.");
+        }
+        solver.terminateEarly();
+        try {
+            return solveFuture.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the solver to terminate.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The solver failed.", e.getCause());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver;
+
+import java.util.Collections;
+
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+
+/**
+ * Pays the solver startup cost once per process instead of once per roster:
+ * no classpath scanning for annotated classes, and a rule base that is compiled
+ * (or loaded from {@link KieContainerCache}) only once.
+ * <p>
+ * Don't change the shared {@link SolverFactory}, use {@link SolverFactory#cloneSolverFactory()} to tweak it.
+ */
+public class SolverFactoryHolder {
+
+    public static final String SOLVER_CONFIG
+            = "org/optaplanner/training/workerrostering/solver/workerRosteringSolverConfig.xml";
+
+    private static volatile SolverFactory<Roster> solverFactory = null;
+
+    /**
+     * Thread-safe.
+     * @return never null, shared by the whole process
+     */
+    public static SolverFactory<Roster> getSolverFactory() {
+        SolverFactory<Roster> result = solverFactory;
+        if (result == null) {
+            synchronized (SolverFactoryHolder.class) {
+                result = solverFactory;
+                if (result == null) {
+                    result = createSolverFactory();
+                    solverFactory = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Thread-safe.
+     * @return never null, a new solver for every roster
+     */
+    public static Solver<Roster> buildSolver() {
+        return getSolverFactory().buildSolver();
+    }
+
+    private static SolverFactory<Roster> createSolverFactory() {
+        SolverFactory<Roster> solverFactory = SolverFactory.createFromKieContainerXmlResource(
+                KieContainerCache.createKieContainer(), SOLVER_CONFIG);
+        SolverConfig solverConfig = solverFactory.getSolverConfig();
+        // List the classes explicitly instead of scanning the classpath for them
+        solverConfig.setScanAnnotatedClassesConfig(null);
+        solverConfig.setSolutionClass(Roster.class);
+        solverConfig.setEntityClassList(Collections.singletonList(ShiftAssignment.class));
+        // The kie container holds the compiled rules, so it builds the KieBase once and shares it across solvers
+        ScoreDirectorFactoryConfig scoreDirectorFactoryConfig = solverConfig.getScoreDirectorFactoryConfig();
+        scoreDirectorFactoryConfig.setScoreDrlList(null);
+        scoreDirectorFactoryConfig.setKsessionName(KieContainerCache.KSESSION_NAME);
+        return solverFactory;
+    }
+
+    private SolverFactoryHolder() {
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver.change;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.core.impl.solver.ProblemFactChange;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.EmployeeHistorySummary;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.TimeSlot;
+
+/**
+ * A change is created outside of the solver thread, so it refers to employees and shifts by name and date.
+ * It looks them up in the working solution when the solver applies it, never in the best solution.
+ * <p>
+ * Planning clones, such as the best solutions that other threads read, share the problem facts.
+ * So a change never changes an {@link Employee} in place: it changes a copy and replaces the original with it.
+ */
+public abstract class AbstractRosterProblemFactChange implements ProblemFactChange<Roster> {
+
+    protected Employee lookUpEmployee(Roster workingRoster, String employeeName) {
+        for (Employee employee : workingRoster.getEmployeeList()) {
+            if (employee.getName().equals(employeeName)) {
+                return employee;
+            }
+        }
+        throw new IllegalArgumentException("The employeeName (" + employeeName
+                + ") does not exist in the employeeList.");
+    }
+
+    /**
+     * @param date any day of the shift
+     */
+    protected ShiftAssignment lookUpShiftAssignment(Roster workingRoster, String spotName, LocalDate date) {
+        for (ShiftAssignment shiftAssignment : workingRoster.getShiftAssignmentList()) {
+            if (shiftAssignment.getSpot().getName().equals(spotName) && shiftAssignment.getDays().contains(date)) {
+                return shiftAssignment;
+            }
+        }
+        throw new IllegalArgumentException("The spotName (" + spotName + ") has no shift assignment on date ("
+                + date + ").");
+    }
+
+    /**
+     * @return the time slot from whose start date (inclusive) to its end date (exclusive) the date falls
+     */
+    protected TimeSlot lookUpTimeSlot(Roster workingRoster, LocalDate date) {
+        for (TimeSlot timeSlot : workingRoster.getTimeSlotList()) {
+            if (!date.isBefore(timeSlot.getStartDateTime().toLocalDate())
+                    && date.isBefore(timeSlot.getEndDateTime().toLocalDate())) {
+                return timeSlot;
+            }
+        }
+        throw new IllegalArgumentException("The date (" + date + ") is not in any timeSlot.");
+    }
+
+    /**
+     * Same as reading the "Extra Shifts" sheet: the end date of a time slot counts as part of it,
+     * so a date on the boundary belongs to the earlier time slot.
+     */
+    protected TimeSlot lookUpExtraShiftTimeSlot(Roster workingRoster, LocalDate date) {
+        for (TimeSlot timeSlot : workingRoster.getTimeSlotList()) {
+            if (!date.isBefore(timeSlot.getStartDateTime().toLocalDate())
+                    && !date.isAfter(timeSlot.getEndDateTime().toLocalDate())) {
+                return timeSlot;
+            }
+        }
+        throw new IllegalArgumentException("The date (" + date + ") is not in any timeSlot.");
+    }
+
+    /**
+     * @return never null, with copies of the date and time slot sets of the original
+     */
+    protected Employee copyEmployee(Employee original) {
+        Employee copy = new Employee(original.getName(), original.getSkillSet(), original.getBaseTime(),
+                original.getVIPFactor());
+        copy.setExpectedHours(original.getExpectedHours());
+        copy.getUnavailableDateSet().addAll(original.getUnavailableDateSet());
+        copy.getUndesirableDateSet().addAll(original.getUndesirableDateSet());
+        copy.getUnavailableTimeSlotSet().addAll(original.getUnavailableTimeSlotSet());
+        copy.getUndesirableTimeSlotSet().addAll(original.getUndesirableTimeSlotSet());
+        copy.getBeforeVacationTimeSlotSet().addAll(original.getBeforeVacationTimeSlotSet());
+        copy.getAfterVacationTimeSlotSet().addAll(original.getAfterVacationTimeSlotSet());
+        return copy;
+    }
+
+    /**
+     * Replaces the original by the copy in the working solution:
+     * in the employeeList, in its history summary and as the employee of its shift assignments.
+     * The original itself stays untouched.
+     */
+    protected void replaceEmployee(ScoreDirector<Roster> scoreDirector, Employee original, Employee copy) {
+        Roster workingRoster = scoreDirector.getWorkingSolution();
+        scoreDirector.beforeProblemFactAdded(copy);
+        scoreDirector.beforeProblemFactRemoved(original);
+        workingRoster.replaceEmployee(original, copy);
+        scoreDirector.afterProblemFactAdded(copy);
+        for (ShiftAssignment shiftAssignment : workingRoster.getShiftAssignmentList()) {
+            if (shiftAssignment.getEmployee() == original) {
+                scoreDirector.beforeVariableChanged(shiftAssignment, "employee");
+                shiftAssignment.setEmployee(copy);
+                scoreDirector.afterVariableChanged(shiftAssignment, "employee");
+            }
+        }
+        // Like Roster.replaceEmployee(), never set into a list that a best solution might still hold
+        List<EmployeeHistorySummary> historySummaryList
+                = new ArrayList<>(workingRoster.getEmployeeHistorySummaryList());
+        workingRoster.setEmployeeHistorySummaryList(historySummaryList);
+        for (int i = 0; i < historySummaryList.size(); i++) {
+            EmployeeHistorySummary summary = historySummaryList.get(i);
+            if (summary.getEmployee() == original) {
+                EmployeeHistorySummary summaryCopy = new EmployeeHistorySummary(copy, summary.getShiftCount(),
+                        summary.getDays(), summary.getAdjustedCost(), summary.getShiftTypeAdjustedCostMap());
+                replaceProblemFact(scoreDirector, historySummaryList, i, summaryCopy);
+            }
+        }
+        scoreDirector.afterProblemFactRemoved(original);
+    }
+
+    private <Fact> void replaceProblemFact(ScoreDirector<Roster> scoreDirector, List<Fact> factList, int index,
+            Fact copy) {
+        Fact original = factList.get(index);
+        scoreDirector.beforeProblemFactRemoved(original);
+        scoreDirector.beforeProblemFactAdded(copy);
+        factList.set(index, copy);
+        scoreDirector.afterProblemFactRemoved(original);
+        scoreDirector.afterProblemFactAdded(copy);
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver.change;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.Spot;
+import org.optaplanner.training.workerrostering.domain.TimeSlot;
+
+/**
+ * Adds an extra shift (for example on a holiday), like a row in the "Extra Shifts" sheet.
+ * The new shift is unassigned, so the solver assigns it when it restarts from the working solution.
+ */
+public class AddExtraShiftProblemFactChange extends AbstractRosterProblemFactChange {
+
+    private final LocalDate date;
+    private final String spotName;
+    private final int days;
+
+    public AddExtraShiftProblemFactChange(LocalDate date, String spotName, int days) {
+        this.date = date;
+        this.spotName = spotName;
+        this.days = days;
+    }
+
+    @Override
+    public void doChange(ScoreDirector<Roster> scoreDirector) {
+        Roster workingRoster = scoreDirector.getWorkingSolution();
+        Spot spot = workingRoster.getSpotList().stream()
+                .filter(candidate -> candidate.getName().equals(spotName))
+                .findFirst().orElseThrow(() -> new IllegalArgumentException("The spotName (" + spotName
+                        + ") does not exist in the spotList."));
+        TimeSlot timeSlot = lookUpExtraShiftTimeSlot(workingRoster, date);
+        int offset = (int) ChronoUnit.DAYS.between(timeSlot.getStartDateTime().toLocalDate(), date);
+        // Same as reading the workbook: extra spots aren't added to the spotList
+        Spot extraSpot = new Spot("EX_" + spot.getName(), spot.getRequiredSkill(), spot.getUnsuitableSkill(),
+                days, -50000, -50000, offset);
+        extraSpot.setIsExtraSpot(true);
+        ShiftAssignment shiftAssignment = new ShiftAssignment(extraSpot, timeSlot);
+        shiftAssignment.setRoster(workingRoster);
+        scoreDirector.beforeEntityAdded(shiftAssignment);
+        workingRoster.getShiftAssignmentList().add(shiftAssignment);
+        scoreDirector.afterEntityAdded(shiftAssignment);
+
+        // More days to work means a bigger expected share for everybody
+        for (Employee employee : workingRoster.getEmployeeList()) {
+            replaceEmployee(scoreDirector, employee, copyEmployee(employee));
+        }
+        List<Employee> copyList = workingRoster.getEmployeeList();
+        for (Employee copy : copyList) {
+            scoreDirector.beforeProblemPropertyChanged(copy);
+        }
+        workingRoster.updateExpectedHours();
+        for (Employee copy : copyList) {
+            scoreDirector.afterProblemPropertyChanged(copy);
+        }
+        scoreDirector.triggerVariableListeners();
+    }
+
+    @Override
+    public String toString() {
+        return "Add extra shift " + spotName + " on " + date + " for " + days + " days";
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver.change;
+
+import java.time.LocalDate;
+
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.persistence.RosterImportSupport;
+
+/**
+ * Marks a day as vacation for an employee, like a blue cell in the "Vacation Calendar" sheet:
+ * the day after and the weekend around the vacation become undesirable, as if the workbook was read again.
+ */
+public class AddUnavailableDateProblemFactChange extends AbstractRosterProblemFactChange {
+
+    private final String employeeName;
+    private final LocalDate date;
+
+    public AddUnavailableDateProblemFactChange(String employeeName, LocalDate date) {
+        this.employeeName = employeeName;
+        this.date = date;
+    }
+
+    @Override
+    public void doChange(ScoreDirector<Roster> scoreDirector) {
+        Roster workingRoster = scoreDirector.getWorkingSolution();
+        Employee employee = lookUpEmployee(workingRoster, employeeName);
+        if (employee.getUnavailableDateSet().contains(date)) {
+            return;
+        }
+        Employee copy = copyEmployee(employee);
+        RosterImportSupport.addUnavailableDate(workingRoster.getTimeSlotList(), copy, date);
+        // Also moves the shift assignments of the employee to the copy, so the vacation rules re-evaluate
+        replaceEmployee(scoreDirector, employee, copy);
+        scoreDirector.triggerVariableListeners();
+    }
+
+    @Override
+    public String toString() {
+        return "Add unavailable " + date + " for " + employeeName;
+    }
+
+}
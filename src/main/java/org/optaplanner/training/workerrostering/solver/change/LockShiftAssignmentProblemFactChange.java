@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver.change;
+
+import java.time.LocalDate;
+
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+
+/**
+ * Pins a shift assignment, like a yellow cell in the "Vacation Calendar" sheet,
+ * or unpins it so the solver may move it again.
+ */
+public class LockShiftAssignmentProblemFactChange extends AbstractRosterProblemFactChange {
+
+    private final String spotName;
+    private final LocalDate date;
+    private final String employeeName;
+    private final boolean lockedByUser;
+
+    /**
+     * Pins the shift on the employee.
+     * @param date any day of the shift
+     */
+    public static LockShiftAssignmentProblemFactChange lock(String spotName, LocalDate date, String employeeName) {
+        return new LockShiftAssignmentProblemFactChange(spotName, date, employeeName, true);
+    }
+
+    /**
+     * Unpins the shift, it keeps its current employee until the solver finds a better one.
+     * @param date any day of the shift
+     */
+    public static LockShiftAssignmentProblemFactChange unlock(String spotName, LocalDate date) {
+        return new LockShiftAssignmentProblemFactChange(spotName, date, null, false);
+    }
+
+    private LockShiftAssignmentProblemFactChange(String spotName, LocalDate date, String employeeName,
+            boolean lockedByUser) {
+        this.spotName = spotName;
+        this.date = date;
+        this.employeeName = employeeName;
+        this.lockedByUser = lockedByUser;
+    }
+
+    @Override
+    public void doChange(ScoreDirector<Roster> scoreDirector) {
+        Roster workingRoster = scoreDirector.getWorkingSolution();
+        ShiftAssignment shiftAssignment = lookUpShiftAssignment(workingRoster, spotName, date);
+        if (employeeName != null) {
+            Employee employee = lookUpEmployee(workingRoster, employeeName);
+            if (shiftAssignment.getEmployee() != employee) {
+                scoreDirector.beforeVariableChanged(shiftAssignment, "employee");
+                shiftAssignment.setEmployee(employee);
+                scoreDirector.afterVariableChanged(shiftAssignment, "employee");
+            }
+        }
+        scoreDirector.beforeProblemPropertyChanged(shiftAssignment);
+        shiftAssignment.setLockedByUser(lockedByUser);
+        scoreDirector.afterProblemPropertyChanged(shiftAssignment);
+        scoreDirector.triggerVariableListeners();
+    }
+
+    @Override
+    public String toString() {
+        return (lockedByUser ? "Lock " + spotName + " " + date + " on " + employeeName
+                : "Unlock " + spotName + " " + date);
+    }
+
+}
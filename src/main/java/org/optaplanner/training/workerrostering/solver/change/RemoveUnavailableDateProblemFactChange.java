@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver.change;
+
+import java.time.LocalDate;
+
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.TimeSlot;
+
+/**
+ * The reverse of {@link AddUnavailableDateProblemFactChange}.
+ * The undesirable dates stay, because the employee might have marked them undesirable anyway.
+ */
+public class RemoveUnavailableDateProblemFactChange extends AbstractRosterProblemFactChange {
+
+    private final String employeeName;
+    private final LocalDate date;
+
+    public RemoveUnavailableDateProblemFactChange(String employeeName, LocalDate date) {
+        this.employeeName = employeeName;
+        this.date = date;
+    }
+
+    @Override
+    public void doChange(ScoreDirector<Roster> scoreDirector) {
+        Roster workingRoster = scoreDirector.getWorkingSolution();
+        Employee employee = lookUpEmployee(workingRoster, employeeName);
+        if (!employee.getUnavailableDateSet().contains(date)) {
+            return;
+        }
+        Employee copy = copyEmployee(employee);
+        copy.getUnavailableDateSet().remove(date);
+        TimeSlot timeSlot = lookUpTimeSlot(workingRoster, date);
+        // The time slot stays unavailable if another day of it is still vacation
+        LocalDate end = timeSlot.getEndDateTime().toLocalDate();
+        boolean stillUnavailable = false;
+        for (LocalDate day = timeSlot.getStartDateTime().toLocalDate(); day.isBefore(end); day = day.plusDays(1)) {
+            if (copy.getUnavailableDateSet().contains(day)) {
+                stillUnavailable = true;
+                break;
+            }
+        }
+        if (!stillUnavailable) {
+            copy.getUnavailableTimeSlotSet().remove(timeSlot);
+        }
+        replaceEmployee(scoreDirector, employee, copy);
+        scoreDirector.triggerVariableListeners();
+    }
+
+    @Override
+    public String toString() {
+        return "Remove unavailable " + date + " for " + employeeName;
+    }
+
+}
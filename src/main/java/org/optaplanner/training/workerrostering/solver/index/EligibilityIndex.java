@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.Spot;
+
+/**
+ * Which employees can work which spot, computed once per roster.
+ * Only depends on problem facts, so it stays valid for the whole solve.
+ */
+public class EligibilityIndex {
+
+    private final List<Employee> employeeList;
+    private final Map<Spot, List<Employee>> skilledEmployeeListMap;
+
+    public EligibilityIndex(Roster roster) {
+        employeeList = roster.getEmployeeList();
+        skilledEmployeeListMap = new IdentityHashMap<>();
+        for (ShiftAssignment shiftAssignment : roster.getShiftAssignmentList()) {
+            // Extra shifts have their own spot instances outside of the spotList
+            skilledEmployeeListMap.computeIfAbsent(shiftAssignment.getSpot(), this::findSkilledEmployeeList);
+        }
+    }
+
+    private List<Employee> findSkilledEmployeeList(Spot spot) {
+        List<Employee> skilledEmployeeList = new ArrayList<>();
+        for (Employee employee : employeeList) {
+            if (employee.getCanDoJob(spot)) {
+                skilledEmployeeList.add(employee);
+            }
+        }
+        return Collections.unmodifiableList(skilledEmployeeList);
+    }
+
+    public List<Employee> getEmployeeList() {
+        return employeeList;
+    }
+
+    /**
+     * @param spot never null
+     * @return never null, sorted by name, the employees that satisfy the "Required skill for a shift" rule
+     */
+    public List<Employee> getSkilledEmployeeList(Spot spot) {
+        List<Employee> skilledEmployeeList = skilledEmployeeListMap.get(spot);
+        if (skilledEmployeeList == null) {
+            skilledEmployeeList = findSkilledEmployeeList(spot);
+            skilledEmployeeListMap.put(spot, skilledEmployeeList);
+        }
+        return skilledEmployeeList;
+    }
+
+    /**
+     * @return true if assigning the employee breaks neither the skill nor the vacation hard constraint
+     */
+    public boolean isEligible(Employee employee, ShiftAssignment shiftAssignment) {
+        return employee.getCanDoJob(shiftAssignment.getSpot())
+                && employee.getShiftVacationOverlap(shiftAssignment) == 0;
+    }
+
+}
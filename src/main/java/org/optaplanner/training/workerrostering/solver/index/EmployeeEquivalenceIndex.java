@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver.index;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.TimeSlot;
+
+/**
+ * Groups the employees that the score rules can't tell apart within a time slot:
+ * same skills, time and VIP factor, and the same unavailable and undesirable days within that time slot.
+ * Many sites have lots of such employees, who only differ in their vacation calendar.
+ * <p>
+ * Within a class, it doesn't matter which member works which of 2 equally long shifts of the same shift type,
+ * so a swap between them is wasted effort, and a construction only needs to decide how many shifts go to a class.
+ * Only depends on problem facts, so it stays valid for the whole solve.
+ */
+public class EmployeeEquivalenceIndex {
+
+    private final List<Employee> employeeList;
+    // Only the days that some shift of that time slot covers matter to the score
+    private final Map<TimeSlot, Set<LocalDate>> timeSlotDateSetMap;
+    private final Map<TimeSlot, List<List<Employee>>> classListMap;
+
+    @SuppressWarnings("deprecation")
+    public EmployeeEquivalenceIndex(Roster roster) {
+        employeeList = roster.getEmployeeList();
+        timeSlotDateSetMap = new IdentityHashMap<>();
+        for (ShiftAssignment shiftAssignment : roster.getShiftAssignmentList()) {
+            timeSlotDateSetMap.computeIfAbsent(shiftAssignment.getTimeSlot(), key -> new TreeSet<>())
+                    .addAll(shiftAssignment.getDays());
+        }
+        classListMap = new IdentityHashMap<>();
+    }
+
+    /**
+     * @param timeSlot never null
+     * @return never null, every employee is in exactly 1 class, the members of a class are sorted by name
+     */
+    public List<List<Employee>> getClassList(TimeSlot timeSlot) {
+        List<List<Employee>> classList = classListMap.get(timeSlot);
+        if (classList == null) {
+            Collection<LocalDate> dateCollection = getDates(timeSlot);
+            Map<List<Object>, List<Employee>> classMap = new LinkedHashMap<>();
+            for (Employee employee : employeeList) {
+                classMap.computeIfAbsent(buildClassKey(employee, dateCollection), key -> new ArrayList<>())
+                        .add(employee);
+            }
+            classList = Collections.unmodifiableList(new ArrayList<>(classMap.values()));
+            classListMap.put(timeSlot, classList);
+        }
+        return classList;
+    }
+
+    public boolean isEquivalent(Employee a, Employee b, TimeSlot timeSlot) {
+        return isEquivalent(a, b, getDates(timeSlot));
+    }
+
+    private Collection<LocalDate> getDates(TimeSlot timeSlot) {
+        return timeSlotDateSetMap.getOrDefault(timeSlot, Collections.emptySet());
+    }
+
+    /**
+     * Doesn't need an index, for callers that only compare 2 employees once, such as a move filter.
+     * @param dateCollection never null, the days that matter, for example {@link ShiftAssignment#getDays()}
+     * @return true if the score rules treat both employees the same on those days
+     */
+    public static boolean isEquivalent(Employee a, Employee b, Collection<LocalDate> dateCollection) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null) {
+            return false;
+        }
+        if (a.getTime() != b.getTime() || a.getVIPFactor() != b.getVIPFactor()
+                || !a.getSkillSet().equals(b.getSkillSet())) {
+            return false;
+        }
+        for (LocalDate date : dateCollection) {
+            if (a.getUnavailableDateSet().contains(date) != b.getUnavailableDateSet().contains(date)
+                    || a.getUndesirableDateSet().contains(date) != b.getUndesirableDateSet().contains(date)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Object> buildClassKey(Employee employee, Collection<LocalDate> dateCollection) {
+        StringBuilder availability = new StringBuilder(dateCollection.size());
+        for (LocalDate date : dateCollection) {
+            boolean unavailable = employee.getUnavailableDateSet().contains(date);
+            boolean undesirable = employee.getUndesirableDateSet().contains(date);
+            availability.append(unavailable ? (undesirable ? 'B' : 'U') : (undesirable ? 'D' : '-'));
+        }
+        return Arrays.asList(employee.getSkillSet(), employee.getTime(), employee.getVIPFactor(),
+                availability.toString());
+    }
+
+}
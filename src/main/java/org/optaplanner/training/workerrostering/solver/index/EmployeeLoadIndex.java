@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver.index;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.EmployeeHistorySummary;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.TimeSlot;
+
+/**
+ * Per employee load, as the fairness rules see it: the sum of {@link ShiftAssignment#getAdjustedCost()}.
+ * <p>
+ * This is a snapshot of the working solution: build it at the start of a step, or keep it in sync
+ * with {@link #assign(ShiftAssignment, Employee)} or like {@link MovableAssignmentIndex} does.
+ */
+public class EmployeeLoadIndex {
+
+    private final Map<Employee, EmployeeLoad> loadMap;
+
+    public EmployeeLoadIndex(Roster roster) {
+        loadMap = new IdentityHashMap<>(roster.getEmployeeList().size());
+        for (Employee employee : roster.getEmployeeList()) {
+            loadMap.put(employee, new EmployeeLoad());
+        }
+        // The fairness rules count the history that's no longer in the working memory too
+        for (EmployeeHistorySummary historySummary : roster.getEmployeeHistorySummaryList()) {
+            EmployeeLoad load = getLoad(historySummary.getEmployee());
+            load.adjustedCost += historySummary.getAdjustedCost();
+            historySummary.getShiftTypeAdjustedCostMap().forEach((shiftType, adjustedCost)
+                    -> load.shiftTypeAdjustedCostMap.merge(shiftType, adjustedCost, Long::sum));
+        }
+        for (ShiftAssignment shiftAssignment : roster.getShiftAssignmentList()) {
+            Employee employee = shiftAssignment.getEmployee();
+            if (employee != null) {
+                getLoad(employee).add(shiftAssignment, employee);
+            }
+        }
+    }
+
+    private EmployeeLoad getLoad(Employee employee) {
+        return loadMap.computeIfAbsent(employee, key -> new EmployeeLoad());
+    }
+
+    public long getAdjustedCost(Employee employee) {
+        return getLoad(employee).adjustedCost;
+    }
+
+    public long getAdjustedCost(Employee employee, String shiftType) {
+        Long adjustedCost = getLoad(employee).shiftTypeAdjustedCostMap.get(shiftType);
+        return adjustedCost == null ? 0L : adjustedCost;
+    }
+
+    /**
+     * The adjusted cost every employee would have in a perfectly balanced roster.
+     * It's the same for every employee, because the adjusted cost is already normalized by {@link Employee#getTime()}.
+     */
+    public double getTargetAdjustedCost(Employee employee) {
+        return employee.getTimeAdjustedCost(employee.getExpectedHours());
+    }
+
+    /**
+     * @return positive if the employee works more than expected
+     */
+    public double getDeviation(Employee employee) {
+        return getAdjustedCost(employee) - getTargetAdjustedCost(employee);
+    }
+
+    /**
+     * Mirrors the "At most one shift assignment per day per employee" rule, which compares time slot start dates.
+     */
+    public boolean isOccupied(Employee employee, TimeSlot timeSlot) {
+        return getLoad(employee).occupiedDateCountMap.containsKey(timeSlot.getStartDateTime().toLocalDate());
+    }
+
+    /**
+     * Keeps the index in sync when a caller changes the working solution itself, for example a custom phase.
+     * Call it before {@link ShiftAssignment#setEmployee(Employee)}.
+     * @param shiftAssignment never null
+     * @param toEmployee sometimes null
+     */
+    public void assign(ShiftAssignment shiftAssignment, Employee toEmployee) {
+        Employee fromEmployee = shiftAssignment.getEmployee();
+        if (fromEmployee != null) {
+            remove(shiftAssignment, fromEmployee);
+        }
+        if (toEmployee != null) {
+            add(shiftAssignment, toEmployee);
+        }
+    }
+
+    /**
+     * Counts the shift for the employee, without looking at {@link ShiftAssignment#getEmployee()}.
+     * Use it with {@link #remove(ShiftAssignment, Employee)} to try out assignments before doing a move.
+     */
+    public void add(ShiftAssignment shiftAssignment, Employee employee) {
+        getLoad(employee).add(shiftAssignment, employee);
+    }
+
+    /**
+     * The reverse of {@link #add(ShiftAssignment, Employee)}.
+     */
+    public void remove(ShiftAssignment shiftAssignment, Employee employee) {
+        getLoad(employee).remove(shiftAssignment, employee);
+    }
+
+    private static class EmployeeLoad {
+
+        private long adjustedCost = 0L;
+        private final Map<String, Long> shiftTypeAdjustedCostMap = new HashMap<>(4);
+        // A count, not a set: a broken solution can have 2 shifts of the same employee on the same day
+        private final Map<LocalDate, Integer> occupiedDateCountMap = new HashMap<>();
+
+        @SuppressWarnings("deprecation")
+        private void add(ShiftAssignment shiftAssignment, Employee employee) {
+            long cost = adjustedCost(shiftAssignment, employee);
+            adjustedCost += cost;
+            shiftTypeAdjustedCostMap.merge(shiftAssignment.getSpot().getShiftType(), cost, Long::sum);
+            occupiedDateCountMap.merge(shiftAssignment.getTimeSlot().getStartDateTime().toLocalDate(), 1, Integer::sum);
+        }
+
+        @SuppressWarnings("deprecation")
+        private void remove(ShiftAssignment shiftAssignment, Employee employee) {
+            long cost = adjustedCost(shiftAssignment, employee);
+            adjustedCost -= cost;
+            shiftTypeAdjustedCostMap.merge(shiftAssignment.getSpot().getShiftType(), -cost, Long::sum);
+            occupiedDateCountMap.computeIfPresent(shiftAssignment.getTimeSlot().getStartDateTime().toLocalDate(),
+                    (date, count) -> count == 1 ? null : count - 1);
+        }
+
+    }
+
+    /**
+     * Same as {@link ShiftAssignment#getAdjustedCost()}, but for an employee that isn't assigned (yet).
+     */
+    public static long adjustedCost(ShiftAssignment shiftAssignment, Employee employee) {
+        return (long) (shiftAssignment.getSpot().getDays() * 100 / employee.getTime());
+    }
+
+}
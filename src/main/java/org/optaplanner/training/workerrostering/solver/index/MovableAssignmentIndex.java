@@ -0,0 +1,237 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaplanner.training.workerrostering.solver.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.TimeSlot;
+import org.optaplanner.training.workerrostering.optional.domain.MovableShiftAssignmentFilter;
+
+/**
+ * The indexes of the custom move iterator factories, kept across the steps of a working solution:
+ * the {@link EligibilityIndex}, the {@link EmployeeLoadIndex} and the movable shift assignments
+ * (not locked by the user and not in a HISTORY time slot) that have an employee,
+ * per employee (sorted by time slot start) and per time slot.
+ * <p>
+ * Building them costs a pass over every shift assignment and every employee, plus the maps,
+ * so instead of a rebuild every step, {@link #update(MovableAssignmentIndex, ScoreDirector)} compares
+ * every shift assignment with its employee of the previous update and only moves the changed ones.
+ * A move iterator factory gets no step events, and the generic change and swap moves change the roster too,
+ * so that comparison is how the moves that were actually done reach the index.
+ * <p>
+ * Only valid for 1 working solution: a new phase or a restart after a problem fact change gets a new one.
+ * Not thread-safe, every solver builds its own move iterator factories.
+ */
+public class MovableAssignmentIndex {
+
+    @SuppressWarnings("deprecation")
+    private static final Comparator<ShiftAssignment> START_COMPARATOR = Comparator.comparing(
+            shiftAssignment -> shiftAssignment.getTimeSlot().getStartDateTime());
+
+    private final Roster roster;
+    private final ShiftAssignment[] shiftAssignments;
+    // The employee of each shift assignment at the last update
+    private final Employee[] employees;
+    private final boolean[] movables;
+    private final EligibilityIndex eligibilityIndex;
+    private final EmployeeLoadIndex loadIndex;
+
+    private final List<ShiftAssignment> movableAssignmentList;
+    // Only the employees with at least 1 movable shift assignment
+    private final Map<Employee, List<ShiftAssignment>> movableAssignmentListMap;
+    private final List<Employee> movableEmployeeList;
+    private final Map<TimeSlot, List<ShiftAssignment>> timeSlotBlockMap;
+    // Only the non empty blocks
+    private final List<List<ShiftAssignment>> timeSlotBlockList;
+
+    /**
+     * @param previous null if there is none yet
+     * @param scoreDirector never null
+     * @return never null, previous brought up to date if it's still for the working solution, otherwise a new one
+     */
+    public static MovableAssignmentIndex update(MovableAssignmentIndex previous, ScoreDirector<Roster> scoreDirector) {
+        Roster roster = scoreDirector.getWorkingSolution();
+        if (previous == null || previous.roster != roster
+                || previous.shiftAssignments.length != roster.getShiftAssignmentList().size()) {
+            return new MovableAssignmentIndex(scoreDirector);
+        }
+        previous.updateChangedAssignments();
+        return previous;
+    }
+
+    @SuppressWarnings("deprecation")
+    public MovableAssignmentIndex(ScoreDirector<Roster> scoreDirector) {
+        roster = scoreDirector.getWorkingSolution();
+        shiftAssignments = roster.getShiftAssignmentList().toArray(new ShiftAssignment[0]);
+        employees = new Employee[shiftAssignments.length];
+        movables = new boolean[shiftAssignments.length];
+        eligibilityIndex = new EligibilityIndex(roster);
+        loadIndex = new EmployeeLoadIndex(roster);
+        movableAssignmentList = new ArrayList<>(shiftAssignments.length);
+        movableAssignmentListMap = new IdentityHashMap<>();
+        movableEmployeeList = new ArrayList<>();
+        timeSlotBlockMap = new LinkedHashMap<>();
+        timeSlotBlockList = new ArrayList<>();
+        MovableShiftAssignmentFilter movableFilter = new MovableShiftAssignmentFilter();
+        for (int i = 0; i < shiftAssignments.length; i++) {
+            ShiftAssignment shiftAssignment = shiftAssignments[i];
+            Employee employee = shiftAssignment.getEmployee();
+            employees[i] = employee;
+            movables[i] = movableFilter.accept(scoreDirector, shiftAssignment);
+            if (movables[i] && employee != null) {
+                movableAssignmentList.add(shiftAssignment);
+                movableAssignmentListMap.computeIfAbsent(employee, key -> {
+                    movableEmployeeList.add(key);
+                    return new ArrayList<>();
+                }).add(shiftAssignment);
+                timeSlotBlockMap.computeIfAbsent(shiftAssignment.getTimeSlot(), key -> {
+                    List<ShiftAssignment> timeSlotBlock = new ArrayList<>();
+                    timeSlotBlockList.add(timeSlotBlock);
+                    return timeSlotBlock;
+                }).add(shiftAssignment);
+            }
+        }
+        for (List<ShiftAssignment> employeeAssignmentList : movableAssignmentListMap.values()) {
+            employeeAssignmentList.sort(START_COMPARATOR);
+        }
+    }
+
+    private void updateChangedAssignments() {
+        for (int i = 0; i < shiftAssignments.length; i++) {
+            ShiftAssignment shiftAssignment = shiftAssignments[i];
+            Employee fromEmployee = employees[i];
+            Employee toEmployee = shiftAssignment.getEmployee();
+            if (toEmployee == fromEmployee) {
+                continue;
+            }
+            if (fromEmployee != null) {
+                loadIndex.remove(shiftAssignment, fromEmployee);
+            }
+            if (toEmployee != null) {
+                loadIndex.add(shiftAssignment, toEmployee);
+            }
+            if (movables[i]) {
+                moveMovable(shiftAssignment, fromEmployee, toEmployee);
+            }
+            employees[i] = toEmployee;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void moveMovable(ShiftAssignment shiftAssignment, Employee fromEmployee, Employee toEmployee) {
+        if (fromEmployee != null) {
+            List<ShiftAssignment> fromAssignmentList = movableAssignmentListMap.get(fromEmployee);
+            removeSame(fromAssignmentList, shiftAssignment);
+            if (fromAssignmentList.isEmpty()) {
+                movableAssignmentListMap.remove(fromEmployee);
+                removeSame(movableEmployeeList, fromEmployee);
+            }
+        }
+        if (toEmployee != null) {
+            List<ShiftAssignment> toAssignmentList = movableAssignmentListMap.computeIfAbsent(toEmployee, key -> {
+                movableEmployeeList.add(key);
+                return new ArrayList<>();
+            });
+            int index = Collections.binarySearch(toAssignmentList, shiftAssignment, START_COMPARATOR);
+            toAssignmentList.add(index < 0 ? -index - 1 : index, shiftAssignment);
+        }
+        // Only a shift assignment that gains or loses its employee enters or leaves the other lists
+        TimeSlot timeSlot = shiftAssignment.getTimeSlot();
+        if (fromEmployee == null) {
+            movableAssignmentList.add(shiftAssignment);
+            List<ShiftAssignment> timeSlotBlock = timeSlotBlockMap.computeIfAbsent(timeSlot,
+                    key -> new ArrayList<>());
+            if (timeSlotBlock.isEmpty()) {
+                timeSlotBlockList.add(timeSlotBlock);
+            }
+            timeSlotBlock.add(shiftAssignment);
+        } else if (toEmployee == null) {
+            removeSame(movableAssignmentList, shiftAssignment);
+            List<ShiftAssignment> timeSlotBlock = timeSlotBlockMap.get(timeSlot);
+            removeSame(timeSlotBlock, shiftAssignment);
+            if (timeSlotBlock.isEmpty()) {
+                removeSame(timeSlotBlockList, timeSlotBlock);
+            }
+        }
+    }
+
+    /**
+     * By identity, because 2 empty blocks are equal.
+     */
+    private static <E> void removeSame(List<E> list, E element) {
+        for (int i = list.size() - 1; i >= 0; i--) {
+            if (list.get(i) == element) {
+                list.remove(i);
+                return;
+            }
+        }
+        throw new IllegalStateException("The list (" + list + ") does not contain the element (" + element + ").");
+    }
+
+    public EligibilityIndex getEligibilityIndex() {
+        return eligibilityIndex;
+    }
+
+    /**
+     * Callers that try out assignments on it must revert them before the next move.
+     * @return never null
+     */
+    public EmployeeLoadIndex getLoadIndex() {
+        return loadIndex;
+    }
+
+    /**
+     * @return never null, don't change it, the movable shift assignments that have an employee
+     */
+    public List<ShiftAssignment> getMovableAssignmentList() {
+        return movableAssignmentList;
+    }
+
+    /**
+     * @param employee never null
+     * @return null if the employee has no movable shift assignment, don't change it, sorted by time slot start
+     */
+    public List<ShiftAssignment> getMovableAssignmentList(Employee employee) {
+        return movableAssignmentListMap.get(employee);
+    }
+
+    /**
+     * @return never null, don't change it, the employees with at least 1 movable shift assignment
+     */
+    public List<Employee> getMovableEmployeeList() {
+        return movableEmployeeList;
+    }
+
+    /**
+     * @return never null, don't change it, per time slot the movable shift assignments that have an employee
+     */
+    public List<List<ShiftAssignment>> getTimeSlotBlockList() {
+        return timeSlotBlockList;
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver.move;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.optaplanner.core.impl.heuristic.move.AbstractMove;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+
+/**
+ * Rotates the employees of k shift assignments: each shift assignment gets the employee of the next one,
+ * the last one gets the employee of the first one.
+ * For k = 3 that's A -> B -> C -> A, which no combination of 2 swap moves can do without an intermediate step.
+ * <p>
+ * The undo move is the same rotation over the reversed list.
+ */
+public class CyclicExchangeMove extends AbstractMove<Roster> {
+
+    private final List<ShiftAssignment> shiftAssignmentList;
+
+    /**
+     * @param shiftAssignmentList never null, at least 2 elements, no duplicates
+     */
+    public CyclicExchangeMove(List<ShiftAssignment> shiftAssignmentList) {
+        this.shiftAssignmentList = shiftAssignmentList;
+    }
+
+    public List<ShiftAssignment> getShiftAssignmentList() {
+        return shiftAssignmentList;
+    }
+
+    @Override
+    public boolean isMoveDoable(ScoreDirector<Roster> scoreDirector) {
+        Employee firstEmployee = shiftAssignmentList.get(0).getEmployee();
+        for (ShiftAssignment shiftAssignment : shiftAssignmentList) {
+            if (shiftAssignment.getEmployee() != firstEmployee) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public CyclicExchangeMove createUndoMove(ScoreDirector<Roster> scoreDirector) {
+        List<ShiftAssignment> reversedList = new ArrayList<>(shiftAssignmentList);
+        Collections.reverse(reversedList);
+        return new CyclicExchangeMove(reversedList);
+    }
+
+    @Override
+    protected void doMoveOnGenuineVariables(ScoreDirector<Roster> scoreDirector) {
+        int size = shiftAssignmentList.size();
+        Employee firstEmployee = shiftAssignmentList.get(0).getEmployee();
+        for (int i = 0; i < size; i++) {
+            ShiftAssignment shiftAssignment = shiftAssignmentList.get(i);
+            Employee toEmployee = (i == size - 1) ? firstEmployee : shiftAssignmentList.get(i + 1).getEmployee();
+            scoreDirector.beforeVariableChanged(shiftAssignment, "employee");
+            shiftAssignment.setEmployee(toEmployee);
+            scoreDirector.afterVariableChanged(shiftAssignment, "employee");
+        }
+    }
+
+    @Override
+    public String getSimpleMoveTypeDescription() {
+        return "CyclicExchangeMove(" + shiftAssignmentList.size() + ")";
+    }
+
+    @Override
+    public Collection<? extends Object> getPlanningEntities() {
+        return shiftAssignmentList;
+    }
+
+    @Override
+    public Collection<? extends Object> getPlanningValues() {
+        List<Employee> employeeList = new ArrayList<>(shiftAssignmentList.size());
+        for (ShiftAssignment shiftAssignment : shiftAssignmentList) {
+            employeeList.add(shiftAssignment.getEmployee());
+        }
+        return employeeList;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CyclicExchangeMove)) {
+            return false;
+        }
+        return shiftAssignmentList.equals(((CyclicExchangeMove) o).shiftAssignmentList);
+    }
+
+    @Override
+    public int hashCode() {
+        return shiftAssignmentList.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("CyclicExchangeMove {");
+        int size = shiftAssignmentList.size();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                s.append(", ");
+            }
+            ShiftAssignment shiftAssignment = shiftAssignmentList.get(i);
+            s.append(shiftAssignment).append(" {").append(shiftAssignment.getEmployee())
+                    .append(" -> ").append(shiftAssignmentList.get((i + 1) % size).getEmployee()).append("}");
+        }
+        return s.append("}").toString();
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver.move;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+import org.optaplanner.core.impl.heuristic.move.AbstractMove;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+
+/**
+ * Assigns a new employee to each of several shift assignments at once.
+ * A change move and a swap move are special cases, a ruin and recreate move is the general one.
+ */
+public class EmployeeReassignmentMove extends AbstractMove<Roster> {
+
+    private final String moveTypeDescription;
+    private final List<ShiftAssignment> shiftAssignmentList;
+    private final List<Employee> toEmployeeList;
+
+    /**
+     * @param moveTypeDescription never null, to tell the move types apart in the logs and benchmark reports
+     * @param shiftAssignmentList never null, no duplicates
+     * @param toEmployeeList never null, same size as shiftAssignmentList, no null elements
+     */
+    public EmployeeReassignmentMove(String moveTypeDescription,
+            List<ShiftAssignment> shiftAssignmentList, List<Employee> toEmployeeList) {
+        if (shiftAssignmentList.size() != toEmployeeList.size()) {
+            throw new IllegalArgumentException("The shiftAssignmentList size (" + shiftAssignmentList.size()
+                    + ") differs from the toEmployeeList size (" + toEmployeeList.size() + ").");
+        }
+        this.moveTypeDescription = moveTypeDescription;
+        this.shiftAssignmentList = shiftAssignmentList;
+        this.toEmployeeList = toEmployeeList;
+    }
+
+    public List<ShiftAssignment> getShiftAssignmentList() {
+        return shiftAssignmentList;
+    }
+
+    public List<Employee> getToEmployeeList() {
+        return toEmployeeList;
+    }
+
+    @Override
+    public boolean isMoveDoable(ScoreDirector<Roster> scoreDirector) {
+        for (int i = 0; i < shiftAssignmentList.size(); i++) {
+            if (shiftAssignmentList.get(i).getEmployee() != toEmployeeList.get(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public EmployeeReassignmentMove createUndoMove(ScoreDirector<Roster> scoreDirector) {
+        List<Employee> undoEmployeeList = new ArrayList<>(shiftAssignmentList.size());
+        for (ShiftAssignment shiftAssignment : shiftAssignmentList) {
+            undoEmployeeList.add(shiftAssignment.getEmployee());
+        }
+        return new EmployeeReassignmentMove(moveTypeDescription, shiftAssignmentList, undoEmployeeList);
+    }
+
+    @Override
+    protected void doMoveOnGenuineVariables(ScoreDirector<Roster> scoreDirector) {
+        for (int i = 0; i < shiftAssignmentList.size(); i++) {
+            ShiftAssignment shiftAssignment = shiftAssignmentList.get(i);
+            Employee toEmployee = toEmployeeList.get(i);
+            if (shiftAssignment.getEmployee() == toEmployee) {
+                continue;
+            }
+            scoreDirector.beforeVariableChanged(shiftAssignment, "employee");
+            shiftAssignment.setEmployee(toEmployee);
+            scoreDirector.afterVariableChanged(shiftAssignment, "employee");
+        }
+    }
+
+    @Override
+    public String getSimpleMoveTypeDescription() {
+        return moveTypeDescription;
+    }
+
+    @Override
+    public Collection<? extends Object> getPlanningEntities() {
+        return shiftAssignmentList;
+    }
+
+    @Override
+    public Collection<? extends Object> getPlanningValues() {
+        return toEmployeeList;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EmployeeReassignmentMove)) {
+            return false;
+        }
+        EmployeeReassignmentMove other = (EmployeeReassignmentMove) o;
+        return Objects.equals(moveTypeDescription, other.moveTypeDescription)
+                && shiftAssignmentList.equals(other.shiftAssignmentList)
+                && toEmployeeList.equals(other.toEmployeeList);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(moveTypeDescription, shiftAssignmentList, toEmployeeList);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder(moveTypeDescription).append(" {");
+        for (int i = 0; i < shiftAssignmentList.size(); i++) {
+            if (i > 0) {
+                s.append(", ");
+            }
+            ShiftAssignment shiftAssignment = shiftAssignmentList.get(i);
+            s.append(shiftAssignment).append(" {").append(shiftAssignment.getEmployee())
+                    .append(" -> ").append(toEmployeeList.get(i)).append("}");
+        }
+        return s.append("}").toString();
+    }
+
+}
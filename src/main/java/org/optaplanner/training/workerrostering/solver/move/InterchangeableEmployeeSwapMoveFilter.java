@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver.move;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.optaplanner.core.impl.heuristic.selector.common.decorator.SelectionFilter;
+import org.optaplanner.core.impl.heuristic.selector.move.generic.SwapMove;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.Spot;
+import org.optaplanner.training.workerrostering.solver.index.EmployeeEquivalenceIndex;
+
+/**
+ * Filters out the swaps that can't change the score: 2 shifts of the same time slot, length and shift type,
+ * worked by 2 employees of the same class (see {@link EmployeeEquivalenceIndex}).
+ */
+public class InterchangeableEmployeeSwapMoveFilter implements SelectionFilter<Roster, SwapMove<Roster>> {
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public boolean accept(ScoreDirector<Roster> scoreDirector, SwapMove<Roster> move) {
+        ShiftAssignment left = (ShiftAssignment) move.getLeftEntity();
+        ShiftAssignment right = (ShiftAssignment) move.getRightEntity();
+        if (left.getTimeSlot() != right.getTimeSlot()) {
+            return true;
+        }
+        Spot leftSpot = left.getSpot();
+        Spot rightSpot = right.getSpot();
+        if (leftSpot.getDays() != rightSpot.getDays() || !leftSpot.getShiftType().equals(rightSpot.getShiftType())) {
+            return true;
+        }
+        Set<LocalDate> dateSet = new HashSet<>(left.getDays());
+        dateSet.addAll(right.getDays());
+        return !EmployeeEquivalenceIndex.isEquivalent(left.getEmployee(), right.getEmployee(), dateSet);
+    }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver.move.factory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.optaplanner.core.impl.heuristic.move.AbstractMove;
+import org.optaplanner.core.impl.heuristic.move.Move;
+import org.optaplanner.core.impl.heuristic.selector.move.factory.MoveIteratorFactory;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.TimeSlot;
+import org.optaplanner.training.workerrostering.solver.index.EligibilityIndex;
+import org.optaplanner.training.workerrostering.solver.index.EmployeeLoadIndex;
+import org.optaplanner.training.workerrostering.solver.index.MovableAssignmentIndex;
+import org.optaplanner.training.workerrostering.solver.move.CyclicExchangeMove;
+
+/**
+ * Builds {@link CyclicExchangeMove}s of {@value #MIN_CYCLE_SIZE} to {@value #MAX_CYCLE_SIZE} shift assignments,
+ * each of a different employee and in a different time slot.
+ * Every employee in the cycle is skilled and available for the shift it receives,
+ * so the cycle never breaks a skill, vacation or same day hard constraint.
+ * <p>
+ * The cycle is built link by link. For every link a few candidates are sampled
+ * and the one with the best incremental fairness delta (total and per shift type, see the FD/ND rules) is kept.
+ * Only supports random selection.
+ */
+public class CyclicExchangeMoveIteratorFactory implements MoveIteratorFactory<Roster> {
+
+    protected static final int MIN_CYCLE_SIZE = 3;
+    protected static final int MAX_CYCLE_SIZE = 4;
+    // Candidates sampled per link of the cycle
+    private static final int LINK_SAMPLE_SIZE = 3;
+    // Attempts to find a link before giving up on the cycle
+    private static final int LINK_ATTEMPT_LIMIT = 20;
+    // Attempts to build a cycle before returning a not doable move
+    private static final int CYCLE_ATTEMPT_LIMIT = 3;
+
+    // Kept across steps
+    private MovableAssignmentIndex movableAssignmentIndex = null;
+
+    @Override
+    public long getSize(ScoreDirector<Roster> scoreDirector) {
+        return scoreDirector.getWorkingSolution().getShiftAssignmentList().size();
+    }
+
+    @Override
+    public Iterator<Move<Roster>> createOriginalMoveIterator(ScoreDirector<Roster> scoreDirector) {
+        throw new UnsupportedOperationException("The moveIteratorFactory (" + getClass().getSimpleName()
+                + ") only supports random selection (selectionOrder RANDOM).");
+    }
+
+    @Override
+    public Iterator<Move<Roster>> createRandomMoveIterator(ScoreDirector<Roster> scoreDirector, Random workingRandom) {
+        movableAssignmentIndex = MovableAssignmentIndex.update(movableAssignmentIndex, scoreDirector);
+        return new CyclicExchangeMoveIterator(movableAssignmentIndex, workingRandom);
+    }
+
+    private class CyclicExchangeMoveIterator implements Iterator<Move<Roster>> {
+
+        private final Random workingRandom;
+        private final EligibilityIndex eligibilityIndex;
+        private final EmployeeLoadIndex loadIndex;
+        private final MovableAssignmentIndex movableAssignmentIndex;
+        private final List<ShiftAssignment> movableAssignmentList;
+
+        private CyclicExchangeMoveIterator(MovableAssignmentIndex movableAssignmentIndex, Random workingRandom) {
+            this.workingRandom = workingRandom;
+            this.movableAssignmentIndex = movableAssignmentIndex;
+            eligibilityIndex = movableAssignmentIndex.getEligibilityIndex();
+            loadIndex = movableAssignmentIndex.getLoadIndex();
+            movableAssignmentList = movableAssignmentIndex.getMovableAssignmentList();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return movableAssignmentIndex.getMovableEmployeeList().size() >= MIN_CYCLE_SIZE;
+        }
+
+        @Override
+        public Move<Roster> next() {
+            for (int attempt = 0; attempt < CYCLE_ATTEMPT_LIMIT; attempt++) {
+                List<ShiftAssignment> cycle = buildCycle();
+                if (cycle != null) {
+                    return new CyclicExchangeMove(cycle);
+                }
+            }
+            // The step just selects another move
+            return NotDoableMove.INSTANCE;
+        }
+
+        /**
+         * @return null if the cycle couldn't be closed
+         */
+        private List<ShiftAssignment> buildCycle() {
+            int cycleSize = MIN_CYCLE_SIZE + workingRandom.nextInt(MAX_CYCLE_SIZE - MIN_CYCLE_SIZE + 1);
+            List<ShiftAssignment> cycle = new ArrayList<>(cycleSize);
+            cycle.add(movableAssignmentList.get(workingRandom.nextInt(movableAssignmentList.size())));
+            while (cycle.size() < cycleSize) {
+                ShiftAssignment link = selectLink(cycle, cycle.size() == cycleSize - 1);
+                if (link == null) {
+                    return null;
+                }
+                cycle.add(link);
+            }
+            return cycle;
+        }
+
+        /**
+         * The employee of the returned shift assignment takes over the last shift assignment of the cycle.
+         * @param closing true if the returned shift assignment is the last one,
+         * so the first employee must also be able to take it over
+         * @return null if no suitable link is found
+         */
+        @SuppressWarnings("deprecation")
+        private ShiftAssignment selectLink(List<ShiftAssignment> cycle, boolean closing) {
+            ShiftAssignment previous = cycle.get(cycle.size() - 1);
+            Employee firstEmployee = cycle.get(0).getEmployee();
+            List<Employee> skilledEmployeeList = eligibilityIndex.getSkilledEmployeeList(previous.getSpot());
+            if (skilledEmployeeList.isEmpty()) {
+                return null;
+            }
+            ShiftAssignment bestLink = null;
+            double bestDelta = Double.MAX_VALUE;
+            int sampleCount = 0;
+            for (int attempt = 0; attempt < LINK_ATTEMPT_LIMIT && sampleCount < LINK_SAMPLE_SIZE; attempt++) {
+                Employee employee = skilledEmployeeList.get(workingRandom.nextInt(skilledEmployeeList.size()));
+                List<ShiftAssignment> employeeAssignmentList
+                        = movableAssignmentIndex.getMovableAssignmentList(employee);
+                if (employeeAssignmentList == null || containsEmployee(cycle, employee)
+                        || loadIndex.isOccupied(employee, previous.getTimeSlot())
+                        || employee.getShiftVacationOverlap(previous) > 0) {
+                    continue;
+                }
+                ShiftAssignment link = employeeAssignmentList.get(workingRandom.nextInt(employeeAssignmentList.size()));
+                if (containsTimeSlot(cycle, link.getTimeSlot())) {
+                    continue;
+                }
+                double delta = calculateFairnessDelta(employee, link, previous);
+                if (closing) {
+                    if (!eligibilityIndex.isEligible(firstEmployee, link)
+                            || loadIndex.isOccupied(firstEmployee, link.getTimeSlot())) {
+                        continue;
+                    }
+                    delta += calculateFairnessDelta(firstEmployee, cycle.get(0), link);
+                }
+                sampleCount++;
+                if (delta < bestDelta) {
+                    bestDelta = delta;
+                    bestLink = link;
+                }
+            }
+            return bestLink;
+        }
+
+        private boolean containsEmployee(List<ShiftAssignment> cycle, Employee employee) {
+            for (ShiftAssignment shiftAssignment : cycle) {
+                if (shiftAssignment.getEmployee() == employee) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @SuppressWarnings("deprecation")
+        private boolean containsTimeSlot(List<ShiftAssignment> cycle, TimeSlot timeSlot) {
+            for (ShiftAssignment shiftAssignment : cycle) {
+                if (shiftAssignment.getTimeSlot() == timeSlot) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Every employee appears only once in a cycle, so the deltas of the links simply add up.
+         * @return the change in the sum of squared adjusted costs, in total and per shift type,
+         * lower is fairer
+         */
+        private double calculateFairnessDelta(Employee employee, ShiftAssignment lost, ShiftAssignment gained) {
+            long lostCost = EmployeeLoadIndex.adjustedCost(lost, employee);
+            long gainedCost = EmployeeLoadIndex.adjustedCost(gained, employee);
+            double delta = squaredDelta(loadIndex.getAdjustedCost(employee), gainedCost - lostCost);
+            String lostShiftType = lost.getSpot().getShiftType();
+            String gainedShiftType = gained.getSpot().getShiftType();
+            if (lostShiftType.equals(gainedShiftType)) {
+                delta += squaredDelta(loadIndex.getAdjustedCost(employee, lostShiftType), gainedCost - lostCost);
+            } else {
+                delta += squaredDelta(loadIndex.getAdjustedCost(employee, lostShiftType), -lostCost);
+                delta += squaredDelta(loadIndex.getAdjustedCost(employee, gainedShiftType), gainedCost);
+            }
+            return delta;
+        }
+
+        private double squaredDelta(long value, long difference) {
+            double newValue = value + difference;
+            return newValue * newValue - (double) value * value;
+        }
+
+    }
+
+    /**
+     * Returned when no cycle is found, so the iterator never builds a cycle of less than 2 shift assignments.
+     */
+    private static class NotDoableMove extends AbstractMove<Roster> {
+
+        private static final NotDoableMove INSTANCE = new NotDoableMove();
+
+        @Override
+        public boolean isMoveDoable(ScoreDirector<Roster> scoreDirector) {
+            return false;
+        }
+
+        @Override
+        public NotDoableMove createUndoMove(ScoreDirector<Roster> scoreDirector) {
+            return this;
+        }
+
+        @Override
+        protected void doMoveOnGenuineVariables(ScoreDirector<Roster> scoreDirector) {
+            throw new IllegalStateException("The move (" + this + ") is not doable.");
+        }
+
+        @Override
+        public String getSimpleMoveTypeDescription() {
+            return "NotDoableMove";
+        }
+
+        @Override
+        public Collection<? extends Object> getPlanningEntities() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Collection<? extends Object> getPlanningValues() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public String toString() {
+            return "NotDoableMove";
+        }
+
+    }
+
+}
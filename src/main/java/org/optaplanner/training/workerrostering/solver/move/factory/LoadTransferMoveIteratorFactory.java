@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver.move.factory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.optaplanner.core.impl.heuristic.move.Move;
+import org.optaplanner.core.impl.heuristic.selector.move.factory.MoveIteratorFactory;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.solver.index.EligibilityIndex;
+import org.optaplanner.training.workerrostering.solver.index.EmployeeLoadIndex;
+import org.optaplanner.training.workerrostering.solver.index.MovableAssignmentIndex;
+import org.optaplanner.training.workerrostering.solver.move.EmployeeReassignmentMove;
+
+/**
+ * Proposes moves that transfer load from an over-loaded employee to an under-loaded one,
+ * instead of picking employees uniformly at random like the generic change and swap moves do.
+ * <p>
+ * At the start of every step, the employees are ranked by the deviation of their adjusted cost
+ * from their expected share (see {@link Employee#getExpectedHours()}).
+ * Each move takes a shift from one of the most over-loaded employees and either gives it
+ * to one of the most under-loaded eligible employees, or swaps it for a shorter shift of such an employee in the same time slot.
+ * Only supports random selection.
+ */
+public class LoadTransferMoveIteratorFactory implements MoveIteratorFactory<Roster> {
+
+    // How many under-loaded employees a single move considers before giving up
+    private static final int RECEIVER_CANDIDATE_LIMIT = 10;
+
+    // Shared by the move iterators of every step of the same working solution
+    private MovableAssignmentIndex movableAssignmentIndex = null;
+
+    @Override
+    public long getSize(ScoreDirector<Roster> scoreDirector) {
+        return scoreDirector.getWorkingSolution().getShiftAssignmentList().size();
+    }
+
+    @Override
+    public Iterator<Move<Roster>> createOriginalMoveIterator(ScoreDirector<Roster> scoreDirector) {
+        throw new UnsupportedOperationException("The moveIteratorFactory (" + getClass().getSimpleName()
+                + ") only supports random selection (selectionOrder RANDOM).");
+    }
+
+    @Override
+    public Iterator<Move<Roster>> createRandomMoveIterator(ScoreDirector<Roster> scoreDirector, Random workingRandom) {
+        movableAssignmentIndex = MovableAssignmentIndex.update(movableAssignmentIndex, scoreDirector);
+        return new LoadTransferMoveIterator(movableAssignmentIndex, workingRandom);
+    }
+
+    private class LoadTransferMoveIterator implements Iterator<Move<Roster>> {
+
+        private final Random workingRandom;
+        private final EligibilityIndex eligibilityIndex;
+        private final EmployeeLoadIndex loadIndex;
+        private final MovableAssignmentIndex movableAssignmentIndex;
+        // Sorted from the most over-loaded to the most under-loaded employee
+        private final Employee[] rankedEmployees;
+        private final int overLoadedCount;
+        private final int underLoadedCount;
+
+        private LoadTransferMoveIterator(MovableAssignmentIndex movableAssignmentIndex, Random workingRandom) {
+            this.workingRandom = workingRandom;
+            this.movableAssignmentIndex = movableAssignmentIndex;
+            eligibilityIndex = movableAssignmentIndex.getEligibilityIndex();
+            loadIndex = movableAssignmentIndex.getLoadIndex();
+            rankedEmployees = eligibilityIndex.getEmployeeList().toArray(new Employee[0]);
+            Arrays.sort(rankedEmployees,
+                    Comparator.comparingDouble((Employee employee) -> loadIndex.getDeviation(employee)).reversed());
+            int overLoaded = 0;
+            while (overLoaded < rankedEmployees.length && loadIndex.getDeviation(rankedEmployees[overLoaded]) > 0.0) {
+                overLoaded++;
+            }
+            overLoadedCount = overLoaded;
+            underLoadedCount = rankedEmployees.length - overLoaded;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return overLoadedCount > 0 && underLoadedCount > 0;
+        }
+
+        @Override
+        public Move<Roster> next() {
+            // Biased towards the extremes: the square of a uniform number favours low indexes
+            Employee giver = rankedEmployees[biasedIndex(overLoadedCount)];
+            List<ShiftAssignment> giverAssignmentList = movableAssignmentIndex.getMovableAssignmentList(giver);
+            if (giverAssignmentList == null) {
+                return noMove();
+            }
+            ShiftAssignment given = giverAssignmentList.get(workingRandom.nextInt(giverAssignmentList.size()));
+            int receiverOffset = biasedIndex(underLoadedCount);
+            for (int i = 0; i < Math.min(RECEIVER_CANDIDATE_LIMIT, underLoadedCount); i++) {
+                Employee receiver = rankedEmployees[rankedEmployees.length - 1
+                        - ((receiverOffset + i) % underLoadedCount)];
+                Move<Roster> move = buildTransferMove(giver, given, receiver);
+                if (move != null) {
+                    return move;
+                }
+            }
+            return noMove();
+        }
+
+        private int biasedIndex(int size) {
+            double uniform = workingRandom.nextDouble();
+            return Math.min(size - 1, (int) (uniform * uniform * size));
+        }
+
+        @SuppressWarnings("deprecation")
+        private Move<Roster> buildTransferMove(Employee giver, ShiftAssignment given, Employee receiver) {
+            if (!eligibilityIndex.isEligible(receiver, given)) {
+                return null;
+            }
+            if (!loadIndex.isOccupied(receiver, given.getTimeSlot())) {
+                return new EmployeeReassignmentMove("LoadTransferChangeMove",
+                        Collections.singletonList(given), Collections.singletonList(receiver));
+            }
+            // The receiver already works that time slot: swap with that shift if it's shorter
+            List<ShiftAssignment> receiverAssignmentList = movableAssignmentIndex.getMovableAssignmentList(receiver);
+            if (receiverAssignmentList == null) {
+                return null;
+            }
+            for (ShiftAssignment taken : receiverAssignmentList) {
+                if (taken.getTimeSlot() != given.getTimeSlot()
+                        || taken.getSpot().getDays() >= given.getSpot().getDays()
+                        || !eligibilityIndex.isEligible(giver, taken)) {
+                    continue;
+                }
+                return new EmployeeReassignmentMove("LoadTransferSwapMove",
+                        Arrays.asList(given, taken), Arrays.asList(receiver, giver));
+            }
+            return null;
+        }
+
+        private Move<Roster> noMove() {
+            // A not doable move, so the step just selects another one
+            return new EmployeeReassignmentMove("LoadTransferChangeMove",
+                    Collections.emptyList(), Collections.emptyList());
+        }
+
+    }
+
+}
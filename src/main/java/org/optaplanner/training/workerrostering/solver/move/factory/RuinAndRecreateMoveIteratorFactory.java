@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver.move.factory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.optaplanner.core.impl.heuristic.move.Move;
+import org.optaplanner.core.impl.heuristic.selector.move.factory.MoveIteratorFactory;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.solver.index.EligibilityIndex;
+import org.optaplanner.training.workerrostering.solver.index.EmployeeLoadIndex;
+import org.optaplanner.training.workerrostering.solver.index.MovableAssignmentIndex;
+import org.optaplanner.training.workerrostering.solver.move.EmployeeReassignmentMove;
+
+/**
+ * Large neighbourhood search: ruins a block of shift assignments and greedily recreates it.
+ * A block is either every movable shift assignment of 1 time slot,
+ * or every movable shift assignment of 1 employee within a window of {@value #EMPLOYEE_WINDOW_DAYS} days.
+ * <p>
+ * The recreate step only considers employees that break no skill, vacation or same day hard constraint
+ * and picks the one that reduces the fairness deviation the most.
+ * Only supports random selection.
+ */
+public class RuinAndRecreateMoveIteratorFactory implements MoveIteratorFactory<Roster> {
+
+    protected static final int EMPLOYEE_WINDOW_DAYS = 28;
+    // Mirrors the hard "Undesirable time slots for an employee" rule
+    private static final double UNDESIRABLE_COST = 1_000_000.0;
+
+    // Brought up to date at the start of every step, instead of rebuilt
+    private MovableAssignmentIndex movableAssignmentIndex = null;
+
+    @Override
+    public long getSize(ScoreDirector<Roster> scoreDirector) {
+        Roster roster = scoreDirector.getWorkingSolution();
+        return roster.getTimeSlotList().size() + roster.getEmployeeList().size();
+    }
+
+    @Override
+    public Iterator<Move<Roster>> createOriginalMoveIterator(ScoreDirector<Roster> scoreDirector) {
+        throw new UnsupportedOperationException("The moveIteratorFactory (" + getClass().getSimpleName()
+                + ") only supports random selection (selectionOrder RANDOM).");
+    }
+
+    @Override
+    public Iterator<Move<Roster>> createRandomMoveIterator(ScoreDirector<Roster> scoreDirector, Random workingRandom) {
+        movableAssignmentIndex = MovableAssignmentIndex.update(movableAssignmentIndex, scoreDirector);
+        return new RuinAndRecreateMoveIterator(movableAssignmentIndex, workingRandom);
+    }
+
+    private class RuinAndRecreateMoveIterator implements Iterator<Move<Roster>> {
+
+        private final Random workingRandom;
+        private final EligibilityIndex eligibilityIndex;
+        private final EmployeeLoadIndex loadIndex;
+        private final MovableAssignmentIndex movableAssignmentIndex;
+        private final List<List<ShiftAssignment>> timeSlotBlockList;
+        private final List<Employee> movableEmployeeList;
+
+        private RuinAndRecreateMoveIterator(MovableAssignmentIndex movableAssignmentIndex, Random workingRandom) {
+            this.workingRandom = workingRandom;
+            this.movableAssignmentIndex = movableAssignmentIndex;
+            eligibilityIndex = movableAssignmentIndex.getEligibilityIndex();
+            loadIndex = movableAssignmentIndex.getLoadIndex();
+            timeSlotBlockList = movableAssignmentIndex.getTimeSlotBlockList();
+            movableEmployeeList = movableAssignmentIndex.getMovableEmployeeList();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !timeSlotBlockList.isEmpty();
+        }
+
+        @Override
+        public Move<Roster> next() {
+            List<ShiftAssignment> ruinedList;
+            String moveTypeDescription;
+            // Copies, because the index changes its lists once a move is done
+            if (movableEmployeeList.isEmpty() || workingRandom.nextBoolean()) {
+                ruinedList = new ArrayList<>(timeSlotBlockList.get(workingRandom.nextInt(timeSlotBlockList.size())));
+                moveTypeDescription = "RuinTimeSlotMove";
+            } else {
+                Employee employee = movableEmployeeList.get(workingRandom.nextInt(movableEmployeeList.size()));
+                ruinedList = new ArrayList<>(pickEmployeeWindow(
+                        movableAssignmentIndex.getMovableAssignmentList(employee)));
+                moveTypeDescription = "RuinEmployeeWindowMove";
+            }
+            return new EmployeeReassignmentMove(moveTypeDescription, ruinedList, recreate(ruinedList));
+        }
+
+        @SuppressWarnings("deprecation")
+        private List<ShiftAssignment> pickEmployeeWindow(List<ShiftAssignment> employeeBlock) {
+            int startIndex = workingRandom.nextInt(employeeBlock.size());
+            LocalDate windowEnd = employeeBlock.get(startIndex).getTimeSlot().getStartDateTime().toLocalDate()
+                    .plusDays(EMPLOYEE_WINDOW_DAYS);
+            int endIndex = startIndex + 1;
+            while (endIndex < employeeBlock.size() && employeeBlock.get(endIndex).getTimeSlot()
+                    .getStartDateTime().toLocalDate().isBefore(windowEnd)) {
+                endIndex++;
+            }
+            return employeeBlock.subList(startIndex, endIndex);
+        }
+
+        /**
+         * Tries the recreation on the load index and reverts it afterwards,
+         * so the index still reflects the working solution for the next move.
+         */
+        @SuppressWarnings("deprecation")
+        private List<Employee> recreate(List<ShiftAssignment> ruinedList) {
+            for (ShiftAssignment shiftAssignment : ruinedList) {
+                loadIndex.remove(shiftAssignment, shiftAssignment.getEmployee());
+            }
+            // Most constrained first: the shifts with the fewest skilled employees
+            List<ShiftAssignment> orderedList = new ArrayList<>(ruinedList);
+            orderedList.sort(Comparator.comparingInt(shiftAssignment
+                    -> eligibilityIndex.getSkilledEmployeeList(shiftAssignment.getSpot()).size()));
+            Map<ShiftAssignment, Employee> recreatedMap = new IdentityHashMap<>(ruinedList.size());
+            for (ShiftAssignment shiftAssignment : orderedList) {
+                Employee bestEmployee = null;
+                double bestCost = Double.MAX_VALUE;
+                for (Employee employee : eligibilityIndex.getSkilledEmployeeList(shiftAssignment.getSpot())) {
+                    if (loadIndex.isOccupied(employee, shiftAssignment.getTimeSlot())
+                            || employee.getShiftVacationOverlap(shiftAssignment) > 0) {
+                        continue;
+                    }
+                    double cost = calculateMarginalCost(shiftAssignment, employee);
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestEmployee = employee;
+                    }
+                }
+                if (bestEmployee == null) {
+                    // Nobody fits, so leave it as it was
+                    bestEmployee = shiftAssignment.getEmployee();
+                }
+                loadIndex.add(shiftAssignment, bestEmployee);
+                recreatedMap.put(shiftAssignment, bestEmployee);
+            }
+            List<Employee> toEmployeeList = new ArrayList<>(ruinedList.size());
+            for (ShiftAssignment shiftAssignment : ruinedList) {
+                Employee toEmployee = recreatedMap.get(shiftAssignment);
+                loadIndex.remove(shiftAssignment, toEmployee);
+                loadIndex.add(shiftAssignment, shiftAssignment.getEmployee());
+                toEmployeeList.add(toEmployee);
+            }
+            return toEmployeeList;
+        }
+
+        private double calculateMarginalCost(ShiftAssignment shiftAssignment, Employee employee) {
+            double deviationBefore = loadIndex.getDeviation(employee);
+            double deviationAfter = deviationBefore + EmployeeLoadIndex.adjustedCost(shiftAssignment, employee);
+            double cost = deviationAfter * deviationAfter - deviationBefore * deviationBefore;
+            if (employee.getShiftUndesirableOverlap(shiftAssignment) > 0) {
+                cost += UNDESIRABLE_COST;
+            }
+            return cost;
+        }
+
+    }
+
+}
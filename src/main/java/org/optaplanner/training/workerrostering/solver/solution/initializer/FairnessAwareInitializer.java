@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver.solution.initializer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.optaplanner.core.impl.phase.custom.AbstractCustomPhaseCommand;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.EmployeeHistorySummary;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.TimeSlot;
+import org.optaplanner.training.workerrostering.optional.domain.MovableShiftAssignmentFilter;
+import org.optaplanner.training.workerrostering.solver.index.EmployeeEquivalenceIndex;
+import org.optaplanner.training.workerrostering.solver.index.EmployeeLoadIndex;
+
+/**
+ * Initializes the roster time slot by time slot, solving each time slot as a min cost flow:
+ * source -> unassigned shift -> eligible class of interchangeable employees -> sink, a unit of capacity per employee.
+ * <p>
+ * The cost of a shift -> class edge is the marginal squared deviation of the adjusted cost
+ * of the least loaded member from their expected share so far (see {@link Employee#getExpectedHours()}),
+ * so the flow spreads the load the same way the medium fairness rules do.
+ * Employees that are on vacation, lack the skill or already work that time slot get no edge at all.
+ * <p>
+ * Shifts that can't be matched are left uninitialized, so configure a construction heuristic after this phase.
+ */
+public class FairnessAwareInitializer extends AbstractCustomPhaseCommand<Roster> {
+
+    // The flow works with long costs, so scale the squared deviations before rounding them
+    private static final double COST_SCALE = 1000.0;
+    // Mirrors the hard "Undesirable time slots for an employee" rule: allowed, but only as a last resort
+    private static final long UNDESIRABLE_COST = 1_000_000_000L;
+
+    private final MovableShiftAssignmentFilter movableFilter = new MovableShiftAssignmentFilter();
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void changeWorkingSolution(ScoreDirector<Roster> scoreDirector) {
+        Roster roster = scoreDirector.getWorkingSolution();
+        EmployeeEquivalenceIndex equivalenceIndex = new EmployeeEquivalenceIndex(roster);
+        EmployeeLoadIndex loadIndex = new EmployeeLoadIndex(roster);
+
+        Map<TimeSlot, List<ShiftAssignment>> timeSlotMap = roster.getShiftAssignmentList().stream()
+                .sorted(Comparator.comparing(shiftAssignment -> shiftAssignment.getTimeSlot().getStartDateTime()))
+                .collect(Collectors.groupingBy(ShiftAssignment::getTimeSlot, LinkedHashMap::new, Collectors.toList()));
+        double totalDays = roster.getTotalDays();
+        double plannedDays = roster.getShiftAssignmentList().stream()
+                .filter(shiftAssignment -> shiftAssignment.getEmployee() != null)
+                .mapToDouble(shiftAssignment -> shiftAssignment.getSpot().getDays()).sum()
+                + roster.getEmployeeHistorySummaryList().stream().mapToDouble(EmployeeHistorySummary::getDays).sum();
+        for (List<ShiftAssignment> timeSlotShiftAssignmentList : timeSlotMap.values()) {
+            List<ShiftAssignment> unassignedList = timeSlotShiftAssignmentList.stream()
+                    .filter(shiftAssignment -> shiftAssignment.getEmployee() == null
+                            && movableFilter.accept(scoreDirector, shiftAssignment))
+                    .collect(Collectors.toList());
+            if (unassignedList.isEmpty()) {
+                continue;
+            }
+            plannedDays += unassignedList.stream().mapToDouble(shiftAssignment -> shiftAssignment.getSpot().getDays()).sum();
+            double progress = totalDays <= 0.0 ? 1.0 : Math.min(1.0, plannedDays / totalDays);
+            assignTimeSlot(scoreDirector, equivalenceIndex, loadIndex, unassignedList, progress);
+        }
+        scoreDirector.triggerVariableListeners();
+    }
+
+    /**
+     * Interchangeable employees (see {@link EmployeeEquivalenceIndex}) share 1 node with a unit edge per member,
+     * so the flow has a node per class instead of per employee.
+     * The members of a class are ranked from the least to the most loaded,
+     * and the longest shifts of that class go to the least loaded members.
+     */
+    @SuppressWarnings("deprecation")
+    private void assignTimeSlot(ScoreDirector<Roster> scoreDirector, EmployeeEquivalenceIndex equivalenceIndex,
+            EmployeeLoadIndex loadIndex, List<ShiftAssignment> unassignedList, double progress) {
+        TimeSlot timeSlot = unassignedList.get(0).getTimeSlot();
+        List<List<Employee>> memberListList = new ArrayList<>();
+        int employeeCount = 0;
+        for (List<Employee> employeeClass : equivalenceIndex.getClassList(timeSlot)) {
+            List<Employee> memberList = employeeClass.stream()
+                    .filter(employee -> !loadIndex.isOccupied(employee, timeSlot))
+                    .sorted(Comparator.comparingDouble(loadIndex::getDeviation))
+                    .collect(Collectors.toList());
+            if (!memberList.isEmpty()) {
+                memberListList.add(memberList);
+                employeeCount += memberList.size();
+            }
+        }
+        int shiftCount = unassignedList.size();
+        int source = 0;
+        int sink = 1;
+        int firstShiftNode = 2;
+        int firstClassNode = firstShiftNode + shiftCount;
+        MinCostFlow flow = new MinCostFlow(firstClassNode + memberListList.size());
+
+        // Only the first shiftCount members of a class can ever get a shift
+        for (int i = 0; i < memberListList.size(); i++) {
+            List<Employee> memberList = memberListList.get(i);
+            Employee leastLoaded = memberList.get(0);
+            double referenceCost = unassignedList.stream()
+                    .mapToLong(shiftAssignment -> EmployeeLoadIndex.adjustedCost(shiftAssignment, leastLoaded))
+                    .average().orElse(0.0);
+            for (int rank = 0; rank < Math.min(memberList.size(), shiftCount); rank++) {
+                // The shift edges are costed for the least loaded member, this is the surplus of the next ones
+                double surplus = loadIndex.getDeviation(memberList.get(rank)) - loadIndex.getDeviation(leastLoaded);
+                flow.addEdge(firstClassNode + i, sink, 1, Math.round(2.0 * referenceCost * surplus * COST_SCALE));
+            }
+        }
+        List<Candidate> candidateList = new ArrayList<>();
+        for (int i = 0; i < shiftCount; i++) {
+            ShiftAssignment shiftAssignment = unassignedList.get(i);
+            int shiftNode = firstShiftNode + i;
+            flow.addEdge(source, shiftNode, 1, 0L);
+            for (int j = 0; j < memberListList.size(); j++) {
+                // All members have the same skills and vacation days, so the least loaded one speaks for all
+                Employee leastLoaded = memberListList.get(j).get(0);
+                if (!leastLoaded.getCanDoJob(shiftAssignment.getSpot())
+                        || leastLoaded.getShiftVacationOverlap(shiftAssignment) > 0) {
+                    continue;
+                }
+                long cost = calculateMarginalCost(loadIndex, shiftAssignment, leastLoaded, progress);
+                int edge = flow.addEdge(shiftNode, firstClassNode + j, 1, cost);
+                candidateList.add(new Candidate(edge, shiftAssignment, j));
+            }
+        }
+        flow.solve(source, sink);
+
+        List<List<ShiftAssignment>> classShiftListList = new ArrayList<>(memberListList.size());
+        for (int j = 0; j < memberListList.size(); j++) {
+            classShiftListList.add(new ArrayList<>());
+        }
+        for (Candidate candidate : candidateList) {
+            if (flow.getFlow(candidate.edge) > 0) {
+                classShiftListList.get(candidate.classIndex).add(candidate.shiftAssignment);
+            }
+        }
+        for (int j = 0; j < memberListList.size(); j++) {
+            List<Employee> memberList = memberListList.get(j);
+            List<ShiftAssignment> classShiftList = classShiftListList.get(j);
+            classShiftList.sort(Comparator.comparingInt(
+                    (ShiftAssignment shiftAssignment) -> shiftAssignment.getSpot().getDays()).reversed());
+            for (int rank = 0; rank < classShiftList.size(); rank++) {
+                ShiftAssignment shiftAssignment = classShiftList.get(rank);
+                Employee employee = memberList.get(rank);
+                scoreDirector.beforeVariableChanged(shiftAssignment, "employee");
+                loadIndex.assign(shiftAssignment, employee);
+                shiftAssignment.setEmployee(employee);
+                scoreDirector.afterVariableChanged(shiftAssignment, "employee");
+            }
+        }
+    }
+
+    private long calculateMarginalCost(EmployeeLoadIndex loadIndex, ShiftAssignment shiftAssignment,
+            Employee employee, double progress) {
+        double target = loadIndex.getTargetAdjustedCost(employee) * progress;
+        double deviationBefore = loadIndex.getAdjustedCost(employee) - target;
+        double deviationAfter = deviationBefore + EmployeeLoadIndex.adjustedCost(shiftAssignment, employee);
+        long cost = Math.round((deviationAfter * deviationAfter - deviationBefore * deviationBefore) * COST_SCALE);
+        if (employee.getShiftUndesirableOverlap(shiftAssignment) > 0) {
+            cost += UNDESIRABLE_COST;
+        }
+        return cost;
+    }
+
+    private static class Candidate {
+
+        private final int edge;
+        private final ShiftAssignment shiftAssignment;
+        private final int classIndex;
+
+        private Candidate(int edge, ShiftAssignment shiftAssignment, int classIndex) {
+            this.edge = edge;
+            this.shiftAssignment = shiftAssignment;
+            this.classIndex = classIndex;
+        }
+
+    }
+
+}
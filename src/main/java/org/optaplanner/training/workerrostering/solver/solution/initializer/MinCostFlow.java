@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.solver.solution.initializer;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Successive shortest path min cost flow on a small graph.
+ * <p>
+ * Uses Bellman-Ford (queue based) for the shortest paths, so edge costs may be negative,
+ * as long as the initial graph has no negative cycle (a bipartite assignment graph never has).
+ * The graphs built per time slot are tiny (a few dozen shifts and employees), so that's fast enough.
+ */
+public class MinCostFlow {
+
+    private final int nodeCount;
+    private int edgeCount = 0;
+    private int[] edgeTo;
+    private int[] edgeNext;
+    private int[] edgeCapacity;
+    private long[] edgeCost;
+    private final int[] nodeFirstEdge;
+
+    public MinCostFlow(int nodeCount) {
+        this.nodeCount = nodeCount;
+        nodeFirstEdge = new int[nodeCount];
+        Arrays.fill(nodeFirstEdge, -1);
+        int initialEdgeCapacity = nodeCount * 8;
+        edgeTo = new int[initialEdgeCapacity];
+        edgeNext = new int[initialEdgeCapacity];
+        edgeCapacity = new int[initialEdgeCapacity];
+        edgeCost = new long[initialEdgeCapacity];
+    }
+
+    /**
+     * @return the edge index, to query {@link #getFlow(int)} after {@link #solve(int, int)}
+     */
+    public int addEdge(int from, int to, int capacity, long cost) {
+        int edge = edgeCount;
+        addHalfEdge(from, to, capacity, cost);
+        addHalfEdge(to, from, 0, -cost);
+        return edge;
+    }
+
+    private void addHalfEdge(int from, int to, int capacity, long cost) {
+        if (edgeCount == edgeTo.length) {
+            int newLength = edgeTo.length * 2;
+            edgeTo = Arrays.copyOf(edgeTo, newLength);
+            edgeNext = Arrays.copyOf(edgeNext, newLength);
+            edgeCapacity = Arrays.copyOf(edgeCapacity, newLength);
+            edgeCost = Arrays.copyOf(edgeCost, newLength);
+        }
+        edgeTo[edgeCount] = to;
+        edgeCapacity[edgeCount] = capacity;
+        edgeCost[edgeCount] = cost;
+        edgeNext[edgeCount] = nodeFirstEdge[from];
+        nodeFirstEdge[from] = edgeCount;
+        edgeCount++;
+    }
+
+    /**
+     * Pushes as much flow as possible from source to sink, at the lowest total cost.
+     * @return the total flow
+     */
+    public int solve(int source, int sink) {
+        int totalFlow = 0;
+        long[] distance = new long[nodeCount];
+        int[] previousEdge = new int[nodeCount];
+        boolean[] queued = new boolean[nodeCount];
+        Deque<Integer> queue = new ArrayDeque<>(nodeCount);
+        while (true) {
+            Arrays.fill(distance, Long.MAX_VALUE);
+            Arrays.fill(previousEdge, -1);
+            distance[source] = 0L;
+            queue.add(source);
+            queued[source] = true;
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                queued[node] = false;
+                for (int edge = nodeFirstEdge[node]; edge >= 0; edge = edgeNext[edge]) {
+                    if (edgeCapacity[edge] <= 0) {
+                        continue;
+                    }
+                    int to = edgeTo[edge];
+                    long newDistance = distance[node] + edgeCost[edge];
+                    if (newDistance < distance[to]) {
+                        distance[to] = newDistance;
+                        previousEdge[to] = edge;
+                        if (!queued[to]) {
+                            queue.add(to);
+                            queued[to] = true;
+                        }
+                    }
+                }
+            }
+            if (distance[sink] == Long.MAX_VALUE) {
+                return totalFlow;
+            }
+            int pathFlow = Integer.MAX_VALUE;
+            for (int node = sink; node != source; node = edgeTo[previousEdge[node] ^ 1]) {
+                pathFlow = Math.min(pathFlow, edgeCapacity[previousEdge[node]]);
+            }
+            for (int node = sink; node != source; node = edgeTo[previousEdge[node] ^ 1]) {
+                edgeCapacity[previousEdge[node]] -= pathFlow;
+                edgeCapacity[previousEdge[node] ^ 1] += pathFlow;
+            }
+            totalFlow += pathFlow;
+        }
+    }
+
+    /**
+     * @param edge the return value of {@link #addEdge(int, int, int, long)}
+     * @return the flow over that edge after {@link #solve(int, int)}
+     */
+    public int getFlow(int edge) {
+        // The flow sits in the capacity of the reverse half edge
+        return edgeCapacity[edge ^ 1];
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaplanner.training.workerrostering.persistence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.Skill;
+import org.optaplanner.training.workerrostering.domain.Spot;
+
+/**
+ * Everything that the readers fill in, as text, to compare 2 rosters that don't share objects.
+ */
+final class RosterDescription {
+
+	/**
+	 * @return sorted, so the order of the lists and sets doesn't matter
+	 */
+	@SuppressWarnings("deprecation")
+	static List<String> describe(Roster roster) {
+		List<String> lineList = new ArrayList<>();
+		lineList.add("timeSlots " + roster.getTimeSlotList().size());
+		for (Skill skill : roster.getSkillList()) {
+			lineList.add("skill " + skill.getName());
+		}
+		for (Spot spot : roster.getSpotList()) {
+			lineList.add("spot " + spot.getName() + " " + spot.getRequiredSkill().getName() + " "
+					+ (spot.getUnsuitableSkill() == null ? "-" : spot.getUnsuitableSkill().getName()) + " "
+					+ spot.getDays() + " " + spot.getScoreBeforeVacation() + " " + spot.getScoreAfterVacation() + " "
+					+ spot.getOffset());
+		}
+		for (Employee employee : roster.getEmployeeList()) {
+			lineList.add("employee " + employee.getName() + " "
+					+ employee.getSkillSet().stream().map(Skill::getName).sorted().collect(Collectors.toList())
+					+ " " + employee.getBaseTime() + " " + employee.getVIPFactor() + " "
+					+ new TreeSet<>(employee.getUnavailableDateSet()) + " "
+					+ new TreeSet<>(employee.getUndesirableDateSet()) + " "
+					+ employee.getUnavailableTimeSlotSet().size());
+		}
+		for (ShiftAssignment shiftAssignment : roster.getShiftAssignmentList()) {
+			lineList.add("shift " + shiftAssignment.getSpot().getName() + " " + shiftAssignment.getDays() + " "
+					+ shiftAssignment.getTimeSlot().getStartDateTime() + " "
+					+ (shiftAssignment.getEmployee() == null ? "-" : shiftAssignment.getEmployee().getName()) + " "
+					+ shiftAssignment.isLockedByUser());
+		}
+		Collections.sort(lineList);
+		return lineList;
+	}
+
+	private RosterDescription() {
+	}
+
+}
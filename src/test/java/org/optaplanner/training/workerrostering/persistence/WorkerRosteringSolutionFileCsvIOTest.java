@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaplanner.training.workerrostering.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+
+import static org.junit.Assert.*;
+
+public class WorkerRosteringSolutionFileCsvIOTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void writeAndReadBack() throws IOException {
+		File inputFile = temporaryFolder.newFile("input.csv");
+		Files.write(inputFile.toPath(), Arrays.asList(
+				"skill,ICU_SD",
+				"skill,ICU_FD",
+				"skill,Lab",
+				"skill,Night",
+				// 8 days, so the first day of every week is also the last day of the week before
+				"spot,Long,ICU_SD,,8,0,0,0",
+				"spot,Short,Lab,ICU_FD,1,0,0,2",
+				"employee,Ann,ICU,NONE,n,,100,0",
+				"employee,Bob,ICU,ICU,y,,80,1",
+				"employee,Cid,NONE,ICU,n,Lab,100,0",
+				"extraShift,2019-04-19,Long,2",
+				"vacation,Cid,2019-03-04",
+				"pin,Ann,2019-01-05,Long",
+				"pin,Bob,2019-01-12,Long",
+				"pin,Cid,2019-04-19,EX_Long",
+				"assignment,Cid,2019-01-07,Short"), StandardCharsets.UTF_8);
+		WorkerRosteringSolutionFileCsvIO csvIO = new WorkerRosteringSolutionFileCsvIO();
+		Roster roster = csvIO.read(inputFile);
+		assertPinned(roster, "Long", LocalDate.of(2019, 1, 5), "Ann");
+		assertPinned(roster, "Long", LocalDate.of(2019, 1, 12), "Bob");
+		assertPinned(roster, "EX_Long", LocalDate.of(2019, 4, 19), "Cid");
+
+		File outputFile = temporaryFolder.newFile("output.csv");
+		csvIO.write(roster, outputFile);
+		Roster readRoster = csvIO.read(outputFile);
+		assertEquals(RosterDescription.describe(roster), RosterDescription.describe(readRoster));
+		assertPinned(readRoster, "Long", LocalDate.of(2019, 1, 5), "Ann");
+		assertPinned(readRoster, "Long", LocalDate.of(2019, 1, 12), "Bob");
+	}
+
+	private static void assertPinned(Roster roster, String spotName, LocalDate startDate, String employeeName) {
+		ShiftAssignment shiftAssignment = roster.getShiftAssignmentList().stream()
+				.filter(candidate -> candidate.getSpot().getName().equals(spotName)
+						&& candidate.getDays().iterator().next().equals(startDate))
+				.findFirst().orElseThrow(() -> new AssertionError("No shift of spot (" + spotName
+						+ ") starts on (" + startDate + ")."));
+		assertTrue(shiftAssignment.isLockedByUser());
+		assertEquals(employeeName, shiftAssignment.getEmployee().getName());
+	}
+
+}
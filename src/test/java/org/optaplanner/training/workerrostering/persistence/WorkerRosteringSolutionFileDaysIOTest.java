@@ -0,0 +1,242 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaplanner.training.workerrostering.persistence;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorkbook;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+
+import static org.junit.Assert.*;
+
+public class WorkerRosteringSolutionFileDaysIOTest {
+
+	private static final LocalDate EXTRA_SHIFT_DATE = LocalDate.of(2019, 4, 19);
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void readersAgreeWithSharedStrings() throws IOException {
+		assertReadersAgree(false, false);
+	}
+
+	@Test
+	public void readersAgreeWithInlineStrings() throws IOException {
+		assertReadersAgree(true, false);
+	}
+
+	@Test
+	public void readersAgreeWithSharedStringsIn1904DateSystem() throws IOException {
+		assertReadersAgree(false, true);
+	}
+
+	@Test
+	public void readersAgreeWithInlineStringsIn1904DateSystem() throws IOException {
+		assertReadersAgree(true, true);
+	}
+
+	private void assertReadersAgree(boolean inlineStrings, boolean date1904) throws IOException {
+		File file = temporaryFolder.newFile("input.xlsx");
+		writeInputWorkbook(file, inlineStrings, date1904);
+		WorkerRosteringSolutionFileDaysIO daysIO = new WorkerRosteringSolutionFileDaysIO();
+		Roster streamedRoster = daysIO.read(file);
+		Roster domRoster = daysIO.readWithDom(file);
+		assertEquals(RosterDescription.describe(domRoster), RosterDescription.describe(streamedRoster));
+
+		for (Roster roster : Arrays.asList(streamedRoster, domRoster)) {
+			assertEquals(dates(LocalDate.of(2019, 1, 10)), findEmployee(roster, "Ann").getUnavailableDateSet());
+			assertEquals(dates(LocalDate.of(2019, 1, 11), LocalDate.of(2019, 1, 12)),
+					findEmployee(roster, "Bob").getUnavailableDateSet());
+			// The locked cells of the unknown employee Zed are ignored, not assigned to someone else
+			List<ShiftAssignment> lockedList = roster.getShiftAssignmentList().stream()
+					.filter(ShiftAssignment::isLockedByUser)
+					.collect(Collectors.toList());
+			assertEquals(1, lockedList.size());
+			ShiftAssignment locked = lockedList.get(0);
+			assertEquals("Long", locked.getSpot().getName());
+			assertEquals(LocalDate.of(2019, 1, 5), Collections.min(locked.getDays()));
+			assertEquals("Ann", locked.getEmployee().getName());
+
+			ShiftAssignment extraShift = roster.getShiftAssignmentList().stream()
+					.filter(shiftAssignment -> shiftAssignment.getSpot().getName().equals("EX_Short"))
+					.findFirst().orElseThrow(() -> new AssertionError("No extra shift was read."));
+			assertEquals(EXTRA_SHIFT_DATE, Collections.min(extraShift.getDays()));
+		}
+	}
+
+	/**
+	 * @param inlineStrings true to write every string in its cell, instead of in the shared strings table
+	 * @param date1904 true to count the dates from 1904 instead of 1900
+	 */
+	private static void writeInputWorkbook(File file, boolean inlineStrings, boolean date1904) throws IOException {
+		XSSFWorkbook template = new XSSFWorkbook();
+		CTWorkbook ctWorkbook = template.getCTWorkbook();
+		(ctWorkbook.isSetWorkbookPr() ? ctWorkbook.getWorkbookPr() : ctWorkbook.addNewWorkbookPr())
+				.setDate1904(date1904);
+		Workbook workbook = inlineStrings
+				? new SXSSFWorkbook(template, WorkerRosteringSolutionFileDaysIO.STREAMING_ROW_WINDOW, false, false)
+				: template;
+
+		writeListSheet(workbook, "Skills", new String[] { "Name" },
+				new Object[] { "ICU_SD" },
+				new Object[] { "ICU_FD" },
+				new Object[] { "Night" });
+		writeListSheet(workbook, "Spots",
+				new String[] { "Name", "Required skill", "Unsuitable Skill", "Days", "Score Before Vacation",
+						"Score After Vacation", "Offset" },
+				new Object[] { "Long", "ICU_SD", null, 8.0, 0.0, 0.0, 0.0 },
+				new Object[] { "Short", "ICU_FD", "ICU_SD", 1.0, -10.0, -20.0, 2.0 });
+		writeListSheet(workbook, "Employees",
+				new String[] { "Name", "Skills", "Night Shift", "Time", "VIP", "Unskills", "SD", "FD" },
+				new Object[] { "Ann", "ICU", "n", 100.0, 0.0, null, "ICU", "NONE" },
+				new Object[] { "Bob", "ICU", "y", 80.0, 1.0, null, "ICU", "ICU" });
+		Row extraShiftRow = writeListSheet(workbook, "Extra Shifts", new String[] { "Date", "Shifts", "Days" },
+				new Object[] { null, "Short", 2.0 }).get(0);
+		CellStyle dateStyle = workbook.createCellStyle();
+		dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+		Cell dateCell = extraShiftRow.createCell(0);
+		Date extraShiftDate = Date.from(EXTRA_SHIFT_DATE.atStartOfDay(ZoneId.systemDefault()).toInstant());
+		dateCell.setCellValue(DateUtil.getExcelDate(extraShiftDate, date1904));
+		dateCell.setCellStyle(dateStyle);
+
+		CellStyle unavailableStyle = createFillStyle(workbook);
+		unavailableStyle.setFillForegroundColor(WorkerRosteringSolutionFileDaysIO.UNAVAILABLE_COLOR.getIndex());
+		// Like the workbooks saved by Excel, the unavailable color is an RGB color instead of an indexed color
+		XSSFCellStyle unavailableRgbStyle = (XSSFCellStyle) createFillStyle(workbook);
+		unavailableRgbStyle.setFillForegroundColor(new XSSFColor(new byte[] { 0x00, 0x70, (byte) 0xC0 }));
+		CellStyle lockedStyle = createFillStyle(workbook);
+		lockedStyle.setFillForegroundColor(WorkerRosteringSolutionFileDaysIO.LOCKED_BY_USER_COLOR.getIndex());
+		CellStyle boldStyle = workbook.createCellStyle();
+		Font boldFont = workbook.createFont();
+		boldFont.setBold(true);
+		boldStyle.setFont(boldFont);
+
+		// Day columns start at column 1 with the first day of the period, 2019-01-05
+		Sheet calendarSheet = workbook.createSheet("Vacation Calendar");
+		calendarSheet.createRow(3).createCell(0).setCellValue("Name");
+		Row annRow = calendarSheet.createRow(4);
+		annRow.createCell(0).setCellValue("Ann Smith");
+		writeCalendarCell(annRow, 1, "Long", lockedStyle);
+		writeCalendarCell(annRow, 6, "U", unavailableStyle);
+		Row zedRow = calendarSheet.createRow(5);
+		zedRow.createCell(0).setCellValue("Zed");
+		writeCalendarCell(zedRow, 2, "Long", lockedStyle);
+		writeCalendarCell(zedRow, 3, "U", unavailableStyle);
+		Row bobRow = calendarSheet.createRow(6);
+		bobRow.createCell(0).setCellValue("Bob");
+		writeCalendarCell(bobRow, 7, "U", unavailableRgbStyle);
+		// Blank, but styled
+		writeCalendarCell(bobRow, 8, null, unavailableStyle);
+		writeCalendarCell(bobRow, 9, null, boldStyle);
+		writeCalendarCell(bobRow, 10, "x", null);
+
+		try (OutputStream out = new FileOutputStream(file)) {
+			workbook.write(out);
+		} finally {
+			if (workbook instanceof SXSSFWorkbook) {
+				((SXSSFWorkbook) workbook).dispose();
+			}
+		}
+	}
+
+	/**
+	 * @param rowValues a null value is no cell, a {@link Double} a number cell, anything else a string cell
+	 * @return never null, the data rows
+	 */
+	private static List<Row> writeListSheet(Workbook workbook, String sheetName, String[] headerTitles,
+			Object[]... rowValues) {
+		Sheet sheet = workbook.createSheet(sheetName);
+		Row headerRow = sheet.createRow(1);
+		for (int i = 0; i < headerTitles.length; i++) {
+			headerRow.createCell(i).setCellValue(headerTitles[i]);
+		}
+		Row[] rows = new Row[rowValues.length];
+		for (int i = 0; i < rowValues.length; i++) {
+			rows[i] = sheet.createRow(2 + i);
+			for (int j = 0; j < rowValues[i].length; j++) {
+				Object value = rowValues[i][j];
+				if (value instanceof Double) {
+					rows[i].createCell(j).setCellValue((Double) value);
+				} else if (value != null) {
+					rows[i].createCell(j).setCellValue(value.toString());
+				}
+			}
+		}
+		return Arrays.asList(rows);
+	}
+
+	private static CellStyle createFillStyle(Workbook workbook) {
+		CellStyle style = workbook.createCellStyle();
+		style.setFillPattern(CellStyle.SOLID_FOREGROUND);
+		return style;
+	}
+
+	/**
+	 * @param value null for a blank cell
+	 * @param style null for the default style
+	 */
+	private static void writeCalendarCell(Row row, int column, String value, CellStyle style) {
+		Cell cell = row.createCell(column);
+		if (value != null) {
+			cell.setCellValue(value);
+		}
+		if (style != null) {
+			cell.setCellStyle(style);
+		}
+	}
+
+	private static Employee findEmployee(Roster roster, String name) {
+		return roster.getEmployeeList().stream()
+				.filter(employee -> employee.getName().equals(name))
+				.findFirst().orElseThrow(() -> new AssertionError("No employee (" + name + ") was read."));
+	}
+
+	private static Set<LocalDate> dates(LocalDate... dates) {
+		return new HashSet<>(Arrays.asList(dates));
+	}
+
+}
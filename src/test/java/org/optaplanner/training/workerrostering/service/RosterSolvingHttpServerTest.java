@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.training.workerrostering.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.persistence.WorkerRosteringGenerator;
+import org.optaplanner.training.workerrostering.solver.SolverFactoryHolder;
+
+import static org.junit.Assert.*;
+
+public class RosterSolvingHttpServerTest {
+
+    private static final Pattern ID_PATTERN = Pattern.compile("\"id\":\"([^\"]+)\"");
+    private static final Pattern STATUS_PATTERN = Pattern.compile("\"status\":\"([^\"]+)\"");
+    private static final Pattern PREEMPTED_COUNT_PATTERN = Pattern.compile("\"preemptedCount\":(\\d+)");
+    private static final Pattern BEST_SCORE_PATTERN = Pattern.compile("\"bestScore\":\"([^\"]+)\"");
+    private static final Pattern FINISHED_MILLIS_PATTERN = Pattern.compile("\"finishedMillis\":(-?\\d+)");
+    private static final long AWAIT_MILLIS = 60_000L;
+
+    private RosterSolvingService solvingService;
+    private RosterSolvingHttpServer httpServer;
+
+    @Before
+    public void startServer() throws IOException {
+        // Long enough to still be solving when the test cancels it
+        TerminationConfig terminationConfig = new TerminationConfig();
+        terminationConfig.setMinutesSpentLimit(10L);
+        startServer(terminationConfig);
+    }
+
+    private void startServer(TerminationConfig terminationConfig) throws IOException {
+        SolverFactory<Roster> solverFactory = SolverFactoryHolder.getSolverFactory().cloneSolverFactory();
+        solverFactory.getSolverConfig().setTerminationConfig(terminationConfig);
+        solvingService = new RosterSolvingService(solverFactory, 1, 1);
+        httpServer = new RosterSolvingHttpServer(solvingService, 0);
+        httpServer.registerReader("generated",
+                inputFile -> new WorkerRosteringGenerator().generateRoster(5, 9, false));
+        httpServer.start();
+    }
+
+    @After
+    public void stopServer() {
+        httpServer.stop();
+        solvingService.shutdown();
+    }
+
+    @Test
+    public void submitPollAndCancel() throws IOException, InterruptedException {
+        Response submitted = request("POST", "/jobs?format=generated&name=test");
+        assertEquals(201, submitted.statusCode);
+        String jobId = find(ID_PATTERN, submitted.body);
+
+        awaitStatus(jobId, SolveJobStatus.SOLVING);
+        Response listed = request("GET", "/jobs");
+        assertEquals(200, listed.statusCode);
+        assertTrue(listed.body.contains("\"id\":\"" + jobId + "\""));
+
+        assertEquals(200, request("DELETE", "/jobs/" + jobId).statusCode);
+        awaitStatus(jobId, SolveJobStatus.CANCELLED);
+        assertEquals(200, request("GET", "/jobs/" + jobId + "/best?format=tsv").statusCode);
+        // The second delete forgets the ended job
+        assertEquals(200, request("DELETE", "/jobs/" + jobId).statusCode);
+        assertEquals(404, request("GET", "/jobs/" + jobId).statusCode);
+    }
+
+    @Test
+    public void fullWaitingQueueIsRejected() throws IOException, InterruptedException {
+        String solvingJobId = find(ID_PATTERN, request("POST", "/jobs?format=generated").body);
+        awaitStatus(solvingJobId, SolveJobStatus.SOLVING);
+        String waitingJobId = find(ID_PATTERN, request("POST", "/jobs?format=generated").body);
+        assertEquals(SolveJobStatus.QUEUED.name(), find(STATUS_PATTERN, request("GET", "/jobs/" + waitingJobId).body));
+
+        assertEquals(503, request("POST", "/jobs?format=generated").statusCode);
+
+        // A cancelled waiting job frees its place in the queue
+        assertEquals(200, request("DELETE", "/jobs/" + waitingJobId).statusCode);
+        assertEquals(201, request("POST", "/jobs?format=generated").statusCode);
+    }
+
+    @Test
+    public void highPriorityJobPreemptsLowPriorityJob() throws IOException, InterruptedException {
+        // Short enough for both jobs to finish, long enough to submit the urgent job while the first one solves
+        stopServer();
+        TerminationConfig terminationConfig = new TerminationConfig();
+        terminationConfig.setSecondsSpentLimit(10L);
+        startServer(terminationConfig);
+
+        String lowJobId = find(ID_PATTERN, request("POST", "/jobs?format=generated&priority=LOW").body);
+        awaitStatus(lowJobId, SolveJobStatus.SOLVING);
+        awaitBestScore(lowJobId);
+        String highJobId = find(ID_PATTERN, request("POST", "/jobs?format=generated&priority=HIGH").body);
+
+        awaitStatus(lowJobId, SolveJobStatus.PAUSED);
+        String pausedJson = request("GET", "/jobs/" + lowJobId).body;
+        assertEquals("1", find(PREEMPTED_COUNT_PATTERN, pausedJson));
+        HardMediumSoftScore pausedScore = HardMediumSoftScore.parseScore(find(BEST_SCORE_PATTERN, pausedJson));
+
+        // The only solver thread goes to the urgent job, then back to the preempted one
+        awaitStatus(highJobId, SolveJobStatus.SOLVED);
+        awaitStatus(lowJobId, SolveJobStatus.SOLVING);
+        awaitStatus(lowJobId, SolveJobStatus.SOLVED);
+        String highJson = request("GET", "/jobs/" + highJobId).body;
+        String lowJson = request("GET", "/jobs/" + lowJobId).body;
+        assertEquals("0", find(PREEMPTED_COUNT_PATTERN, highJson));
+        assertEquals("1", find(PREEMPTED_COUNT_PATTERN, lowJson));
+        assertTrue(Long.parseLong(find(FINISHED_MILLIS_PATTERN, highJson))
+                < Long.parseLong(find(FINISHED_MILLIS_PATTERN, lowJson)));
+        // The resumed job starts from its checkpoint, so its best score never gets worse
+        HardMediumSoftScore resumedScore = HardMediumSoftScore.parseScore(find(BEST_SCORE_PATTERN, lowJson));
+        assertTrue("The best score (" + resumedScore + ") is worse than before the preemption ("
+                + pausedScore + ").", resumedScore.compareTo(pausedScore) >= 0);
+    }
+
+    @Test
+    public void unsupportedFormat() throws IOException {
+        assertEquals(400, request("POST", "/jobs?format=doc").statusCode);
+        assertEquals(404, request("GET", "/jobs/999").statusCode);
+    }
+
+    private void awaitStatus(String jobId, SolveJobStatus status) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + AWAIT_MILLIS;
+        String actualStatus = null;
+        while (System.currentTimeMillis() < deadline) {
+            actualStatus = find(STATUS_PATTERN, request("GET", "/jobs/" + jobId).body);
+            if (status.name().equals(actualStatus)) {
+                return;
+            }
+            Thread.sleep(50L);
+        }
+        fail("The job (" + jobId + ") has status (" + actualStatus + ") instead of (" + status + ").");
+    }
+
+    private void awaitBestScore(String jobId) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + AWAIT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (BEST_SCORE_PATTERN.matcher(request("GET", "/jobs/" + jobId).body).find()) {
+                return;
+            }
+            Thread.sleep(50L);
+        }
+        fail("The job (" + jobId + ") has no best score.");
+    }
+
+    private Response request(String method, String pathAndQuery) throws IOException {
+        URL url = new URL("http://localhost:" + httpServer.getPort() + pathAndQuery);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod(method);
+            if (method.equals("POST")) {
+                // The generated reader ignores the uploaded file
+                connection.setDoOutput(true);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(new byte[0]);
+                }
+            }
+            int statusCode = connection.getResponseCode();
+            InputStream in = statusCode < 400 ? connection.getInputStream() : connection.getErrorStream();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            if (in != null) {
+                try (InputStream closedIn = in) {
+                    byte[] buffer = new byte[8192];
+                    int length;
+                    while ((length = closedIn.read(buffer)) != -1) {
+                        body.write(buffer, 0, length);
+                    }
+                }
+            }
+            return new Response(statusCode, new String(body.toByteArray(), StandardCharsets.UTF_8));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String find(Pattern pattern, String json) {
+        Matcher matcher = pattern.matcher(json);
+        assertTrue("The json (" + json + ") doesn't match (" + pattern + ").", matcher.find());
+        return matcher.group(1);
+    }
+
+    private static class Response {
+
+        private final int statusCode;
+        private final String body;
+
+        private Response(int statusCode, String body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaplanner.training.workerrostering.solver.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.TimeSlot;
+import org.optaplanner.training.workerrostering.optional.domain.MovableShiftAssignmentFilter;
+import org.optaplanner.training.workerrostering.persistence.WorkerRosteringGenerator;
+import org.optaplanner.training.workerrostering.solver.SolverFactoryHolder;
+
+import static org.junit.Assert.*;
+
+public class MovableAssignmentIndexTest {
+
+    private ScoreDirector<Roster> scoreDirector;
+    private Roster roster;
+
+    @Before
+    public void setUp() {
+        roster = new WorkerRosteringGenerator().generateRoster(10, 24, true);
+        scoreDirector = SolverFactoryHolder.buildSolver().getScoreDirectorFactory().buildScoreDirector();
+        scoreDirector.setWorkingSolution(roster);
+    }
+
+    @After
+    public void tearDown() {
+        scoreDirector.dispose();
+    }
+
+    /**
+     * Changes employees like the moves of many steps do, including shift assignments that lose
+     * or gain their employee, and compares the updated index with a rebuilt one after every step.
+     */
+    @Test
+    public void updateMatchesRebuild() {
+        MovableShiftAssignmentFilter movableFilter = new MovableShiftAssignmentFilter();
+        List<ShiftAssignment> movableList = roster.getShiftAssignmentList().stream()
+                .filter(shiftAssignment -> movableFilter.accept(scoreDirector, shiftAssignment))
+                .collect(Collectors.toList());
+        List<Employee> employeeList = roster.getEmployeeList();
+        Random random = new Random(37);
+        MovableAssignmentIndex index = MovableAssignmentIndex.update(null, scoreDirector);
+        for (int step = 0; step < 100; step++) {
+            int changeCount = 1 + random.nextInt(3);
+            for (int i = 0; i < changeCount; i++) {
+                ShiftAssignment shiftAssignment = movableList.get(random.nextInt(movableList.size()));
+                Employee toEmployee = random.nextInt(10) == 0 ? null
+                        : employeeList.get(random.nextInt(employeeList.size()));
+                scoreDirector.beforeVariableChanged(shiftAssignment, "employee");
+                shiftAssignment.setEmployee(toEmployee);
+                scoreDirector.afterVariableChanged(shiftAssignment, "employee");
+            }
+            MovableAssignmentIndex updatedIndex = MovableAssignmentIndex.update(index, scoreDirector);
+            assertSame(index, updatedIndex);
+            assertEquals(describe(new MovableAssignmentIndex(scoreDirector)), describe(updatedIndex));
+        }
+    }
+
+    @Test
+    public void newWorkingSolutionRebuilds() {
+        MovableAssignmentIndex index = MovableAssignmentIndex.update(null, scoreDirector);
+        assertSame(index, MovableAssignmentIndex.update(index, scoreDirector));
+        scoreDirector.setWorkingSolution(new WorkerRosteringGenerator().generateRoster(10, 24, true));
+        assertNotSame(index, MovableAssignmentIndex.update(index, scoreDirector));
+    }
+
+    /**
+     * @return sorted where the order doesn't matter, by position in the roster instead of by identity
+     */
+    @SuppressWarnings("deprecation")
+    private List<String> describe(MovableAssignmentIndex index) {
+        List<ShiftAssignment> shiftAssignmentList = roster.getShiftAssignmentList();
+        Set<String> shiftTypeSet = roster.getShiftAssignmentList().stream()
+                .map(shiftAssignment -> shiftAssignment.getSpot().getShiftType())
+                .collect(Collectors.toCollection(TreeSet::new));
+        EmployeeLoadIndex loadIndex = index.getLoadIndex();
+        List<String> lineList = new ArrayList<>();
+        for (Employee employee : roster.getEmployeeList()) {
+            lineList.add(employee + " adjustedCost " + loadIndex.getAdjustedCost(employee));
+            for (String shiftType : shiftTypeSet) {
+                lineList.add(employee + " adjustedCost " + shiftType + " "
+                        + loadIndex.getAdjustedCost(employee, shiftType));
+            }
+            for (TimeSlot timeSlot : roster.getTimeSlotList()) {
+                lineList.add(employee + " occupied " + timeSlot + " " + loadIndex.isOccupied(employee, timeSlot));
+            }
+            List<ShiftAssignment> employeeAssignmentList = index.getMovableAssignmentList(employee);
+            assertEquals(employeeAssignmentList != null, index.getMovableEmployeeList().contains(employee));
+            if (employeeAssignmentList != null) {
+                assertFalse(employeeAssignmentList.isEmpty());
+                for (int i = 1; i < employeeAssignmentList.size(); i++) {
+                    assertFalse(employeeAssignmentList.get(i).getTimeSlot().getStartDateTime().isBefore(
+                            employeeAssignmentList.get(i - 1).getTimeSlot().getStartDateTime()));
+                }
+                lineList.add(employee + " movable " + positions(shiftAssignmentList, employeeAssignmentList));
+            }
+        }
+        lineList.add("movable " + positions(shiftAssignmentList, index.getMovableAssignmentList()));
+        lineList.add("movableEmployees " + index.getMovableEmployeeList().size());
+        for (List<ShiftAssignment> timeSlotBlock : index.getTimeSlotBlockList()) {
+            assertFalse(timeSlotBlock.isEmpty());
+            lineList.add("timeSlotBlock " + positions(shiftAssignmentList, timeSlotBlock));
+        }
+        Collections.sort(lineList);
+        return lineList;
+    }
+
+    private static List<Integer> positions(List<ShiftAssignment> shiftAssignmentList,
+            List<ShiftAssignment> subList) {
+        List<Integer> positionList = new ArrayList<>(subList.size());
+        for (ShiftAssignment shiftAssignment : subList) {
+            positionList.add(shiftAssignmentList.indexOf(shiftAssignment));
+        }
+        Collections.sort(positionList);
+        return positionList;
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaplanner.training.workerrostering.solver.move;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.optaplanner.core.impl.heuristic.move.Move;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.persistence.WorkerRosteringGenerator;
+import org.optaplanner.training.workerrostering.solver.SolverFactoryHolder;
+
+import static org.junit.Assert.*;
+
+public class CyclicExchangeMoveTest {
+
+    private ScoreDirector<Roster> scoreDirector;
+    private Roster roster;
+
+    @Before
+    public void setUp() {
+        roster = new WorkerRosteringGenerator().generateRoster(10, 24, true);
+        scoreDirector = SolverFactoryHolder.buildSolver().getScoreDirectorFactory().buildScoreDirector();
+        scoreDirector.setWorkingSolution(roster);
+    }
+
+    @After
+    public void tearDown() {
+        scoreDirector.dispose();
+    }
+
+    @Test
+    public void rotateAndUndo() {
+        List<ShiftAssignment> cycle = findAssignmentsOfDifferentEmployees(3);
+        Employee a = cycle.get(0).getEmployee();
+        Employee b = cycle.get(1).getEmployee();
+        Employee c = cycle.get(2).getEmployee();
+        List<Employee> originalEmployeeList = employees(roster.getShiftAssignmentList());
+
+        CyclicExchangeMove move = new CyclicExchangeMove(cycle);
+        assertTrue(move.isMoveDoable(scoreDirector));
+        Move<Roster> undoMove = move.createUndoMove(scoreDirector);
+        move.doMove(scoreDirector);
+        assertEquals(Arrays.asList(b, c, a), employees(cycle));
+
+        undoMove.doMove(scoreDirector);
+        assertEquals(originalEmployeeList, employees(roster.getShiftAssignmentList()));
+    }
+
+    @Test
+    public void undoAfterTheMoveIsDone() {
+        // Same as the solver does for the step move: the undo move is created from the changed solution
+        List<ShiftAssignment> cycle = findAssignmentsOfDifferentEmployees(4);
+        List<Employee> originalEmployeeList = employees(roster.getShiftAssignmentList());
+        CyclicExchangeMove move = new CyclicExchangeMove(cycle);
+        move.doMove(scoreDirector);
+        move.createUndoMove(scoreDirector).doMove(scoreDirector);
+        assertEquals(originalEmployeeList, employees(roster.getShiftAssignmentList()));
+    }
+
+    @Test
+    public void notDoableWithTheSameEmployee() {
+        ShiftAssignment shiftAssignment = findAssignmentsOfDifferentEmployees(1).get(0);
+        List<ShiftAssignment> cycle = roster.getShiftAssignmentList().stream()
+                .filter(candidate -> candidate.getEmployee() == shiftAssignment.getEmployee())
+                .limit(2)
+                .collect(Collectors.toList());
+        assertEquals(2, cycle.size());
+        assertFalse(new CyclicExchangeMove(cycle).isMoveDoable(scoreDirector));
+    }
+
+    private List<ShiftAssignment> findAssignmentsOfDifferentEmployees(int size) {
+        List<ShiftAssignment> shiftAssignmentList = new ArrayList<>(size);
+        List<Employee> employeeList = new ArrayList<>(size);
+        for (ShiftAssignment shiftAssignment : roster.getShiftAssignmentList()) {
+            Employee employee = shiftAssignment.getEmployee();
+            if (employee != null && !employeeList.contains(employee)) {
+                shiftAssignmentList.add(shiftAssignment);
+                employeeList.add(employee);
+                if (shiftAssignmentList.size() == size) {
+                    return shiftAssignmentList;
+                }
+            }
+        }
+        throw new IllegalStateException("The generated roster has less than " + size + " assigned employees.");
+    }
+
+    private static List<Employee> employees(List<ShiftAssignment> shiftAssignmentList) {
+        return shiftAssignmentList.stream().map(ShiftAssignment::getEmployee).collect(Collectors.toList());
+    }
+
+}
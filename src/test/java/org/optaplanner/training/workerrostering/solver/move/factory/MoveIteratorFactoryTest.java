@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaplanner.training.workerrostering.solver.move.factory;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.optaplanner.core.impl.heuristic.move.Move;
+import org.optaplanner.core.impl.heuristic.selector.move.factory.MoveIteratorFactory;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.training.workerrostering.domain.Employee;
+import org.optaplanner.training.workerrostering.domain.Roster;
+import org.optaplanner.training.workerrostering.domain.ShiftAssignment;
+import org.optaplanner.training.workerrostering.domain.TimeSlotState;
+import org.optaplanner.training.workerrostering.optional.domain.MovableShiftAssignmentFilter;
+import org.optaplanner.training.workerrostering.persistence.WorkerRosteringGenerator;
+import org.optaplanner.training.workerrostering.solver.SolverFactoryHolder;
+import org.optaplanner.training.workerrostering.solver.move.EmployeeReassignmentMove;
+
+import static org.junit.Assert.*;
+
+/**
+ * Every custom move iterator factory on a generated continuous planning roster,
+ * which has HISTORY time slots and shift assignments locked by the user.
+ */
+public class MoveIteratorFactoryTest {
+
+    private static final int MOVE_COUNT = 200;
+
+    private final MovableShiftAssignmentFilter movableFilter = new MovableShiftAssignmentFilter();
+
+    private ScoreDirector<Roster> scoreDirector;
+    private Roster roster;
+
+    @Before
+    @SuppressWarnings("deprecation")
+    public void setUp() {
+        roster = new WorkerRosteringGenerator().generateRoster(10, 24, true);
+        // Lock a few more than the generator does, so the test never depends on its random numbers
+        int assignedCount = 0;
+        for (ShiftAssignment shiftAssignment : roster.getShiftAssignmentList()) {
+            if (shiftAssignment.getEmployee() != null
+                    && shiftAssignment.getTimeSlot().getTimeSlotState() != TimeSlotState.HISTORY
+                    && assignedCount++ % 10 == 0) {
+                shiftAssignment.setLockedByUser(true);
+            }
+        }
+        scoreDirector = SolverFactoryHolder.buildSolver().getScoreDirectorFactory().buildScoreDirector();
+        scoreDirector.setWorkingSolution(roster);
+    }
+
+    @After
+    public void tearDown() {
+        scoreDirector.dispose();
+    }
+
+    @Test
+    public void cyclicExchange() {
+        assertMovesAreUndoableAndKeepPinned(new CyclicExchangeMoveIteratorFactory());
+    }
+
+    @Test
+    public void loadTransfer() {
+        assertMovesAreUndoableAndKeepPinned(new LoadTransferMoveIteratorFactory());
+    }
+
+    @Test
+    public void ruinAndRecreate() {
+        assertMovesAreUndoableAndKeepPinned(new RuinAndRecreateMoveIteratorFactory());
+    }
+
+    @Test
+    public void ruinAndRecreateOnlyAssignsEligibleEmployees() {
+        List<Employee> originalEmployeeList = employees();
+        RuinAndRecreateMoveIteratorFactory moveIteratorFactory = new RuinAndRecreateMoveIteratorFactory();
+        Iterator<Move<Roster>> moveIterator = moveIteratorFactory.createRandomMoveIterator(scoreDirector,
+                new Random(37));
+        for (int i = 0; i < MOVE_COUNT; i++) {
+            EmployeeReassignmentMove move = (EmployeeReassignmentMove) moveIterator.next();
+            List<ShiftAssignment> ruinedList = move.getShiftAssignmentList();
+            assertFalse(ruinedList.isEmpty());
+            for (int j = 0; j < ruinedList.size(); j++) {
+                ShiftAssignment shiftAssignment = ruinedList.get(j);
+                Employee toEmployee = move.getToEmployeeList().get(j);
+                // A shift assignment that nobody else fits keeps its employee
+                if (toEmployee != shiftAssignment.getEmployee()) {
+                    assertTrue(toEmployee.getCanDoJob(shiftAssignment.getSpot()));
+                    assertEquals(0, toEmployee.getShiftVacationOverlap(shiftAssignment));
+                }
+            }
+        }
+        // Recreating only tries the assignments out, it never changes the working solution
+        assertEquals(originalEmployeeList, employees());
+    }
+
+    /**
+     * Does every move like a step does, checks it only changed movable shift assignments,
+     * then undoes it and checks every employee is back.
+     */
+    private void assertMovesAreUndoableAndKeepPinned(MoveIteratorFactory<Roster> moveIteratorFactory) {
+        List<Employee> originalEmployeeList = employees();
+        Random workingRandom = new Random(37);
+        int doneCount = 0;
+        for (int i = 0; i < MOVE_COUNT; i++) {
+            Iterator<Move<Roster>> moveIterator
+                    = moveIteratorFactory.createRandomMoveIterator(scoreDirector, workingRandom);
+            assertTrue(moveIterator.hasNext());
+            Move<Roster> move = moveIterator.next();
+            if (!move.isMoveDoable(scoreDirector)) {
+                continue;
+            }
+            for (Object entity : move.getPlanningEntities()) {
+                assertTrue("The move (" + move + ") changes a pinned or HISTORY shift assignment (" + entity + ").",
+                        movableFilter.accept(scoreDirector, (ShiftAssignment) entity));
+            }
+            Move<Roster> undoMove = move.createUndoMove(scoreDirector);
+            move.doMove(scoreDirector);
+            List<Employee> movedEmployeeList = employees();
+            List<ShiftAssignment> shiftAssignmentList = roster.getShiftAssignmentList();
+            for (int j = 0; j < shiftAssignmentList.size(); j++) {
+                ShiftAssignment shiftAssignment = shiftAssignmentList.get(j);
+                if (!movableFilter.accept(scoreDirector, shiftAssignment)) {
+                    assertSame("The move (" + move + ") changed the pinned or HISTORY shift assignment ("
+                            + shiftAssignment + ").", originalEmployeeList.get(j), movedEmployeeList.get(j));
+                }
+            }
+            undoMove.doMove(scoreDirector);
+            assertEquals("The undo move of (" + move + ") didn't restore every employee.",
+                    originalEmployeeList, employees());
+            doneCount++;
+        }
+        assertTrue("None of the " + MOVE_COUNT + " moves was doable.", doneCount > 0);
+    }
+
+    private List<Employee> employees() {
+        return roster.getShiftAssignmentList().stream()
+                .map(ShiftAssignment::getEmployee)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaplanner.training.workerrostering.solver.solution.initializer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MinCostFlowTest {
+
+    private static final int SOURCE = 0;
+    private static final int WORKER_1 = 1;
+    private static final int WORKER_2 = 2;
+    private static final int JOB_1 = 3;
+    private static final int JOB_2 = 4;
+    private static final int SINK = 5;
+
+    /**
+     * The cheapest edge (worker 1 to job 1) is not in the optimal assignment:
+     * taking it first leaves job 2 to worker 2 for a total cost of 11,
+     * so the second path must reroute worker 1 over the reverse edge, for a total cost of 4.
+     */
+    @Test
+    public void assignmentReroutesTheCheapestEdge() {
+        MinCostFlow flow = new MinCostFlow(6);
+        flow.addEdge(SOURCE, WORKER_1, 1, 0L);
+        flow.addEdge(SOURCE, WORKER_2, 1, 0L);
+        int worker1Job1 = flow.addEdge(WORKER_1, JOB_1, 1, 1L);
+        int worker1Job2 = flow.addEdge(WORKER_1, JOB_2, 1, 2L);
+        int worker2Job1 = flow.addEdge(WORKER_2, JOB_1, 1, 2L);
+        int worker2Job2 = flow.addEdge(WORKER_2, JOB_2, 1, 10L);
+        flow.addEdge(JOB_1, SINK, 1, 0L);
+        flow.addEdge(JOB_2, SINK, 1, 0L);
+
+        assertEquals(2, flow.solve(SOURCE, SINK));
+        assertEquals(0, flow.getFlow(worker1Job1));
+        assertEquals(1, flow.getFlow(worker1Job2));
+        assertEquals(1, flow.getFlow(worker2Job1));
+        assertEquals(0, flow.getFlow(worker2Job2));
+    }
+
+    @Test
+    public void negativeCosts() {
+        // Same graph with rewards instead of costs: the highest total reward is 1 + 10
+        MinCostFlow flow = new MinCostFlow(6);
+        flow.addEdge(SOURCE, WORKER_1, 1, 0L);
+        flow.addEdge(SOURCE, WORKER_2, 1, 0L);
+        int worker1Job1 = flow.addEdge(WORKER_1, JOB_1, 1, -1L);
+        int worker1Job2 = flow.addEdge(WORKER_1, JOB_2, 1, -2L);
+        int worker2Job1 = flow.addEdge(WORKER_2, JOB_1, 1, -2L);
+        int worker2Job2 = flow.addEdge(WORKER_2, JOB_2, 1, -10L);
+        flow.addEdge(JOB_1, SINK, 1, 0L);
+        flow.addEdge(JOB_2, SINK, 1, 0L);
+
+        assertEquals(2, flow.solve(SOURCE, SINK));
+        assertEquals(1, flow.getFlow(worker1Job1));
+        assertEquals(0, flow.getFlow(worker1Job2));
+        assertEquals(0, flow.getFlow(worker2Job1));
+        assertEquals(1, flow.getFlow(worker2Job2));
+    }
+
+    /**
+     * The source can send 3 units, the cheap detour over node 2 only carries 1 of them,
+     * so the other 2 take the expensive direct edge: the total cost is 1 * (1 + 1) + 2 * 5 = 12.
+     */
+    @Test
+    public void capacitiesLimitTheCheapPath() {
+        MinCostFlow flow = new MinCostFlow(4);
+        int sourceToHub = flow.addEdge(0, 1, 3, 0L);
+        int direct = flow.addEdge(1, 3, 2, 5L);
+        int toDetour = flow.addEdge(1, 2, 2, 1L);
+        int fromDetour = flow.addEdge(2, 3, 1, 1L);
+
+        assertEquals(3, flow.solve(0, 3));
+        assertEquals(3, flow.getFlow(sourceToHub));
+        assertEquals(2, flow.getFlow(direct));
+        assertEquals(1, flow.getFlow(toDetour));
+        assertEquals(1, flow.getFlow(fromDetour));
+        long totalCost = flow.getFlow(direct) * 5L + flow.getFlow(toDetour) * 1L + flow.getFlow(fromDetour) * 1L;
+        assertEquals(12L, totalCost);
+    }
+
+    @Test
+    public void unreachableSink() {
+        MinCostFlow flow = new MinCostFlow(3);
+        int edge = flow.addEdge(0, 1, 5, 1L);
+        assertEquals(0, flow.solve(0, 2));
+        assertEquals(0, flow.getFlow(edge));
+    }
+
+    @Test
+    public void growsTheEdgeArrays() {
+        // Starts with room for 8 half edges per node, so 3 nodes with 21 edges (42 half edges) need to grow
+        MinCostFlow flow = new MinCostFlow(3);
+        flow.addEdge(0, 1, 1, 0L);
+        int[] parallelEdges = new int[20];
+        for (int i = 0; i < parallelEdges.length; i++) {
+            parallelEdges[i] = flow.addEdge(1, 2, 1, 20L - i);
+        }
+        assertEquals(1, flow.solve(0, 2));
+        for (int i = 0; i < parallelEdges.length - 1; i++) {
+            assertEquals(0, flow.getFlow(parallelEdges[i]));
+        }
+        assertEquals(1, flow.getFlow(parallelEdges[parallelEdges.length - 1]));
+    }
+
+}